@@ -0,0 +1,126 @@
+import java.lang.management.ManagementFactory;
+
+// 依視窗狀態與玩家活動調整更新頻率，減少閒置時的耗電
+//
+// 狀態（優先順序由上到下）：
+//   hidden      視窗最小化：計時器停止，不模擬也不繪圖（遊戲暫停）
+//   game-over   遊戲結束畫面：畫面不會變化，每 250ms 更新一次
+//   background  視窗沒有焦點：仍以每秒 60 tick 模擬，但每 4 個 tick 才發佈一次畫面（15FPS）
+//   idle        還沒離開起始安全區且 5 秒沒有按鍵：死亡線不動，每 3 個 tick 發佈一次畫面（20FPS）
+//   active      其他情況：每 16ms 一個 tick、一個畫面
+// 降頻時一次觸發連續推進多個 tick（逐一呼叫 tick()，與逐 tick 推進完全相同），遊戲時間與回放不受影響。
+// 任何按鍵、取得焦點、還原視窗都立刻回到對應的狀態
+//
+// 每個狀態累計停留時間、進入次數、行程 CPU 時間、tick 數與畫面數，結束時輸出
+public class ActivityThrottle {
+    static final int ACTIVE = 0;
+    static final int IDLE = 1;
+    static final int BACKGROUND = 2;
+    static final int GAME_OVER = 3;
+    static final int HIDDEN = 4;
+    static final String[] STATE_NAMES = {"active", "idle", "background", "game-over", "hidden"};
+
+    static final int[] DELAY_MILLIS = {16, 48, 64, 250, 0}; // 計時器間隔，0 表示停止
+    static final int[] TICKS_PER_FIRE = {1, 3, 4, 0, 0}; // 每次觸發推進的 tick 數
+    static final long IDLE_AFTER_NANOS = 5_000_000_000L;
+
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean();
+
+    private int state = ACTIVE;
+    private boolean hidden;
+    private boolean focused = true;
+    private long lastInputNanos = System.nanoTime();
+
+    // 統計由 EDT 更新，report 則從 shutdown hook 的執行緒呼叫；
+    // 兩邊都會寫入（account），因此 update、計數與 report 以 this 同步（沒有競爭時幾乎沒有成本）
+    private final long[] wallNanos = new long[STATE_NAMES.length];
+    private final long[] cpuNanos = new long[STATE_NAMES.length];
+    private final long[] ticks = new long[STATE_NAMES.length];
+    private final long[] frames = new long[STATE_NAMES.length];
+    private final long[] entries = new long[STATE_NAMES.length];
+    private long enteredNanos = System.nanoTime();
+    private long enteredCpuNanos = os.getProcessCpuTime();
+    int transitions;
+
+    void setHidden(boolean hidden) {
+        this.hidden = hidden;
+    }
+
+    void setFocused(boolean focused) {
+        this.focused = focused;
+    }
+
+    void onInput() {
+        lastInputNanos = System.nanoTime();
+    }
+
+    // 依目前的遊戲狀態重新判斷；回傳狀態是否改變
+    synchronized boolean update(boolean gameRunning, boolean gameStarted) {
+        int next;
+        if (hidden) {
+            next = HIDDEN;
+        } else if (!gameRunning) {
+            next = GAME_OVER;
+        } else if (!focused) {
+            next = BACKGROUND;
+        } else if (!gameStarted && System.nanoTime() - lastInputNanos > IDLE_AFTER_NANOS) {
+            next = IDLE;
+        } else {
+            next = ACTIVE;
+        }
+        if (next == state) {
+            return false;
+        }
+        account();
+        state = next;
+        entries[next]++;
+        transitions++;
+        return true;
+    }
+
+    // 把目前狀態到現在為止的時間記進統計
+    private void account() {
+        long now = System.nanoTime();
+        long cpu = os.getProcessCpuTime();
+        wallNanos[state] += now - enteredNanos;
+        cpuNanos[state] += cpu - enteredCpuNanos;
+        enteredNanos = now;
+        enteredCpuNanos = cpu;
+    }
+
+    int state() {
+        return state;
+    }
+
+    int delayMillis() {
+        return DELAY_MILLIS[state];
+    }
+
+    int ticksPerFire() {
+        return TICKS_PER_FIRE[state];
+    }
+
+    synchronized void countTick() {
+        ticks[state]++;
+    }
+
+    synchronized void countFrame() {
+        frames[state]++;
+    }
+
+    // 各狀態的停留時間與平均 CPU 使用率（100% 為一個核心）
+    synchronized String report() {
+        account();
+        StringBuilder sb = new StringBuilder("各狀態 CPU 使用量（行程 CPU 時間 / 停留時間），共切換 " + transitions + " 次：");
+        for (int i = 0; i < STATE_NAMES.length; i++) {
+            if (wallNanos[i] == 0) {
+                continue;
+            }
+            double seconds = wallNanos[i] / 1e9;
+            sb.append(String.format("%n  %-10s %8.1f 秒  進入 %4d 次  CPU %5.1f%%  %5.1f tick/s  %5.1f 幀/s", STATE_NAMES[i],
+                    seconds, entries[i], 100.0 * cpuNanos[i] / wallNanos[i], ticks[i] / seconds, frames[i] / seconds));
+        }
+        return sb.toString();
+    }
+}
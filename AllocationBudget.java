@@ -0,0 +1,191 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+// 配置量預算檢查：以隨機策略連續玩遊戲，預熱之後量測穩定狀態下每個 tick 各階段配置了多少位元組，
+// 任何一個階段的平均值超過預算就以非零狀態結束，可以放進建置腳本，GC 壓力變大時立刻發現
+//
+// 用法：java -Djava.awt.headless=true AllocationBudget [--ticks=N] [--warmup=N] [--seed=S]
+//                                                      [--budget=階段:位元組 ...] [--no-paint]
+//   --ticks    量測的 tick 數（預設 10000）
+//   --warmup   量測前先跑的 tick 數，讓 JIT 編譯完成（預設 10000）
+//   --budget   覆寫某個階段每 tick 的平均預算，例如 --budget=tick:4096
+//   --no-paint 不量測快照與繪圖
+//
+// 階段：
+//   tick    GameWorld.tick 與玩家移動
+//   capture 填寫 RenderSnapshot（遊戲每個 tick 都會做）
+//   paint   FrameRenderer 畫在離屏影像上（完整畫質、含診斷資訊）
+// 遊戲結束後建立新世界的配置不計入任何階段。
+// 以 com.sun.management.ThreadMXBean 量測目前執行緒的配置量：
+// GameWorld.parallelPool 在其他執行緒上的配置不會算進來，這裡也不設定平行執行緒池
+public class AllocationBudget {
+    static final int PHASE_TICK = 0;
+    static final int PHASE_CAPTURE = 1;
+    static final int PHASE_PAINT = 2;
+    static final String[] PHASE_NAMES = {"tick", "capture", "paint"};
+    // 每 tick 平均配置的位元組預算；以目前的量測值為準，留一些餘裕
+    static final long[] DEFAULT_BUDGETS = {7168, 64, 16384};
+
+    static final int HOP_INTERVAL = 8;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+    private final long threadId = Thread.currentThread().getId();
+    private long probeOverhead; // 量測本身每次的配置量
+
+    final long[] budgets = DEFAULT_BUDGETS.clone();
+    final long[] total = new long[PHASE_NAMES.length];
+    final long[] max = new long[PHASE_NAMES.length];
+    final long[] maxTick = new long[PHASE_NAMES.length]; // 單一 tick 配置最多的是第幾個量測 tick
+    int ticks = 10000;
+    int warmup = 10000;
+    long seed = 1;
+    boolean paint = true;
+    int games;
+
+    private GameWorld world;
+    private SplittableRandom rng;
+    private final RenderSnapshot snapshot = new RenderSnapshot();
+    private FrameRenderer renderer;
+    private BufferedImage frame;
+    private Graphics2D graphics;
+
+    private long allocated() {
+        return threads.getThreadAllocatedBytes(threadId);
+    }
+
+    // 量測空的區段，扣除呼叫 getThreadAllocatedBytes 本身可能的配置
+    private void calibrate() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = allocated();
+            long after = allocated();
+            min = Math.min(min, after - before);
+        }
+        probeOverhead = min;
+    }
+
+    private void newGame() {
+        world = new GameWorld(seed + games);
+        rng = new SplittableRandom(seed + games);
+        games++;
+    }
+
+    // 推進一個 tick；measured 為 -1 表示預熱
+    private void step(int measured) {
+        if (!world.gameRunning) {
+            newGame();
+        }
+
+        long start = allocated();
+        if (world.tick() && world.tickCount % HOP_INTERVAL == 0) {
+            world.movePlayer(AutoPlayer.randomMove(rng));
+        }
+        long afterTick = allocated();
+        record(PHASE_TICK, afterTick - start, measured);
+
+        if (paint) {
+            snapshot.capture(world, FrameRenderer.RENDER_HEIGHT);
+            snapshot.qualityLevel = RenderQuality.FULL;
+            snapshot.diagnostics = true;
+            snapshot.simNanos = 1000;
+            long afterCapture = allocated();
+            record(PHASE_CAPTURE, afterCapture - afterTick, measured);
+
+            renderer.render(graphics, snapshot);
+            record(PHASE_PAINT, allocated() - afterCapture, measured);
+        }
+    }
+
+    private void record(int phase, long bytes, int measured) {
+        if (measured < 0) {
+            return;
+        }
+        bytes = Math.max(0, bytes - probeOverhead);
+        total[phase] += bytes;
+        if (bytes > max[phase]) {
+            max[phase] = bytes;
+            maxTick[phase] = measured;
+        }
+    }
+
+    // 回傳是否所有階段都在預算內
+    boolean run() {
+        calibrate();
+        if (paint) {
+            renderer = new FrameRenderer(FrameRenderer.loadPlayerImage());
+            frame = new BufferedImage(FrameRenderer.RENDER_WIDTH, FrameRenderer.RENDER_HEIGHT,
+                    BufferedImage.TYPE_INT_RGB);
+            graphics = frame.createGraphics();
+        }
+        newGame();
+        for (int i = 0; i < warmup; i++) {
+            step(-1);
+        }
+        int warmupGames = games;
+        for (int i = 0; i < ticks; i++) {
+            step(i);
+        }
+
+        System.out.printf("預熱 %d tick，量測 %d tick（%d 場遊戲），量測本身 %d 位元組%n",
+                warmup, ticks, games - warmupGames + 1, probeOverhead);
+        boolean ok = true;
+        for (int p = 0; p < PHASE_NAMES.length; p++) {
+            if (!paint && p != PHASE_TICK) {
+                continue;
+            }
+            double mean = (double)total[p] / ticks;
+            boolean within = mean <= budgets[p];
+            ok &= within;
+            System.out.printf("%-8s 平均 %10.1f B/tick  最多 %9d B（第 %d tick）  預算 %7d  %s%n",
+                    PHASE_NAMES[p], mean, max[p], maxTick[p], budgets[p], within ? "OK" : "超過預算");
+        }
+        if (graphics != null) {
+            graphics.dispose();
+        }
+        return ok;
+    }
+
+    static int phaseIndex(String name) {
+        for (int p = 0; p < PHASE_NAMES.length; p++) {
+            if (PHASE_NAMES[p].equals(name)) {
+                return p;
+            }
+        }
+        throw new IllegalArgumentException("未知的階段: " + name);
+    }
+
+    public static void main(String[] args) {
+        AllocationBudget harness = new AllocationBudget();
+        for (String arg : args) {
+            if (arg.startsWith("--ticks=")) {
+                harness.ticks = Integer.parseInt(arg.substring(8));
+            } else if (arg.startsWith("--warmup=")) {
+                harness.warmup = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--seed=")) {
+                harness.seed = Long.parseLong(arg.substring(7));
+            } else if (arg.startsWith("--budget=")) {
+                String[] parts = arg.substring(9).split(":");
+                harness.budgets[phaseIndex(parts[0])] = Long.parseLong(parts[1]);
+            } else if (arg.equals("--no-paint")) {
+                harness.paint = false;
+            } else {
+                throw new IllegalArgumentException("未知的選項: " + arg);
+            }
+        }
+
+        if (!harness.threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("這個 JVM 不支援量測執行緒配置量");
+            System.exit(2);
+        }
+        harness.threads.setThreadAllocatedMemoryEnabled(true);
+
+        if (!harness.run()) {
+            System.out.println("FAIL");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
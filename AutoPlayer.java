@@ -0,0 +1,416 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// 自動遊玩機器人：在（格子 × 時間）上做逐層的廣度優先搜尋
+// 車輛以道路固定的 carSpeed 等速移動，玩家每次跳一格 TILE_SIZE，
+// 所以在搜尋範圍內每條車道未來的佔用情況都可以直接推算，不需要複製整個世界
+public class AutoPlayer {
+    public static final int NO_MOVE = -1;
+    private static final int STAY = 4; // 搜尋內部使用：原地不動
+
+    static final int DEFAULT_HOP_INTERVAL = 8; // 兩次跳躍之間的 tick 數（也是每層搜尋的時間步長）
+    static final int DEFAULT_DEPTH = 8; // 搜尋層數
+    static final long DEFAULT_BUDGET_MICROS = 500; // 每次決策的時間預算
+    static final int MAX_DEPTH = 16;
+    static final int DEADLINE_CHECK_CELLS = 16; // 每展開這麼多格檢查一次是否超出預算（2 的次方）
+
+    // 搜尋視窗：玩家上方 ROWS_AHEAD 排到下方 ROWS_BEHIND 排，左右不超出世界邊界
+    private static final int ROWS_AHEAD = 12;
+    private static final int ROWS_BEHIND = 3;
+    private static final int ROWS = ROWS_AHEAD + ROWS_BEHIND + 1;
+    private static final int MIN_COL = GameWorld.WORLD_LEFT_BOUNDARY / GameWorld.TILE_SIZE;
+    private static final int MAX_COL = GameWorld.WORLD_RIGHT_BOUNDARY / GameWorld.TILE_SIZE;
+    private static final int MAX_CELLS = ROWS * (MAX_COL - MIN_COL + 1);
+
+    // 機器人只在螢幕內的欄位活動
+    private static final int SCREEN_MIN_COL = 1;
+    private static final int SCREEN_MAX_COL = GameWorld.WORLD_WIDTH / GameWorld.TILE_SIZE - 1;
+
+    // 玩家碰撞框 (TILE_SIZE - 4) 與車輛碰撞框 (CAR_WIDTH - 4) 半寬之和，再加一點安全距離
+    private static final double HIT_RADIUS =
+            (GameWorld.TILE_SIZE - 4 + GameWorld.Car.CAR_WIDTH - 4) / 2.0 + 4;
+
+    private static final int[] DROW = {-1, 1, 0, 0, 0};
+    private static final int[] DCOL = {0, 0, -1, 1, 0};
+    // 同分時的偏好順序：前進、左右、原地、後退
+    private static final int[] ACTION_ORDER = {GameWorld.MOVE_UP, GameWorld.MOVE_LEFT, GameWorld.MOVE_RIGHT,
+            STAY, GameWorld.MOVE_DOWN};
+
+    private final int hopInterval;
+    private final int depth;
+    private final long budgetNanos;
+
+    // 每排車道的資料（依排分組的車輛 X 位置與帶正負號的速度）
+    private final int[] laneStart = new int[ROWS + 1];
+    private final boolean[] rowSafe = new boolean[ROWS];
+    private final boolean[] rowExists = new boolean[ROWS];
+    private double[] carX = new double[64];
+    private double[] carV = new double[64];
+    private int[] carRow = new int[64];
+
+    // 每層搜尋的狀態：stamp 判斷本次是否到達，firstMove 記錄從根節點出發的第一步
+    private final int[] stamp = new int[(MAX_DEPTH + 1) * MAX_CELLS];
+    private final byte[] firstMove = new byte[(MAX_DEPTH + 1) * MAX_CELLS];
+    private final int[] frontier = new int[MAX_CELLS];
+    private final int[] nextFrontier = new int[MAX_CELLS];
+    private int searchId;
+
+    private int ticksUntilDecision;
+
+    // 決策耗時統計
+    private long lastDecisionNanos;
+    private long maxDecisionNanos;
+    private long totalDecisionNanos;
+    private long decisions;
+    private long searchCutoffs; // 時間到而提早結束搜尋、改用已完成的最深一層的次數
+    private long budgetOverruns; // 決策耗時仍超出預算的次數
+
+    public AutoPlayer() {
+        this(DEFAULT_HOP_INTERVAL, DEFAULT_DEPTH, DEFAULT_BUDGET_MICROS);
+    }
+
+    public AutoPlayer(int hopInterval, int depth, long budgetMicros) {
+        if (hopInterval < 1 || depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("hopInterval 需 >= 1，depth 需介於 1 到 " + MAX_DEPTH);
+        }
+        this.hopInterval = hopInterval;
+        this.depth = depth;
+        this.budgetNanos = budgetMicros * 1000;
+    }
+
+    // 每個 tick 呼叫一次；回傳 GameWorld.MOVE_* 或 NO_MOVE
+    public int nextMove(GameWorld world) {
+        if (ticksUntilDecision > 0) {
+            ticksUntilDecision--;
+            return NO_MOVE;
+        }
+        ticksUntilDecision = hopInterval - 1;
+
+        long start = System.nanoTime();
+        int move = decide(world, start);
+        long elapsed = System.nanoTime() - start;
+
+        lastDecisionNanos = elapsed;
+        maxDecisionNanos = Math.max(maxDecisionNanos, elapsed);
+        totalDecisionNanos += elapsed;
+        decisions++;
+        if (elapsed > budgetNanos) {
+            budgetOverruns++;
+        }
+        return move == STAY ? NO_MOVE : move;
+    }
+
+    // 逐層搜尋；時間用完時放棄還沒展開完的那一層，以已完成的最深一層決定移動
+    private int decide(GameWorld world, long start) {
+        long deadline = start + budgetNanos;
+        int tile = GameWorld.TILE_SIZE;
+        int playerRow = (int)Math.floor(world.player.y / tile);
+        int playerCol = (int)Math.floor(world.player.x / tile);
+        int topRow = playerRow - ROWS_AHEAD;
+        int minCol = Math.min(SCREEN_MIN_COL, playerCol);
+        int maxCol = Math.max(SCREEN_MAX_COL, playerCol);
+        int width = maxCol - minCol + 1;
+
+        loadLanes(world, topRow);
+
+        if (++searchId == 0) {
+            Arrays.fill(stamp, 0);
+            searchId = 1;
+        }
+
+        // 死亡線只在遊戲開始後移動
+        double deathSpeed = world.gameStarted ? world.difficulty.deathLineSpeed : 0;
+
+        int rootCell = (playerRow - topRow) * width + (playerCol - minCol);
+        int frontierSize = 1;
+        frontier[0] = rootCell;
+        int lastLayer = 0;
+
+        boolean timedOut = false;
+        for (int layer = 1; layer <= depth && !timedOut; layer++) {
+            int t0 = (layer - 1) * hopInterval;
+            int t1 = layer * hopInterval;
+            double deathY = world.deathLineWorldY - deathSpeed * t1;
+            int base = layer * MAX_CELLS;
+            int prevBase = (layer - 1) * MAX_CELLS;
+            int nextSize = 0;
+
+            for (int f = 0; f < frontierSize; f++) {
+                // 第一層（玩家周圍的幾格）一定展開完，時間用完時仍有可用的一步
+                if ((f & (DEADLINE_CHECK_CELLS - 1)) == 0 && layer > 1 && System.nanoTime() - deadline > 0) {
+                    timedOut = true;
+                    break;
+                }
+                int cell = frontier[f];
+                int row = cell / width;
+                int col = cell % width;
+                for (int action : ACTION_ORDER) {
+                    int nr = row + DROW[action];
+                    int nc = col + DCOL[action];
+                    if (nr < 0 || nr >= ROWS || nc < 0 || nc >= width) {
+                        continue;
+                    }
+                    int next = nr * width + nc;
+                    if (stamp[base + next] == searchId) {
+                        continue;
+                    }
+                    double y = (double)(topRow + nr) * tile;
+                    double x = (double)(minCol + nc) * tile;
+                    if (y >= deathY - tile || !cellSafe(nr, x, t0, t1)) {
+                        continue;
+                    }
+                    stamp[base + next] = searchId;
+                    firstMove[base + next] = layer == 1 ? (byte)action : firstMove[prevBase + cell];
+                    nextFrontier[nextSize++] = next;
+                }
+            }
+
+            if (timedOut) {
+                searchCutoffs++;
+                break;
+            }
+            if (nextSize == 0) {
+                break; // 這一層已無安全位置，使用上一層的結果
+            }
+            System.arraycopy(nextFrontier, 0, frontier, 0, nextSize);
+            frontierSize = nextSize;
+            lastLayer = layer;
+        }
+
+        if (lastLayer == 0) {
+            return GameWorld.MOVE_UP; // 沒有任何安全路線時，往前衝是最好的選擇
+        }
+
+        // 在最深的一層裡挑最前面、最靠近螢幕中央的位置
+        int centerCol = (SCREEN_MIN_COL + SCREEN_MAX_COL) / 2 - minCol;
+        int best = frontier[0];
+        int bestScore = Integer.MIN_VALUE;
+        for (int f = 0; f < frontierSize; f++) {
+            int cell = frontier[f];
+            int score = -(cell / width) * 16 - Math.abs(cell % width - centerCol);
+            if (score > bestScore) {
+                bestScore = score;
+                best = cell;
+            }
+        }
+        return firstMove[lastLayer * MAX_CELLS + best];
+    }
+
+    // 在 [t0, t1] 這段時間內，玩家站在 (row, x) 是否不會被該排的任何車輛碰到
+    private boolean cellSafe(int row, double x, int t0, int t1) {
+        if (!rowExists[row]) {
+            return false;
+        }
+        if (rowSafe[row]) {
+            return true;
+        }
+        for (int i = laneStart[row], end = laneStart[row + 1]; i < end; i++) {
+            double x0 = carX[i] + carV[i] * t0;
+            double x1 = carX[i] + carV[i] * t1;
+            double lo = Math.min(x0, x1) - HIT_RADIUS;
+            double hi = Math.max(x0, x1) + HIT_RADIUS;
+            if (x > lo && x < hi) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 把搜尋視窗內的車輛依排分組（計數排序，不建立新物件）
+    private void loadLanes(GameWorld world, int topRow) {
+        int tile = GameWorld.TILE_SIZE;
+        Arrays.fill(rowSafe, false);
+        Arrays.fill(rowExists, false);
+        for (GameWorld.Road road : world.roads) {
+            int row = road.roadIndex - topRow;
+            if (row >= 0 && row < ROWS) {
+                rowExists[row] = true;
+                rowSafe[row] = road.isSafeZone || GameWorld.isStartZone(road.roadIndex);
+            }
+        }
+
+        Arrays.fill(laneStart, 0);
+        int n = 0;
+        for (GameWorld.Car car : world.cars) {
+            int row = car.road.roadIndex - topRow;
+            if (row >= 0 && row < ROWS) {
+                laneStart[row + 1]++;
+                n++;
+            }
+        }
+        for (int r = 0; r < ROWS; r++) {
+            laneStart[r + 1] += laneStart[r];
+        }
+        if (carX.length < n) {
+            int size = Math.max(n, carX.length * 2);
+            carX = new double[size];
+            carV = new double[size];
+            carRow = new int[size];
+        }
+        // carRow 暫存每排目前的寫入位置
+        System.arraycopy(laneStart, 0, carRow, 0, ROWS);
+        for (GameWorld.Car car : world.cars) {
+            int row = car.road.roadIndex - topRow;
+            if (row >= 0 && row < ROWS) {
+                int i = carRow[row]++;
+                carX[i] = car.x;
+                carV[i] = car.movingRight ? car.speed : -car.speed;
+            }
+        }
+    }
+
+    // 隨機策略：偏向往前跳，作為機器人之外的對照組
+    static int randomMove(SplittableRandom rng) {
+        double r = rng.nextDouble();
+        if (r < 0.55) return GameWorld.MOVE_UP;
+        if (r < 0.70) return GameWorld.MOVE_LEFT;
+        if (r < 0.85) return GameWorld.MOVE_RIGHT;
+        if (r < 0.90) return GameWorld.MOVE_DOWN;
+        return NO_MOVE;
+    }
+
+    public long lastDecisionMicros() {
+        return lastDecisionNanos / 1000;
+    }
+
+    public long maxDecisionMicros() {
+        return maxDecisionNanos / 1000;
+    }
+
+    public double averageDecisionMicros() {
+        return decisions == 0 ? 0 : totalDecisionNanos / 1000.0 / decisions;
+    }
+
+    public long decisions() {
+        return decisions;
+    }
+
+    public long searchCutoffs() {
+        return searchCutoffs;
+    }
+
+    public long budgetOverruns() {
+        return budgetOverruns;
+    }
+
+    // 批次測試的決策紀錄：每次決策的耗時，以及決策期間是否發生 GC
+    static class DecisionLog {
+        private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long[] micros = new long[1024]; // 決策期間沒有 GC 的決策耗時
+        int count;
+        long pausedDecisions; // 期間發生 GC 的決策數
+        long pausedOverruns; // 其中超出預算的次數
+
+        long gcCount() {
+            long n = 0;
+            for (GarbageCollectorMXBean gc : collectors) {
+                n += Math.max(0, gc.getCollectionCount());
+            }
+            return n;
+        }
+
+        long gcMillis() {
+            long ms = 0;
+            for (GarbageCollectorMXBean gc : collectors) {
+                ms += Math.max(0, gc.getCollectionTime());
+            }
+            return ms;
+        }
+
+        void add(long decisionMicros, boolean paused, long budgetMicros) {
+            if (paused) {
+                pausedDecisions++;
+                if (decisionMicros > budgetMicros) {
+                    pausedOverruns++;
+                }
+                return;
+            }
+            if (count == micros.length) {
+                micros = Arrays.copyOf(micros, count * 2);
+            }
+            micros[count++] = decisionMicros;
+        }
+
+        // 沒有 GC 的決策耗時的第 p 百分位數
+        long percentile(double p) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(micros, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int)Math.ceil(p / 100.0 * count) - 1)];
+        }
+    }
+
+    // 無畫面批次測試：java AutoPlayer [場數] [每次決策預算(微秒)] [每場最多 tick 數] [暖機場數]
+    // 暖機場數先玩完不計（讓 JIT 編譯完）。決策耗時是牆上時間，包含 GC 與其他執行緒佔用 CPU 的時間，
+    // 所以不以單次超出判定：期間發生 GC 的決策另外列出，其餘決策的第 GATE_PERCENTILE 百分位數超出預算才算失敗
+    static final double GATE_PERCENTILE = 99.0;
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long budgetMicros = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_BUDGET_MICROS;
+        int maxTicks = args.length > 2 ? Integer.parseInt(args[2]) : 60 * 60 * 5;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        for (int g = 0; g < warmup; g++) {
+            play(-1 - g, new AutoPlayer(DEFAULT_HOP_INTERVAL, DEFAULT_DEPTH, budgetMicros), maxTicks, null);
+        }
+
+        DecisionLog log = new DecisionLog();
+        long gcCountStart = log.gcCount();
+        long gcMillisStart = log.gcMillis();
+        long totalScore = 0;
+        long decisions = 0;
+        long cutoffs = 0;
+        long overruns = 0;
+        long maxMicros = 0;
+        for (int g = 0; g < games; g++) {
+            AutoPlayer bot = new AutoPlayer(DEFAULT_HOP_INTERVAL, DEFAULT_DEPTH, budgetMicros);
+            GameWorld world = play(g, bot, maxTicks, log);
+            totalScore += world.score;
+            decisions += bot.decisions();
+            cutoffs += bot.searchCutoffs();
+            overruns += bot.budgetOverruns();
+            maxMicros = Math.max(maxMicros, bot.maxDecisionMicros());
+            System.out.printf("seed=%d score=%d ticks=%d death=%s decision avg=%.1fus max=%dus cutoffs=%d overruns=%d%n",
+                    g, world.score, world.tickCount,
+                    world.deathCause == GameWorld.DEATH_CAR ? "car"
+                            : world.deathCause == GameWorld.DEATH_LINE ? "line" : "none",
+                    bot.averageDecisionMicros(), bot.maxDecisionMicros(), bot.searchCutoffs(), bot.budgetOverruns());
+        }
+        long gate = log.percentile(GATE_PERCENTILE);
+        System.out.printf("平均分數 %.1f；%d 次決策，時間到提早結束搜尋 %d 次，最長 %dus，超出 %dus 預算 %d 次%n",
+                (double)totalScore / games, decisions, cutoffs, maxMicros, budgetMicros, overruns);
+        System.out.printf("GC %d 次共 %dms；期間發生 GC 的決策 %d 次，其中超出預算 %d 次（不計入判定）%n",
+                log.gcCount() - gcCountStart, log.gcMillis() - gcMillisStart, log.pausedDecisions, log.pausedOverruns);
+        System.out.printf("其餘 %d 次決策：p50 %dus，p%.0f %dus，預算 %dus%n",
+                log.count, log.percentile(50), GATE_PERCENTILE, gate, budgetMicros);
+        if (gate > budgetMicros) {
+            System.out.println("FAIL");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    // log 不為 null 時記錄每次決策
+    private static GameWorld play(long seed, AutoPlayer bot, int maxTicks, DecisionLog log) {
+        GameWorld world = new GameWorld(seed);
+        while (world.gameRunning && world.tickCount < maxTicks) {
+            long decisions = bot.decisions();
+            long gcBefore = log == null ? 0 : log.gcCount();
+            int move = bot.nextMove(world);
+            if (log != null && bot.decisions() != decisions) {
+                log.add(bot.lastDecisionMicros(), log.gcCount() != gcBefore, bot.budgetNanos / 1000);
+            }
+            if (move != NO_MOVE) {
+                world.movePlayer(move);
+            }
+            world.tick();
+        }
+        return world;
+    }
+}
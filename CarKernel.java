@@ -0,0 +1,143 @@
+// 車輛位置更新核心：以基本型別陣列存放一批車（位置 x 與帶正負號的速度 v），
+// 一次完成 x += v 並標記超出移除範圍 [minX, maxX] 的車
+//
+// 有兩種實作：逐一計算的版本，以及 VectorCarKernel 的 SIMD 版本（jdk.incubator.vector）
+// 兩者的浮點運算完全相同，結果逐位元一致；沒有編譯向量版本或執行環境沒有載入向量模組時自動改用逐一計算
+//
+// 向量版本放在 vector/ 目錄，預設建置（javac *.java）不包含它，不需要任何模組參數也不會有孵化模組的警告。
+// 需要時另外編譯到同一個類別路徑，並在執行時載入模組，例如：
+//   javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorCarKernel.java
+//   java --add-modules jdk.incubator.vector CarKernel
+public class CarKernel {
+
+    interface Advance {
+        // 推進 n 輛車，out[i] 表示第 i 輛車是否超出範圍；回傳超出範圍的車輛數
+        int advance(double[] x, double[] v, int n, double minX, double maxX, boolean[] out);
+
+        String name();
+    }
+
+    static class Scalar implements Advance {
+        @Override
+        public int advance(double[] x, double[] v, int n, double minX, double maxX, boolean[] out) {
+            int removed = 0;
+            for (int i = 0; i < n; i++) {
+                double nx = x[i] + v[i];
+                x[i] = nx;
+                boolean outside = nx < minX || nx > maxX;
+                out[i] = outside;
+                if (outside) {
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+
+    static final Advance SCALAR = new Scalar();
+
+    // 可用時回傳向量版本，否則回傳逐一計算版本
+    // 沒有編譯 VectorCarKernel 時找不到類別；編譯了但執行時沒有載入模組時在建立實例時連結失敗
+    static Advance best() {
+        try {
+            Class<?> c = Class.forName("VectorCarKernel");
+            return (Advance)c.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    // 從世界取出所有車輛的位置與帶正負號的速度
+    static int extract(GameWorld world, double[] x, double[] v) {
+        int n = world.cars.size();
+        for (int i = 0; i < n; i++) {
+            GameWorld.Car car = world.cars.get(i);
+            x[i] = car.x;
+            v[i] = car.movingRight ? car.speed : -car.speed;
+        }
+        return n;
+    }
+
+    // 基準測試：以 StressTest 的大世界取出車輛陣列，比較物件迴圈、逐一計算與向量版本
+    //   java --add-modules jdk.incubator.vector CarKernel [每條路車數] [重複次數]
+    public static void main(String[] args) {
+        int carsPerLane = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Advance vector = best();
+        if (vector == SCALAR) {
+            System.out.println("沒有編譯 vector/VectorCarKernel.java 或未載入 jdk.incubator.vector，只比較逐一計算版本");
+        }
+
+        // 預熱，讓兩個版本都先經過 JIT 編譯
+        double[] wx = new double[4096];
+        double[] wv = new double[4096];
+        boolean[] wo = new boolean[4096];
+        java.util.Arrays.fill(wv, 1);
+        for (int r = 0; r < 20000; r++) {
+            SCALAR.advance(wx, wv, wx.length, -1e9, 1e9, wo);
+            vector.advance(wx, wv, wx.length, -1e9, 1e9, wo);
+        }
+
+        StressTest stress = new StressTest();
+        stress.carsPerLane = carsPerLane;
+        System.out.println("道路數   車輛數    物件迴圈(ns/車)  scalar(ns/車)  " + vector.name() + "(ns/車)  結果");
+        for (int lanes = 100; lanes <= 10000; lanes *= 10) {
+            GameWorld.Difficulty d = stress.scenario(lanes);
+            GameWorld world = new GameWorld(lanes, d);
+            world.tick();
+            int n = world.cars.size();
+            double minX = -d.despawnMargin;
+            double maxX = GameWorld.WORLD_WIDTH + d.despawnMargin;
+
+            double[] x0 = new double[n];
+            double[] v = new double[n];
+            extract(world, x0, v);
+
+            // 物件迴圈：與 GameWorld.updateCars 相同的寫法，只是不移除
+            long objectNanos = Long.MAX_VALUE;
+            for (int r = 0; r < rounds; r++) {
+                long start = System.nanoTime();
+                int outside = 0;
+                for (int i = 0; i < n; i++) {
+                    GameWorld.Car car = world.cars.get(i);
+                    car.update();
+                    if (car.x < minX || car.x > maxX) {
+                        outside++;
+                    }
+                }
+                objectNanos = Math.min(objectNanos, System.nanoTime() - start);
+                if (outside < 0) {
+                    System.out.println();
+                }
+            }
+
+            double[] xs = x0.clone();
+            double[] xv = x0.clone();
+            boolean[] outScalar = new boolean[n];
+            boolean[] outVector = new boolean[n];
+            long scalarNanos = Long.MAX_VALUE;
+            long vectorNanos = Long.MAX_VALUE;
+            boolean same = true;
+            for (int r = 0; r < rounds; r++) {
+                long start = System.nanoTime();
+                int a = SCALAR.advance(xs, v, n, minX, maxX, outScalar);
+                scalarNanos = Math.min(scalarNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                int b = vector.advance(xv, v, n, minX, maxX, outVector);
+                vectorNanos = Math.min(vectorNanos, System.nanoTime() - start);
+
+                same &= a == b && java.util.Arrays.equals(xs, xv) && java.util.Arrays.equals(outScalar, outVector);
+            }
+
+            System.out.printf("%6d  %8d  %14.2f  %13.2f  %13.2f  %s%n", lanes, n,
+                    objectNanos / (double)n, scalarNanos / (double)n, vectorNanos / (double)n,
+                    same ? "一致" : "不一致！");
+        }
+    }
+}
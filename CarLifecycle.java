@@ -0,0 +1,99 @@
+// 車輛生命週期：所有車道共用同一個存活範圍，生成與移除都以它為準
+//
+// 車輛中心在 [minX, maxX] 之外就移除（GameWorld.updateCars）。原本生成位置比這個範圍寬很多，
+// 大部分車輛剛配置好、移動第一步就被移除，從來不會出現在畫面上
+// 現在生成前先確認：第一次移動後仍在範圍內才配置車輛，否則只計數；同時限制全世界同時存在的車輛數（Difficulty.carBudget）
+//
+// 被拒絕的位置仍照原本的方式抽亂數並暫時佔位（GameWorld.spawnCar），亂數序列與實際留下來的車輛都和原本相同
+public class CarLifecycle {
+    private final GameWorld world;
+
+    // 統計
+    long spawned; // 實際配置的車輛
+    long culledOnArrival; // 生成位置第一步就會被移除而不配置的車輛
+    long budgetRejected; // 超過車輛上限而不生成的車輛
+    long despawned; // 駛離範圍而移除的車輛
+    long orphaned; // 道路被清理時一併移除的車輛
+    long lifetimeTicks; // 已移除車輛的存活 tick 總和
+    double onScreenTicks; // 已移除車輛在畫面左右範圍內的 tick 總和
+    long neverOnScreen; // 從未進入畫面左右範圍就移除的車輛
+
+    CarLifecycle(GameWorld world) {
+        this.world = world;
+    }
+
+    // 車輛中心可存在的範圍
+    double minX() {
+        return -world.difficulty.despawnMargin;
+    }
+
+    double maxX() {
+        return GameWorld.WORLD_WIDTH + world.difficulty.despawnMargin;
+    }
+
+    boolean inRange(double x) {
+        return x >= minX() && x <= maxX();
+    }
+
+    // 在這條車道的 x 生成的車輛，與 Car.update() 相同的方式移動一步後是否就會被移除
+    boolean culledOnArrival(GameWorld.Road road, double x) {
+        double next = road.rightDirection ? x + road.carSpeed : x - road.carSpeed;
+        if (inRange(next)) {
+            return false;
+        }
+        culledOnArrival++;
+        return true;
+    }
+
+    // 是否還能再生成一輛車
+    boolean withinBudget() {
+        if (world.cars.size() < world.difficulty.carBudget) {
+            return true;
+        }
+        budgetRejected++;
+        return false;
+    }
+
+    // 車輛加入世界；car.x 是第 tick 個 tick 的位置
+    void spawned(GameWorld.Car car, long tick) {
+        car.spawnTick = tick;
+        car.spawnX = car.x;
+        spawned++;
+    }
+
+    // 車輛在第 tick 個 tick 移除，car.x 為最後的位置
+    void removed(GameWorld.Car car, long tick, boolean offRoad) {
+        if (offRoad) {
+            orphaned++;
+        } else {
+            despawned++;
+        }
+        lifetimeTicks += tick - car.spawnTick;
+
+        // 等速移動，畫面內的時間就是走過的路徑與畫面範圍重疊的長度除以速度
+        if (car.speed > 0) {
+            double lo = -GameWorld.Car.CAR_WIDTH / 2.0;
+            double hi = GameWorld.WORLD_WIDTH + GameWorld.Car.CAR_WIDTH / 2.0;
+            double overlap = Math.min(hi, Math.max(car.spawnX, car.x)) - Math.max(lo, Math.min(car.spawnX, car.x));
+            if (overlap > 0) {
+                onScreenTicks += overlap / car.speed;
+            } else {
+                neverOnScreen++;
+            }
+        }
+    }
+
+    long removedCount() {
+        return despawned + orphaned;
+    }
+
+    @Override
+    public String toString() {
+        long removed = removedCount();
+        return String.format("生成 %d，生成即移除(未配置) %d，超過上限 %d，駛離 %d，隨道路清除 %d，"
+                + "平均存活 %.1f tick、畫面內 %.1f tick，從未進入畫面 %d",
+                spawned, culledOnArrival, budgetRejected, despawned, orphaned,
+                removed == 0 ? 0.0 : (double)lifetimeTicks / removed,
+                removed == 0 ? 0.0 : onScreenTicks / removed, neverOnScreen);
+    }
+}
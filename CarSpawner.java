@@ -0,0 +1,31 @@
+// 車輛生成策略：道路的車速與生成節奏、新遊戲的初始車輛、新道路上的車輛，以及每一步補充的車輛
+// 實作只透過 GameWorld.spawnCar 加入車輛、只使用 world.random 抽亂數，同一個種子的遊戲仍然可以重現
+//
+// RejectionSpawner  目前遊戲使用的生成方式（預設）
+// UniformSpawner    CrossRoadGame(sound).java 的生成方式
+// 兩者的比較見 SpawnComparison
+public interface CarSpawner {
+    String name();
+
+    // 建立一條道路（新遊戲的道路與 generateNewRoads 都經過這裡）；方向已由世界抽好
+    GameWorld.Road createRoad(GameWorld world, int y, boolean rightDirection, int roadIndex, boolean isSafeZone);
+
+    // 新遊戲建立道路後，在每條可以有車的道路上放置初始車輛
+    void initializeCars(GameWorld world);
+
+    // 玩家前方要預先建立幾排道路
+    int rowsAhead(GameWorld world);
+
+    // 玩家前方保留幾排道路，更遠的道路在 cleanup 時清除（玩家後方依 Difficulty.rowsRetained）
+    int rowsRetainedAhead(GameWorld world);
+
+    // generateNewRoads 新增一條可以有車的道路（不是安全區）後呼叫
+    void populateNewRoad(GameWorld world, GameWorld.Road road);
+
+    // 這一步是否處理這條道路（推進生成計時器、可能生成新車）；generateNewCars 與平行推進計時器都以此判斷，
+    // 兩者推進的道路必須完全相同。只讀取世界狀態，可能同時在多個執行緒上呼叫
+    boolean updatesRoad(GameWorld world, GameWorld.Road road);
+
+    // 每一步呼叫一次；timersAdvanced 為 true 時 updatesRoad 成立的道路的生成計時器已經平行推進過
+    void generateNewCars(GameWorld world, boolean timersAdvanced);
+}
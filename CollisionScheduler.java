@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+// 事件驅動的碰撞排程：車輛等速移動，玩家在兩次跳躍之間不動，
+// 所以玩家那一排每輛車最早何時會碰到玩家可以直接算出來
+//
+// 玩家換位置、車輛生成時預測這輛車與玩家重疊的時間窗，放進依開始時間排序的優先佇列；
+// 時間到了才把車輛移到監看清單，只對監看中的車輛做精確的碰撞檢查，不必每個 tick 掃過所有車
+// 車輛在撞到之前就會離開移除範圍時不排程，因此移除車輛不需要另外通知
+// 玩家位置在每一步開頭比對，任何方式改變玩家位置（包括多人伺服器直接設定）都會重新預測
+//
+// 每一步的順序：prepare（玩家換位置就重新預測）→ 生成新車（schedule）→ beginStep → 移動車輛 → checkStep
+public class CollisionScheduler {
+    // 預測用的接觸距離：兩者中心距離小於此值才可能重疊（比實際碰撞框寬一點，吸收取整誤差）
+    private static final double REACH = GameWorld.Car.CAR_WIDTH / 2.0 + GameWorld.TILE_SIZE / 2.0 + 2;
+
+    // 一輛車可能碰到玩家的時間窗 [from, until]（tick）
+    static class Watch {
+        final GameWorld.Car car;
+        final long from;
+        final long until;
+
+        Watch(GameWorld.Car car, long from, long until) {
+            this.car = car;
+            this.from = from;
+            this.until = until;
+        }
+    }
+
+    private final GameWorld world;
+    private final PriorityQueue<Watch> pending = new PriorityQueue<>((a, b) -> Long.compare(a.from, b.from));
+    private final ArrayList<Watch> active = new ArrayList<>();
+    private long positionTick; // 車輛目前位置對應的 tick（這一步開始的 tick）
+    private double trackedX = Double.NaN; // 預測時玩家的位置，NaN 表示需要重新預測
+    private double trackedY = Double.NaN;
+
+    // 統計；檢查次數以「車輛 × tick」計算
+    long scheduled; // 排入佇列的時間窗數
+    long checksPerformed; // 實際做的精確檢查次數
+    long checksAvoided; // 相較每個 tick 檢查所有車輛省下的次數
+    long rebuilds; // 玩家移動後重新預測的次數
+
+    CollisionScheduler(GameWorld world) {
+        this.world = world;
+    }
+
+    // 世界重置：清空預測，下一步開頭重新預測
+    void clear() {
+        pending.clear();
+        active.clear();
+        trackedX = Double.NaN;
+        trackedY = Double.NaN;
+    }
+
+    // 一步開始：玩家換了位置時原本的預測全部作廢，重新預測玩家那一排的所有車輛
+    void prepare(long stepStart) {
+        positionTick = stepStart;
+        GameWorld.Player player = world.player;
+        if (player.x == trackedX && player.y == trackedY) {
+            return;
+        }
+        pending.clear();
+        active.clear();
+        trackedX = player.x;
+        trackedY = player.y;
+        rebuilds++;
+        for (GameWorld.Car car : world.cars) {
+            schedule(car);
+        }
+    }
+
+    // 預測一輛車與玩家的重疊時間窗；car.x 是第 positionTick 個 tick 的位置
+    void schedule(GameWorld.Car car) {
+        if (Double.isNaN(trackedX)) {
+            return; // 尚未預測過，下一步開頭會整批預測
+        }
+        GameWorld.Player player = world.player;
+        if (Math.abs(car.road.y - player.y) >= GameWorld.TILE_SIZE) {
+            return;
+        }
+        double v = car.movingRight ? car.speed : -car.speed;
+        if (v == 0) {
+            if (Math.abs(car.x - player.x) < REACH) {
+                push(new Watch(car, positionTick + 1, Long.MAX_VALUE));
+            }
+            return;
+        }
+
+        // 車輛中心進入與離開 [player.x - REACH, player.x + REACH] 的時間（相對於 positionTick）
+        double t1 = (player.x - REACH - car.x) / v;
+        double t2 = (player.x + REACH - car.x) / v;
+        double enter = Math.min(t1, t2);
+        double exit = Math.max(t1, t2);
+        if (exit < 0) {
+            return; // 已經遠離玩家
+        }
+
+        // 撞到之前就會離開移除範圍
+        double edge = v > 0 ? GameWorld.WORLD_WIDTH + world.difficulty.despawnMargin : -world.difficulty.despawnMargin;
+        double despawn = (edge - car.x) / v;
+        if (enter > despawn + 1) {
+            return;
+        }
+
+        long from = positionTick + Math.max(1, (long)Math.floor(enter) - 1);
+        long until = positionTick + (long)Math.ceil(exit) + 1;
+        push(new Watch(car, from, until));
+    }
+
+    private void push(Watch watch) {
+        pending.add(watch);
+        scheduled++;
+    }
+
+    // 車輛移動之前：把時間窗開始於這一步的車輛移到監看清單
+    void beginStep() {
+        long tick = positionTick + 1;
+        while (!pending.isEmpty() && pending.peek().from <= tick) {
+            active.add(pending.poll());
+        }
+    }
+
+    // 車輛移動之後：檢查監看中的車輛，回傳這一步是否有車撞到玩家
+    boolean checkStep(int carCount) {
+        long tick = positionTick + 1;
+        boolean hit = false;
+        long checked = 0;
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Watch w = active.get(i);
+            // 駛離移除範圍的車輛已在移動時移除
+            boolean alive = world.lifecycle.inRange(w.car.x);
+            if (alive) {
+                checked++;
+                if (world.hitsPlayer(w.car)) {
+                    hit = true;
+                }
+            }
+            // 時間窗已過或車輛已被移除
+            if (w.until <= tick || !alive) {
+                active.remove(i);
+            }
+        }
+        checksPerformed += checked;
+        checksAvoided += Math.max(0, carCount - checked);
+        return hit;
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    int activeCount() {
+        return active.size();
+    }
+}
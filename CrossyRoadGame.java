@@ -2,544 +2,435 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
-import java.util.ArrayList;
-import java.util.Random;
 import javax.sound.sampled.*;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 public class CrossyRoadGame extends JFrame implements KeyListener {
-    private static final int WINDOW_WIDTH = 800;
-    private static final int WINDOW_HEIGHT = 600;
-    private static final int TILE_SIZE = 40;
-    private static final int ROAD_WIDTH = WINDOW_WIDTH;
+    // 固定的內部解析度：畫面先畫在這個大小的離屏影像上，再一次縮放到視窗大小
+    // 繪圖成本與視窗大小、螢幕解析度無關
+    private static final int RENDER_WIDTH = FrameRenderer.RENDER_WIDTH;
+    private static final int RENDER_HEIGHT = FrameRenderer.RENDER_HEIGHT;
+    private static final int ROAD_WIDTH = RENDER_WIDTH;
     
     private GamePanel gamePanel;
     private Timer gameTimer;
-    private Player player;
-    private ArrayList<Car> cars;
-    private ArrayList<Road> roads;
-    private Random random;
-    private int score;
-    private boolean gameRunning;
-    
-    // 攝影機系統
-    private double cameraX; // 攝影機X位置
-    private double cameraY; // 攝影機Y位置
-    private double targetCameraX; // 目標攝影機X位置
-    private double targetCameraY; // 目標攝影機Y位置
-    private static final double CAMERA_FOLLOW_SPEED = 0.08; // 攝影機跟隨速度
-    private static final double CAMERA_DEADZONE_X = 100; // X軸死區範圍
-    private static final double CAMERA_DEADZONE_Y = 100; // Y軸死區範圍
-    
-    private boolean gameStarted; // 是否已離開安全區開始遊戲
-    private double deathLineWorldY; // 死亡線的世界Y位置
-    private static final double DEATH_LINE_SPEED = 0.8; // 死亡線移動速度
-    private static final int SAFE_ZONE_SIZE = 3; // 安全區域大小（底部幾排）
-    private static final boolean DEBUG_MODE = false; // 調試模式，顯示碰撞框
-    
-    // 隨機安全區相關
-    private static final double SAFE_ZONE_PROBABILITY = 0.15; // 15% 機率生成安全區
-    private static final int MIN_SAFE_ZONE_INTERVAL = 8; // 安全區最小間隔
-    private static final int MAX_SAFE_ZONE_INTERVAL = 15; // 安全區最大間隔
-    private int lastSafeZoneIndex = -100; // 上一個安全區的位置
-    
-    // 世界邊界
-    private static final int WORLD_LEFT_BOUNDARY = -WINDOW_WIDTH;
-    private static final int WORLD_RIGHT_BOUNDARY = WINDOW_WIDTH * 2;
+    private GameWorld world; // 遊戲模擬狀態（玩家、道路、車輛、死亡線、分數）
 
     private BackgroundMusic musicPlayer; // 儲存音樂播放器的實例
     
-    // 新增：玩家圖片相關變數
-    private Image playerImage;
-    private boolean playerImageLoaded = false;
+    // 回放錄製：以種子加上每個 tick 的輸入即可重現整場遊戲
+    static final String REPLAY_ARCHIVE_FILE = "replays.crra";
+    private ReplayArchive.Recorder replayRecorder = new ReplayArchive.Recorder();
+    
+    // 本機排行榜；開檔失敗時為 null，遊戲照常進行
+    private static final String LEADERBOARD_FILE = "leaderboard.crlb";
+    private Leaderboard leaderboard;
+    
+    // 逐 tick 遙測（平衡調整用）；開檔失敗時為 null
+    private static final String TELEMETRY_FILE = "telemetry.crtm";
+    private Telemetry telemetry;
+    
+    // 自動遊玩（按 B 切換）
+    private AutoPlayer autoPlayer = new AutoPlayer();
+    private boolean autoPlay = false;
+    
+    // 重新開始：下一場的世界在背景執行緒預先建立，按鍵時直接換上
+    private final ExecutorService worldBuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "world-builder");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<GameWorld> nextWorld;
+    // 回放封存檔在背景執行緒附加，遊戲結束時 EDT 不做檔案 I/O
+    private final ExecutorService replayWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "replay-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private String gameOverMessage; // 不為 null 時顯示遊戲結束畫面
+    private volatile String gameOverRankText = ""; // 由排行榜消費者填入
+    private volatile Clip gameOverClip; // 由音效消費者建立與播放，重新開始時在 EDT 上停止
+    private long restartRequestedNanos; // 最近一次按下重新開始的時間
+    private int restartSerial;
+    // 目前這一場的種子（由 runLock 保護）；事件的 seed 不同表示是之前的場次發佈的，消費者直接丟棄
+    // 換場與消費者的比對、生效都在同一把鎖下，過期事件不會在換場之後才停止音樂或寫入名次
+    private final Object runLock = new Object();
+    private long liveSeed;
+    
+    // 繪圖執行緒：模擬每個 tick 發佈快照，繪圖執行緒畫成影像交給面板
+    private final TripleBuffer<RenderSnapshot> snapshots =
+            new TripleBuffer<>(new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot());
+    private final TripleBuffer<BufferedImage> frames =
+            new TripleBuffer<>(createFrameImage(), createFrameImage(), createFrameImage());
+    private Thread renderThread;
+    
+    private FrameRenderer renderer; // 只由繪圖執行緒使用
+    
+    // 遊戲事件：模擬只發佈事件，音效、畫面提示、遙測統計與排行榜各自在自己的執行緒上處理
+    private final GameEventBus events = new GameEventBus(1024);
+    private volatile String banner; // 畫面上方的提示（新紀錄、安全區），由畫面提示消費者填入
+    private volatile long bannerUntilNanos;
+    
+    // 視窗最小化、沒有焦點、遊戲結束或在起點閒置時降低更新頻率
+    private final ActivityThrottle throttle = new ActivityThrottle();
+    
+    // 以下只由 EDT 使用
+    private int qualityLevel = -1; // 按 Q 依序固定在各等級／恢復自動（-1）
+    private boolean smoothScaling = true; // 縮放到視窗時用雙線性內插，否則取最近像素（按 F 切換）
+    private boolean diagnostics = false; // 顯示畫面品質、解析度與模擬時間（按 I 切換）
     
     public CrossyRoadGame() {
         setTitle("天天過馬路 - 隨機安全區版本");
-        setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setResizable(false);
-        setLocationRelativeTo(null);
-        
-        // 初始化遊戲物件
-        random = new Random();
-        cars = new ArrayList<>();
-        roads = new ArrayList<>();
+        setResizable(true);
+        
+        // 初始化遊戲物件（道路與車輛由 GameWorld 建立）
+        long gameSeed = System.nanoTime();
+        world = new GameWorld(gameSeed);
+        liveSeed = gameSeed;
+        replayRecorder.start(gameSeed);
+        prepareNextWorld();
+        openLeaderboard();
+        openTelemetry(gameSeed);
+        startEvents();
+        attachEvents(world);
+        closeOnShutdown();
 
         musicPlayer = new BackgroundMusic(); // 初始化
         musicPlayer.playMusic("breakbeat-generation-instrumental.wav"); // 播放原始音樂
         
         // 新增：載入玩家圖片
-        loadPlayerImage();
-        
-        // 玩家初始位置 - 世界座標系
-        player = new Player(WINDOW_WIDTH / 2, 0); // Y=0 是起始線
-        
-        // 攝影機初始位置 - 只跟隨Y軸
-        cameraY = player.y - WINDOW_HEIGHT * 0.7; // 玩家在螢幕下方30%的位置
-        targetCameraY = cameraY;
-        
-        score = 0;
-        gameRunning = true;
-        gameStarted = false;
-        deathLineWorldY = 200; // 死亡線從玩家下方開始
-        
-        // 創建道路
-        createRoads();
-        
-        // 初始化車輛
-        initializeCars();
+        renderer = new FrameRenderer(FrameRenderer.loadPlayerImage());
+        renderer.atlas = TextureAtlas.loadIfPresent(new File(TextureAtlas.DEFAULT_DIRECTORY)); // 由 TextureAtlas build 產生
         
         // 創建遊戲面板
         gamePanel = new GamePanel();
+        gamePanel.setPreferredSize(new Dimension(RENDER_WIDTH, RENDER_HEIGHT));
         add(gamePanel);
+        pack();
+        setLocationRelativeTo(null);
         
         // 添加鍵盤監聽
         addKeyListener(this);
         setFocusable(true);
         
+        // 視窗狀態決定更新頻率
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowIconified(WindowEvent e) {
+                throttle.setHidden(true);
+                applyThrottle();
+            }
+            
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                throttle.setHidden(false);
+                applyThrottle();
+            }
+            
+            @Override
+            public void windowActivated(WindowEvent e) {
+                throttle.setFocused(true);
+                applyThrottle();
+            }
+            
+            @Override
+            public void windowDeactivated(WindowEvent e) {
+                throttle.setFocused(false);
+                applyThrottle();
+            }
+        });
+        
+        // 繪圖執行緒
+        renderThread = new Thread(this::renderLoop, "render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+        
         // 創建遊戲計時器
-        gameTimer = new Timer(16, new ActionListener() { // 約60FPS
+        gameTimer = new Timer(ActivityThrottle.DELAY_MILLIS[ActivityThrottle.ACTIVE], new ActionListener() { // 約60FPS
             @Override
             public void actionPerformed(ActionEvent e) {
-                updateGame();
-                gamePanel.repaint();
+                long start = System.nanoTime();
+                // 降頻時一次推進多個 tick，每秒的 tick 數不變
+                int ticks = throttle.ticksPerFire();
+                for (int i = 0; i < ticks && world.gameRunning; i++) {
+                    updateGame();
+                    throttle.countTick();
+                }
+                publishSnapshot(System.nanoTime() - start);
+                applyThrottle();
             }
         });
         
         gameTimer.start();
     }
     
-    // 新增：載入玩家圖片的方法
-    private void loadPlayerImage() {
-        try {
-            // 方法1：從檔案載入圖片
-            File imageFile = new File("player.png"); // 你的圖片檔案名稱
-            if (imageFile.exists()) {
-                playerImage = ImageIO.read(imageFile);
-                playerImageLoaded = true;
-                System.out.println("玩家圖片載入成功：" + imageFile.getAbsolutePath());
-            } else {
-                System.out.println("圖片檔案不存在，嘗試從資源載入...");
-                
-                // 方法2：從資源載入圖片（適用於打包成JAR的情況）
-                java.io.InputStream imageStream = getClass().getResourceAsStream("/player.png");
-                if (imageStream != null) {
-                    playerImage = ImageIO.read(imageStream);
-                    playerImageLoaded = true;
-                    System.out.println("從資源載入玩家圖片成功");
-                } else {
-                    System.out.println("無法找到玩家圖片，將使用預設方塊顯示");
-                    playerImageLoaded = false;
-                }
-            }
-            
-            // 如果圖片載入成功，調整圖片大小
-            if (playerImageLoaded && playerImage != null) {
-                // 將圖片縮放到適合的大小（TILE_SIZE）
-                playerImage = playerImage.getScaledInstance(TILE_SIZE, TILE_SIZE, Image.SCALE_SMOOTH);
-            }
-            
-        } catch (IOException e) {
-            e.printStackTrace();
-            System.err.println("載入玩家圖片時發生錯誤，將使用預設方塊顯示");
-            playerImageLoaded = false;
+    private static BufferedImage createFrameImage() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(RENDER_WIDTH, RENDER_HEIGHT, BufferedImage.TYPE_INT_RGB);
         }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(RENDER_WIDTH, RENDER_HEIGHT);
     }
     
-    private void createRoads() {
-        // 創建更多道路用於無限世界
-        for (int i = -10; i < 50; i++) { // 從負數開始，確保有足夠的道路
-            int y = i * TILE_SIZE;
-            boolean isSafeZone = shouldCreateSafeZone(i);
-            roads.add(new Road(y, random.nextBoolean(), i, isSafeZone));
-        }
+    // 在 EDT 上把目前的世界與畫面資訊複製成快照發佈，喚醒繪圖執行緒
+    private void publishSnapshot(long simNanos) {
+        RenderSnapshot s = snapshots.back();
+        s.capture(world, RENDER_HEIGHT);
+        s.autoPlay = autoPlay;
+        s.decisionMicros = autoPlayer.lastDecisionMicros();
+        s.maxDecisionMicros = autoPlayer.maxDecisionMicros();
+        s.gameOverMessage = gameOverMessage;
+        s.gameOverRankText = gameOverRankText;
+        s.banner = System.nanoTime() < bannerUntilNanos ? banner : null;
+        s.restartSerial = restartSerial;
+        s.restartRequestedNanos = restartRequestedNanos;
+        s.qualityLevel = qualityLevel;
+        s.smoothScaling = smoothScaling;
+        s.windowWidth = gamePanel.getWidth();
+        s.windowHeight = gamePanel.getHeight();
+        s.simNanos = simNanos;
+        s.overwritten = snapshots.overwritten;
+        s.diagnostics = diagnostics;
+        s.activityState = throttle.state();
+        snapshots.publish();
+        throttle.countFrame();
+        LockSupport.unpark(renderThread);
     }
     
-    // 判斷是否應該創建安全區
-    private boolean shouldCreateSafeZone(int roadIndex) {
-        // 起始區域周圍不創建隨機安全區
-        if (roadIndex >= -SAFE_ZONE_SIZE && roadIndex <= SAFE_ZONE_SIZE) {
-            return false;
-        }
-        
-        // 檢查與上一個安全區的距離
-        int distanceFromLastSafeZone = Math.abs(roadIndex - lastSafeZoneIndex);
-        if (distanceFromLastSafeZone < MIN_SAFE_ZONE_INTERVAL) {
-            return false;
-        }
-        
-        // 如果距離足夠遠，有一定機率創建安全區
-        if (distanceFromLastSafeZone >= MAX_SAFE_ZONE_INTERVAL) {
-            // 強制創建安全區，避免過長時間沒有安全區
-            lastSafeZoneIndex = roadIndex;
-            return true;
+    // 重新判斷更新頻率，狀態改變時調整計時器；回到較快的狀態時立刻更新一次畫面
+    private void applyThrottle() {
+        if (!throttle.update(world.gameRunning, world.gameStarted)) {
+            return;
         }
-        
-        // 正常機率判斷
-        if (random.nextDouble() < SAFE_ZONE_PROBABILITY) {
-            lastSafeZoneIndex = roadIndex;
-            return true;
+        int delay = throttle.delayMillis();
+        if (delay == 0) {
+            gameTimer.stop();
+            return;
         }
-        
-        return false;
+        gameTimer.setDelay(delay);
+        gameTimer.setInitialDelay(delay);
+        gameTimer.restart();
+        publishSnapshot(0);
     }
     
-    private void initializeCars() {
-        // 在每條道路上隨機放置一些車輛，但跳過所有安全區域
-        for (Road road : roads) {
-            // 跳過所有安全區域（包括起始區和隨機安全區）
-            if (road.isSafeZone || (road.roadIndex >= -SAFE_ZONE_SIZE && road.roadIndex <= SAFE_ZONE_SIZE)) {
+    // 繪圖執行緒：有新快照就畫，沒有就停下來等 publishSnapshot 喚醒
+    private void renderLoop() {
+        while (true) {
+            RenderSnapshot s = snapshots.latest();
+            if (s == null) {
+                LockSupport.park(this);
                 continue;
             }
-    
-            // 為這條道路準備一個新的 ArrayList 來存放車輛，以便在生成時進行檢查
-            ArrayList<Car> carsOnThisRoad = new ArrayList<>();
-            int numCars = random.nextInt(5) + 4; // 每條路4-8輛車
-    
-            for (int i = 0; i < numCars; i++) {
-                Car car = new Car(road);
-                
-                // 嘗試隨機生成位置，直到不重疊
-                boolean placed = false;
-                int attempts = 0;
-                while (!placed && attempts < 50) { // 最多嘗試50次
-                    double potentialX;
-                    if (road.rightDirection) {
-                        // 從左邊界外開始，並考慮一些預留空間
-                        potentialX = -Car.CAR_WIDTH - random.nextDouble() * WINDOW_WIDTH * 1.5; 
-                    } else {
-                        // 從右邊界外開始，並考慮一些預留空間
-                        potentialX = WINDOW_WIDTH + Car.CAR_WIDTH + random.nextDouble() * WINDOW_WIDTH * 1.5;
-                    }
-                    
-                    // 檢查是否與已在此路上生成的車輛重疊
-                    boolean overlap = false;
-                    Rectangle potentialCarRect = new Rectangle(
-                        (int)(potentialX - Car.CAR_WIDTH/2 + 2),
-                        (int)(road.y - Car.CAR_HEIGHT/2 + 2),
-                        Car.CAR_WIDTH - 4,
-                        Car.CAR_HEIGHT - 4
-                    );
-    
-                    for (Car existingCar : carsOnThisRoad) {
-                        if (potentialCarRect.intersects(existingCar.getBounds())) {
-                            overlap = true;
-                            break;
-                        }
-                    }
-                    
-                    if (!overlap) {
-                        car.x = potentialX;
-                        carsOnThisRoad.add(car);
-                        placed = true;
-                    }
-                    attempts++;
-                }
-                if (placed) {
-                    cars.add(car); // 將生成的車輛添加到總列表中
-                }
-            }
+            BufferedImage image = frames.back();
+            Graphics2D g = image.createGraphics();
+            renderer.render(g, s);
+            g.dispose();
+            frames.publish();
+            gamePanel.repaint();
         }
     }
     
     private void updateGame() {
-        if (!gameRunning) return;
-        
-        // 檢查玩家是否離開安全區
-        if (!gameStarted && player.y < -SAFE_ZONE_SIZE * TILE_SIZE) {
-            gameStarted = true;
-        }
-        
-        // 更新攝影機目標位置 - 平滑跟隨玩家
-        updateCamera();
+        if (!world.gameRunning) return;
         
-        // 只有離開安全區後死亡線才開始移動
-        if (gameStarted) {
-            deathLineWorldY -= DEATH_LINE_SPEED; // 死亡線向上移動（Y座標減少）
-            
-            // 檢查玩家是否被死亡線追上
-            if (player.y >= deathLineWorldY) { // 玩家在死亡線下方就被追上
-                gameRunning = false;
-                JOptionPane.showMessageDialog(this, "被死亡線追上了！得分：" + score);
-                resetGame();
-                return;
+        // 自動遊玩：由機器人決定這個 tick 的移動
+        if (autoPlay) {
+            int move = autoPlayer.nextMove(world);
+            if (move != AutoPlayer.NO_MOVE) {
+                applyMove(move);
             }
         }
         
-        // 動態生成新道路
-        generateNewRoads();
-        
-        // 生成新車輛
-        generateNewCars();
-        
-        // 更新車輛位置
-        updateCars();
-        
-        // 清理舊道路和車輛
-        cleanup();
-        
-        // 檢查碰撞
-        checkCollisions();
-        
-        // 更新分數 - 玩家向上移動分數增加
-        score = Math.max(score, (int)(-player.y / TILE_SIZE));
+        boolean running = world.tick(); // 碰撞與死亡線事件在 tick 中發佈
+        if (telemetry != null) {
+            telemetry.sample(world);
+        }
+        if (!running) {
+            onGameOver(world.deathCause);
+        }
     }
     
-    private void updateCamera() {
-        // Y軸攝影機跟隨 - 保持玩家在螢幕下方
-        targetCameraY = player.y - WINDOW_HEIGHT * 0.7;
-        
-        // 平滑移動攝影機到目標位置（只有Y軸）
-        double cameraSpeedY = (targetCameraY - cameraY) * CAMERA_FOLLOW_SPEED;
-        cameraY += cameraSpeedY;
+    private void applyMove(int direction) {
+        world.movePlayer(direction);
+        replayRecorder.record(world.tickCount, direction);
+        if (telemetry != null) {
+            telemetry.hop(direction, world.tickCount);
+        }
     }
     
-    private void generateNewRoads() {
-        // 找到最高和最低的道路
-        int highestRoadIndex = roads.isEmpty() ? 0 : roads.get(0).roadIndex;
-        int lowestRoadIndex = roads.isEmpty() ? 0 : roads.get(0).roadIndex;
-        
-        for (Road road : roads) {
-            if (road.roadIndex > highestRoadIndex) {
-                highestRoadIndex = road.roadIndex;
+    // 音效、成績與名次由事件消費者處理，這裡只把回放交給背景執行緒並顯示結束畫面
+    private void onGameOver(int deathCause) {
+        // 錄好的回放整個交出去，下一場改用新的 Recorder
+        final ReplayArchive.Recorder finished = replayRecorder;
+        final int score = world.score;
+        final int durationTicks = (int)world.tickCount;
+        replayRecorder = new ReplayArchive.Recorder();
+        replayWriter.execute(() -> saveReplay(finished, score, durationTicks, deathCause));
+        
+        // 遊戲結束畫面直接畫在遊戲面板上（不再用會卡住 EDT 的對話框），按鍵即可重新開始
+        if (deathCause == GameWorld.DEATH_LINE) {
+            gameOverMessage = "被死亡線追上了！得分：" + world.score;
+        } else {
+            gameOverMessage = "撞到車輛！得分：" + world.score;
+        }
+    }
+    
+    private void startEvents() {
+        // 音效：撞車時停止背景音樂並播放結束音效（第一次播放時在這個執行緒上解碼，不佔用 runLock）
+        events.subscribe("audio", GameEventBus.mask(GameEventBus.COLLISION), e -> {
+            Clip clip = loadGameOverClip();
+            synchronized (runLock) {
+                if (e.seed != liveSeed) {
+                    return; // 已經重新開始
+                }
+                if (musicPlayer != null) {
+                    musicPlayer.stopMusic();
+                }
+                if (clip != null) {
+                    clip.stop();
+                    clip.setFramePosition(0);
+                    clip.start();
+                }
             }
-            if (road.roadIndex < lowestRoadIndex) {
-                lowestRoadIndex = road.roadIndex;
+        });
+        // 畫面提示：新紀錄與進入安全區時在畫面上方顯示 1.5 秒
+        events.subscribe("ui", GameEventBus.mask(GameEventBus.NEW_BEST, GameEventBus.SAFE_ZONE_ENTERED), e -> {
+            synchronized (runLock) {
+                if (e.seed != liveSeed) {
+                    return;
+                }
+                banner = e.type == GameEventBus.NEW_BEST ? "新紀錄！" + e.value : "安全區";
+                bannerUntilNanos = System.nanoTime() + 1_500_000_000L;
             }
-        }
-        
-        // 根據玩家位置生成新道路
-        int playerRoadIndex = (int)(player.y / TILE_SIZE);
-        
-        
-        // 向上生成道路（如果需要）
-        while (lowestRoadIndex > playerRoadIndex - 25) {
-            lowestRoadIndex--;
-            int y = lowestRoadIndex * TILE_SIZE;
-            boolean isSafeZone = shouldCreateSafeZone(lowestRoadIndex);
-            Road newRoad = new Road(y, random.nextBoolean(), lowestRoadIndex, isSafeZone);
-            roads.add(newRoad);
-            
-            // 只在非安全區域生成車輛
-            if (!newRoad.isSafeZone && !(newRoad.roadIndex >= -SAFE_ZONE_SIZE && newRoad.roadIndex <= SAFE_ZONE_SIZE)) {
-                int numCars = random.nextInt(3) + 2; // 新道路2-4輛車
-                for (int i = 0; i < numCars; i++) {
-                    Car car = new Car(newRoad);
-                    // 在道路可見範圍內隨機分布車輛
-                    if (newRoad.rightDirection) {
-                        car.x = random.nextInt(WINDOW_WIDTH * 2) - WINDOW_WIDTH;
-                    } else {
-                        car.x = random.nextInt(WINDOW_WIDTH * 2) - WINDOW_WIDTH / 2;
+        });
+        // 遙測：事件數計入 Telemetry，結束時隨遙測報告輸出每場平均
+        if (telemetry != null) {
+            final Telemetry t = telemetry;
+            events.subscribe("telemetry", GameEventBus.ALL, e -> t.event(e.type));
+        }
+        // 排行榜：記錄成績並算出名次，結束畫面下一次更新時顯示；已經重新開始時成績照樣記錄，只是不顯示名次
+        events.subscribe("leaderboard", GameEventBus.mask(GameEventBus.COLLISION, GameEventBus.DEATH_LINE), e -> {
+            if (leaderboard != null) {
+                leaderboard.submit(new Leaderboard.Run(e.seed, e.value, (int)e.tick, e.extra, System.currentTimeMillis()));
+                String text = rankText(e.seed, e.value);
+                synchronized (runLock) {
+                    if (e.seed == liveSeed) {
+                        gameOverRankText = text;
                     }
-                    cars.add(car);
                 }
             }
-        }
+        });
+        events.start();
     }
     
-    private void generateNewCars() {
-        // 找到遊戲中所有車輛，並按道路分組
-        java.util.Map<Road, ArrayList<Car>> carsByRoad = new java.util.HashMap<>();
-        for (Car car : cars) {
-            carsByRoad.computeIfAbsent(car.road, k -> new ArrayList<>()).add(car);
-        }
-
-        for (Road road : roads) {
-            // 安全區域和起始安全區域都不生成車輛
-            if (road.isSafeZone || (road.roadIndex >= -SAFE_ZONE_SIZE && road.roadIndex <= SAFE_ZONE_SIZE)) {
-                continue;
+    // 關閉視窗時依序收尾：先處理完匯流排上剩下的事件（排行榜消費者可能還在送出成績），
+    // 再等回放、排行榜與遙測的背景執行緒寫完剩下的資料
+    private void closeOnShutdown() {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            events.close();
+            System.out.println(events.report());
+            System.out.println(throttle.report());
+            replayWriter.shutdown();
+            try {
+                replayWriter.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-
-            // 檢查道路是否在攝影機附近或玩家前方（只在可見範圍附近生成）
-            // 這是為了避免在很遠的地方生成過多車輛，浪費資源
-            double roadScreenY = road.y - cameraY;
-            if (roadScreenY < -TILE_SIZE * 25 || roadScreenY > WINDOW_HEIGHT + TILE_SIZE * 25) {
-                continue; // 超出螢幕可見範圍太遠的道路不生成新車
+            if (leaderboard != null) {
+                leaderboard.close();
             }
-
-            road.update(); // 更新道路的生成計時器
-
-            ArrayList<Car> currentCarsOnRoad = carsByRoad.getOrDefault(road, new ArrayList<>());
-            int currentCarCount = currentCarsOnRoad.size();
-
-            // 判斷是否需要生成新車輛 (考慮數量上限和生成間隔)
-            if (road.shouldSpawnCar() && !road.hasTooManyCars(currentCarCount)) {
-                Car newCar = new Car(road);
-                
-                // 嘗試為新車輛找到一個不重疊的初始位置
-                boolean placed = false;
-                int attempts = 0;
-                // 嘗試在螢幕外生成，或者在靠近邊緣的地方
-                double spawnXMin, spawnXMax;
-                if (road.rightDirection) {
-                    spawnXMin = -WINDOW_WIDTH / 2.0; // 從螢幕左側外一點開始
-                    spawnXMax = -Car.CAR_WIDTH;       // 直到螢幕邊緣
+            if (telemetry != null) {
+                telemetry.close();
+                System.out.println(telemetry.report());
+            }
+        }, "shutdown"));
+    }
+    
+    // 新的世界發佈事件到匯流排，分數超過排行榜最高分時發佈新紀錄
+    private void attachEvents(GameWorld w) {
+        w.events = events;
+        if (leaderboard != null && leaderboard.runCount() > 0) {
+            w.bestScore = leaderboard.bestScore();
+        }
+    }
+    
+    // 遊戲結束音效只解碼一次，之後每次從頭播放；找不到或無法解碼時回傳 null
+    private Clip loadGameOverClip() {
+        try {
+            if (gameOverClip == null) {
+                File gameOverSoundFile = new File("pou-game-over-sound-effect.wav"); 
+                AudioInputStream audioStream;
+                if (gameOverSoundFile.exists()) {
+                    audioStream = AudioSystem.getAudioInputStream(gameOverSoundFile);
                 } else {
-                    spawnXMin = WINDOW_WIDTH + Car.CAR_WIDTH; // 從螢幕右側邊緣開始
-                    spawnXMax = WINDOW_WIDTH * 1.5;         // 直到螢幕右側外一點
-                }
-
-
-                while (!placed && attempts < 20) { // 最多嘗試20次
-                    double potentialX = spawnXMin + random.nextDouble() * (spawnXMax - spawnXMin);
-                    if (!road.rightDirection) { // 如果是向左行駛，則從右邊生成
-                        potentialX = spawnXMax - random.nextDouble() * (spawnXMax - spawnXMin);
-                    }
-
-                    Rectangle potentialCarRect = new Rectangle(
-                        (int)(potentialX - Car.CAR_WIDTH/2),
-                        (int)(road.y - Car.CAR_HEIGHT/2),
-                        Car.CAR_WIDTH,
-                        Car.CAR_HEIGHT
-                    );
-
-                    boolean overlap = false;
-                    for (Car existingCar : currentCarsOnRoad) {
-                        // 檢查與當前道路上所有車輛的重疊
-                        if (potentialCarRect.intersects(existingCar.getBounds())) {
-                            overlap = true;
-                            break;
-                        }
-                    }
-
-                    if (!overlap) {
-                        newCar.x = potentialX;
-                        cars.add(newCar);
-                        currentCarsOnRoad.add(newCar); // 添加到這條路的車輛列表中
-                        placed = true;
+                    // 如果檔案不存在，嘗試從資源載入 (打包 JAR 時常用)
+                    java.io.InputStream resourceStream = getClass().getResourceAsStream("/resources/pou-game-over-sound-effect.wav");
+                    if (resourceStream == null) {
+                        System.err.println("錯誤: 無法找到遊戲結束音效檔。");
+                        return null;
                     }
-                    attempts++;
+                    audioStream = AudioSystem.getAudioInputStream(new BufferedInputStream(resourceStream));
+                    System.out.println("偵測到遊戲結束音效資源存在");
                 }
+                Clip clip = AudioSystem.getClip();
+                clip.open(audioStream);
+                gameOverClip = clip;
             }
+            return gameOverClip;
+        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException ex) {
+            ex.printStackTrace();
+            System.err.println("無法播放遊戲結束音效。");
+            return null;
         }
     }
     
-    private void updateCars() {
-        for (int i = cars.size() - 1; i >= 0; i--) {
-            Car car = cars.get(i);
-            car.update();
-            
-            // 移除太遠的車輛
-            if (car.x < -Car.CAR_WIDTH * 2 || car.x > WINDOW_WIDTH + Car.CAR_WIDTH * 2) {
-                cars.remove(i);
-            }
+    // 將一場回放附加到封存檔（在 replayWriter 執行緒上）
+    private static void saveReplay(ReplayArchive.Recorder recorder, int score, int durationTicks, int deathCause) {
+        try {
+            ReplayArchive.append(new File(REPLAY_ARCHIVE_FILE), recorder, score, durationTicks, deathCause);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("無法儲存回放：" + REPLAY_ARCHIVE_FILE);
         }
     }
     
-    private void cleanup() {
-        // 清理太遠的道路，但保留更多玩家前方的道路
-        int playerRoadIndex = (int)(player.y / TILE_SIZE);
-        roads.removeIf(road -> road.roadIndex > playerRoadIndex + 40 || road.roadIndex < playerRoadIndex - 40);
+    private void openLeaderboard() {
+        try {
+            leaderboard = Leaderboard.open(new File(LEADERBOARD_FILE));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("無法開啟排行榜：" + LEADERBOARD_FILE);
+            leaderboard = null;
+        }
     }
     
-    private void checkCollisions() {
-        // 檢查玩家是否在安全區域
-        boolean playerInSafeZone = false;
-        int playerRoadIndex = (int)(player.y / TILE_SIZE);
-        
-        // 檢查起始安全區
-        if (playerRoadIndex >= -SAFE_ZONE_SIZE && playerRoadIndex <= SAFE_ZONE_SIZE) {
-            playerInSafeZone = true;
-        }
-        
-        // 檢查隨機安全區
-        for (Road road : roads) {
-            if (road.isSafeZone && Math.abs(road.y - player.y) < TILE_SIZE / 2) {
-                playerInSafeZone = true;
-                break;
-            }
-        }
-        
-        // 如果玩家在安全區域，不進行碰撞檢測
-        if (playerInSafeZone) {
-            return;
-        }
-        
-        // 玩家碰撞框
-        Rectangle playerRect = new Rectangle(
-            (int)(player.x - TILE_SIZE/2 + 2), 
-            (int)(player.y - TILE_SIZE/2 + 2), 
-            TILE_SIZE - 4, 
-            TILE_SIZE - 4
-        );
-        
-        for (Car car : cars) {
-            // 檢查車輛是否與玩家在同一行且距離較近
-            if (Math.abs(car.road.y - player.y) < TILE_SIZE && 
-                Math.abs(car.x - player.x) < Car.CAR_WIDTH + TILE_SIZE) {
-                
-                Rectangle carRect = car.getBounds();
-                
-                if (playerRect.intersects(carRect)) {
-                    // 碰撞發生！
-                    gameRunning = false; // 設定遊戲結束狀態
-                    
-                    //立即停止當前背景音樂
-                    if (musicPlayer != null) {
-                        musicPlayer.stopMusic();
-                    }
-                    
-                    // 立即嘗試播放遊戲結束音效
-                    try {
-                        File gameOverSoundFile = new File("pou-game-over-sound-effect.wav"); 
-                        
-                        AudioInputStream audioStream;
-                        Clip gameOverClip = null; 
-
-                        if (gameOverSoundFile.exists()) {
-                            audioStream = AudioSystem.getAudioInputStream(gameOverSoundFile);
-                        } else {
-                            // 如果檔案不存在，嘗試從資源載入 (打包 JAR 時常用)
-                            java.io.InputStream resourceStream = getClass().getResourceAsStream("/resources/pou-game-over-sound-effect.wav");
-                            if (resourceStream != null) {
-                                audioStream = AudioSystem.getAudioInputStream(new BufferedInputStream(resourceStream));
-                                System.out.println("偵測到遊戲結束音效資源存在");
-                            } else {
-                                System.err.println("錯誤: 無法找到遊戲結束音效檔。");
-                                // 如果找不到音效，直接跳過音效播放，並顯示消息框、重置遊戲
-                                SwingUtilities.invokeLater(() -> {
-                                    JOptionPane.showMessageDialog(this, "撞到車輛！得分：" + score);
-                                    resetGame();
-                                });
-                                return;
-                            }
-                        }
-
-                        gameOverClip = AudioSystem.getClip();
-                        gameOverClip.open(audioStream);
-
-                        // 關鍵：為 gameOverClip 添加監聽器，確保在音效播放結束後才執行後續邏輯
-                        final Clip finalGameOverClip = gameOverClip;
-                        gameOverClip.addLineListener(event -> {
-                            if (event.getType() == LineEvent.Type.STOP) {
-                                finalGameOverClip.close();
-                                
-                                SwingUtilities.invokeLater(() -> {
-                                    JOptionPane.showMessageDialog(this, "撞到車輛！得分：" + score);
-                                    resetGame();
-                                });
-                            }
-                        });
-
-                        gameOverClip.start();
-
-                    } catch (UnsupportedAudioFileException | IOException | LineUnavailableException ex) {
-                        ex.printStackTrace();
-                        System.err.println("無法播放遊戲結束音效。");
-                        SwingUtilities.invokeLater(() -> {
-                            JOptionPane.showMessageDialog(this, "撞到車輛！得分：" + score);
-                            resetGame();
-                        });
-                    }
-                    return; 
-                }
-            }
+    private void openTelemetry(long gameSeed) {
+        try {
+            telemetry = Telemetry.open(new File(TELEMETRY_FILE));
+            telemetry.beginRun(gameSeed);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("無法開啟遙測檔：" + TELEMETRY_FILE);
+            telemetry = null;
         }
     }
     
+    // 結束訊息中的名次與最高分
+    private String rankText(long seed, int score) {
+        return "排名：第 " + leaderboard.rank(score) + " 名（共 " + leaderboard.runCount() + " 場）"
+                + "　最高分：" + leaderboard.bestScore()
+                + "　本關卡最佳：" + leaderboard.bestForSeed(seed);
+    }
+    
     class BackgroundMusic {
         private Clip clip;
 
@@ -568,73 +459,121 @@ public class CrossyRoadGame extends JFrame implements KeyListener {
             }
         }
 
+        // 只停止不關閉，重新開始時不必再解碼一次
         public void stopMusic() {
             if (clip != null && clip.isRunning()) {
                 clip.stop();
-                clip.close();
+            }
+        }
+        
+        public void restartMusic(String filepath) {
+            if (clip != null && clip.isOpen()) {
+                clip.stop();
+                clip.setFramePosition(0);
+                clip.loop(Clip.LOOP_CONTINUOUSLY);
+                clip.start();
+            } else {
+                playMusic(filepath);
             }
         }
     }
     
-    private void resetGame() {
-        player = new Player(WINDOW_WIDTH / 2, 0);
-        
-        // 重置攝影機（只有Y軸）
-        cameraY = player.y - WINDOW_HEIGHT * 0.7;
-        targetCameraY = cameraY;
-        
-        cars.clear();
-        roads.clear();
-        score = 0;
-        gameStarted = false;
-        deathLineWorldY = 200;
-        gameRunning = true;
-        lastSafeZoneIndex = -100; // 重置安全區記錄
-        createRoads();
-        initializeCars();
-        
-        if (musicPlayer != null) {
-            musicPlayer.playMusic("breakbeat-generation-instrumental.wav");
-        } else {
-            musicPlayer = new BackgroundMusic();
-            musicPlayer.playMusic("breakbeat-generation-instrumental.wav");
+    private void prepareNextWorld() {
+        final long gameSeed = System.nanoTime();
+        nextWorld = worldBuilder.submit(() -> new GameWorld(gameSeed));
+    }
+    
+    // 換上預先建立好的世界；world 只在 EDT 上讀寫（計時器也在 EDT，繪圖執行緒只讀快照），因此替換是原子的
+    private void restartGame() {
+        restartRequestedNanos = System.nanoTime();
+        restartSerial++;
+        GameWorld next;
+        try {
+            next = nextWorld.get(); // 通常早已建好，不會等待
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            System.err.println("預先建立世界失敗，改為直接建立");
+            next = new GameWorld(System.nanoTime());
+        }
+        world = next;
+        attachEvents(next);
+        replayRecorder.start(next.seed);
+        if (telemetry != null) {
+            telemetry.beginRun(next.seed);
+        }
+        gameOverMessage = null;
+        prepareNextWorld();
+        
+        // 之後收到的上一場事件都會被消費者丟棄
+        synchronized (runLock) {
+            liveSeed = next.seed;
+            gameOverRankText = "";
+            banner = null;
+            Clip clip = gameOverClip;
+            if (clip != null) {
+                clip.stop();
+            }
+            if (musicPlayer == null) {
+                musicPlayer = new BackgroundMusic();
+            }
+            musicPlayer.restartMusic("breakbeat-generation-instrumental.wav");
         }
+        publishSnapshot(0);
     }
     
     private boolean[] keysPressed = new boolean[256];
     
     @Override
     public void keyPressed(KeyEvent e) {
-        if (!gameRunning) return;
-        
         int key = e.getKeyCode();
+        if (key >= keysPressed.length) return;
         
         // 防止按鍵重複觸發
         if (keysPressed[key]) return;
         keysPressed[key] = true;
+        throttle.onInput();
+        
+        if (!world.gameRunning) {
+            if (gameOverMessage != null
+                    && (key == KeyEvent.VK_ENTER || key == KeyEvent.VK_SPACE || key == KeyEvent.VK_R)) {
+                restartGame();
+            }
+            applyThrottle();
+            return;
+        }
         
         switch (key) {
             case KeyEvent.VK_UP:
             case KeyEvent.VK_W:
-                player.y -= TILE_SIZE; // 向上移動（Y座標減少）
+                applyMove(GameWorld.MOVE_UP); // 向上移動（Y座標減少）
                 break;
             case KeyEvent.VK_DOWN:
             case KeyEvent.VK_S:
-                player.y += TILE_SIZE; // 向下移動（Y座標增加）
+                applyMove(GameWorld.MOVE_DOWN); // 向下移動（Y座標增加）
                 break;
             case KeyEvent.VK_LEFT:
             case KeyEvent.VK_A:
-                if (player.x > WORLD_LEFT_BOUNDARY) {
-                    player.x -= TILE_SIZE;
-                }
+                applyMove(GameWorld.MOVE_LEFT);
                 break;
             case KeyEvent.VK_RIGHT:
             case KeyEvent.VK_D:
-                if (player.x < WORLD_RIGHT_BOUNDARY) {
-                    player.x += TILE_SIZE;
-                }
+                applyMove(GameWorld.MOVE_RIGHT);
+                break;
+            case KeyEvent.VK_B:
+                autoPlay = !autoPlay; // 切換自動遊玩
+                break;
+            case KeyEvent.VK_F:
+                smoothScaling = !smoothScaling;
+                break;
+            case KeyEvent.VK_I:
+                diagnostics = !diagnostics;
+                break;
+            case KeyEvent.VK_Q:
+                // 自動 -> 0 -> 1 -> 2 -> 3 -> 自動
+                qualityLevel = qualityLevel + 1 > RenderQuality.MINIMAL ? -1 : qualityLevel + 1;
                 break;
         }
+        applyThrottle();
     }
     
     @Override
@@ -649,384 +588,32 @@ public class CrossyRoadGame extends JFrame implements KeyListener {
     public void keyTyped(KeyEvent e) {}
     
     // 內部類別：遊戲面板
+    // 繪圖不在 EDT 上：模擬（EDT 上的計時器）每個 tick 發佈一份 RenderSnapshot，
+    // 繪圖執行緒把最新的快照畫成固定內部解析度的影像，再透過另一個三重緩衝交給面板，
+    // 面板在 EDT 上只負責把最新畫好的影像縮放到視窗
     class GamePanel extends JPanel {
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
-            
-            // 背景
-            g.setColor(Color.GREEN);
-            g.fillRect(0, 0, WINDOW_WIDTH, WINDOW_HEIGHT);
-            
-            // 繪製道路（根據攝影機位置調整）
-            for (Road road : roads) {
-                int drawY = (int)(road.y - cameraY);
-                
-                // 只繪製可見的道路
-                if (drawY > -TILE_SIZE && drawY < WINDOW_HEIGHT + TILE_SIZE) {
-                    // 根據道路類型選擇顏色
-                    if (road.isSafeZone) {
-                        // 安全區域用綠色標示
-                        g.setColor(new Color(34, 139, 34)); // 森林綠
-                    } else if (road.roadIndex >= -SAFE_ZONE_SIZE && road.roadIndex <= SAFE_ZONE_SIZE) {
-                        // 起始安全區域用淺灰色標示
-                        g.setColor(Color.LIGHT_GRAY);
-                    } else {
-                        // 普通道路用灰色
-                        g.setColor(Color.GRAY);
-                    }
-                    g.fillRect(0, drawY, WINDOW_WIDTH, TILE_SIZE);
-                    
-                    // 道路邊界線
-                    g.setColor(Color.WHITE);
-                    g.drawLine(0, drawY, WINDOW_WIDTH, drawY);
-                    g.drawLine(0, drawY + TILE_SIZE - 1, WINDOW_WIDTH, drawY + TILE_SIZE - 1);
-                    
-                    // 安全區域不畫中線，而是畫安全標誌
-                    if (road.isSafeZone) {
-                        // 繪製安全標誌 - 綠色十字
-                        g.setColor(Color.WHITE);
-                        int centerY = drawY + TILE_SIZE / 2;
-                        for (int x = TILE_SIZE; x < WINDOW_WIDTH; x += TILE_SIZE * 2) {
-                            // 十字標誌
-                            g.fillRect(x - 8, centerY - 2, 16, 4);
-                            g.fillRect(x - 2, centerY - 8, 4, 16);
-                        }
-                        
-                        // 安全區文字提示
-                        g.setColor(Color.WHITE);
-                        g.setFont(new Font("Arial", Font.BOLD, 14));
-                        g.drawString("安全區", 5, drawY + TILE_SIZE / 2 + 5);
-                    } else if (!(road.roadIndex >= -SAFE_ZONE_SIZE && road.roadIndex <= SAFE_ZONE_SIZE)) {
-                        // 普通道路的中線
-                        g.setColor(Color.YELLOW);
-                        for (int x = 0; x < WINDOW_WIDTH; x += TILE_SIZE) {
-                            g.fillRect(x, drawY + TILE_SIZE / 2 - 2, TILE_SIZE / 2, 4);
-                        }
-                    }
-                    
-                    // 顯示道路編號（調試用）
-                    if (DEBUG_MODE) {
-                        g.setColor(Color.BLACK);
-                        g.setFont(new Font("Arial", Font.BOLD, 12));
-                        String roadInfo = "路" + road.roadIndex;
-                        if (road.isSafeZone) roadInfo += "(安全)";
-                        g.drawString(roadInfo, 5, drawY + TILE_SIZE / 2 + 5);
-                    }
-                }
-            }
-            
-            // 繪製起始線
-            int startLineY = (int)(0 - cameraY);
-            if (startLineY > -10 && startLineY < WINDOW_HEIGHT + 10) {
-                g.setColor(Color.BLUE);
-                g.fillRect(0, startLineY - 2, WINDOW_WIDTH, 4);
-                g.setColor(Color.WHITE);
-                g.setFont(new Font("Arial", Font.BOLD, 16));
-                g.drawString("起始線", 10, startLineY - 5);
-            }
-            
-            // 繪製車輛（根據攝影機位置調整）- 長方形車輛
-            g.setColor(Color.RED);
-            for (Car car : cars) {
-                int drawX = (int)(car.x - Car.CAR_WIDTH/2);
-                int drawY = (int)(car.y - cameraY - Car.CAR_HEIGHT/2);
-                
-                // 只繪製可見的車輛
-                if (drawX > -Car.CAR_WIDTH && drawX < WINDOW_WIDTH + Car.CAR_WIDTH &&
-                    drawY > -Car.CAR_HEIGHT && drawY < WINDOW_HEIGHT + Car.CAR_HEIGHT) {
-                    
-                    // 繪製車身
-                    g.setColor(Color.RED);
-                    g.fillRect(drawX, drawY, Car.CAR_WIDTH, Car.CAR_HEIGHT);
-                    
-                    // 繪製車輛邊框
-                    g.setColor(Color.DARK_GRAY);
-                    g.drawRect(drawX, drawY, Car.CAR_WIDTH, Car.CAR_HEIGHT);
-                    
-                    // 繪製車窗
-                    g.setColor(Color.CYAN);
-                    int windowX = drawX + Car.CAR_WIDTH / 6;
-                    int windowY = drawY + Car.CAR_HEIGHT / 4;
-                    int windowWidth = Car.CAR_WIDTH * 2 / 3;
-                    int windowHeight = Car.CAR_HEIGHT / 2;
-                    g.fillRect(windowX, windowY, windowWidth, windowHeight);
-                    
-                    // 根據移動方向繪製車頭燈
-                    g.setColor(Color.YELLOW);
-                    if (car.movingRight) {
-                        // 右行車輛，車頭燈在右側
-                        g.fillOval(drawX + Car.CAR_WIDTH - 8, drawY + 4, 6, 6);
-                        g.fillOval(drawX + Car.CAR_WIDTH - 8, drawY + Car.CAR_HEIGHT - 10, 6, 6);
-                    } else {
-                        // 左行車輛，車頭燈在左側
-                        g.fillOval(drawX + 2, drawY + 4, 6, 6);
-                        g.fillOval(drawX + 2, drawY + Car.CAR_HEIGHT - 10, 6, 6);
-                    }
-                }
-            }
-            
-            // 繪製死亡線
-            if (gameStarted) {
-                int deathLineY = (int)(deathLineWorldY - cameraY);
-                if (deathLineY >= -10 && deathLineY <= WINDOW_HEIGHT + 10) {
-                    g.setColor(Color.RED);
-                    g.fillRect(0, deathLineY - 5, WINDOW_WIDTH, 10);
-                    g.setColor(Color.DARK_GRAY);
-                    g.drawRect(0, deathLineY - 5, WINDOW_WIDTH - 1, 9);
-                    g.setColor(Color.WHITE);
-                    g.setFont(new Font("Arial", Font.BOLD, 16));
-                    g.drawString("死亡線", 10, deathLineY + 5);
-                }
-            }
-            
-            // 繪製玩家（修改部分 - 支援圖片顯示）
-            int playerDrawX = (int)(player.x - TILE_SIZE/2);
-            int playerDrawY = (int)(player.y - cameraY - TILE_SIZE/2);
-            
-            // 檢查玩家是否在安全區域，改變顏色
-            boolean playerInSafeZone = false;
-            int playerRoadIndex = (int)(player.y / TILE_SIZE);
-            
-            // 檢查起始安全區
-            if (playerRoadIndex >= -SAFE_ZONE_SIZE && playerRoadIndex <= SAFE_ZONE_SIZE) {
-                playerInSafeZone = true;
-            }
-            
-            // 檢查隨機安全區
-            for (Road road : roads) {
-                if (road.isSafeZone && Math.abs(road.y - player.y) < TILE_SIZE / 2) {
-                    playerInSafeZone = true;
-                    break;
-                }
-            }
-            
-            // 關鍵修改：繪製玩家圖片或預設方塊
-            if (playerImageLoaded && playerImage != null) {
-                // 使用圖片繪製玩家
-                Graphics2D g2d = (Graphics2D) g;
-                
-                // 如果在安全區域，添加特殊效果
-                if (playerInSafeZone) {
-                    // 方法1：添加發光效果
-                    g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
-                    g2d.setColor(Color.CYAN);
-                    g2d.fillOval(playerDrawX - 5, playerDrawY - 5, TILE_SIZE + 10, TILE_SIZE + 10);
-                    g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
-                    
-                    // 方法2：添加邊框
-                    g2d.setColor(Color.CYAN);
-                    g2d.setStroke(new BasicStroke(3));
-                    g2d.drawRect(playerDrawX - 2, playerDrawY - 2, TILE_SIZE + 4, TILE_SIZE + 4);
-                }
-                
-                // 繪製玩家圖片
-                g2d.drawImage(playerImage, playerDrawX, playerDrawY, TILE_SIZE, TILE_SIZE, null);
-                
-            } else {
-                // 圖片載入失敗時，使用原來的方塊繪製
-                if (playerInSafeZone) {
-                    g.setColor(Color.CYAN); // 在安全區域時用青色
-                } else {
-                    g.setColor(Color.BLUE); // 普通狀態用藍色
-                }
-                g.fillRect(playerDrawX, playerDrawY, TILE_SIZE, TILE_SIZE);
-                g.setColor(Color.BLACK);
-                g.drawRect(playerDrawX, playerDrawY, TILE_SIZE, TILE_SIZE);
-            }
-            
-            // 調試模式：顯示碰撞框和格線
-            if (DEBUG_MODE) {
-                // 玩家碰撞框
-                g.setColor(Color.MAGENTA);
-                g.drawRect(playerDrawX + 2, playerDrawY + 2, TILE_SIZE - 4, TILE_SIZE - 4);
-                
-                // 顯示格線
-                g.setColor(new Color(0, 255, 255, 100));
-                int gridOffsetY = (int)(cameraY % TILE_SIZE);
-                
-                // 垂直線
-                for (int x = 0; x < WINDOW_WIDTH; x += TILE_SIZE) {
-                    g.drawLine(x, 0, x, WINDOW_HEIGHT);
-                }
-                
-                // 水平線
-                for (int y = -gridOffsetY; y < WINDOW_HEIGHT; y += TILE_SIZE) {
-                    g.drawLine(0, y, WINDOW_WIDTH, y);
-                }
-                
-                // 攝影機資訊
-                g.setColor(Color.BLACK);
-                g.setFont(new Font("Arial", Font.BOLD, 12));
-                g.drawString("攝影機Y: " + (int)cameraY, 10, WINDOW_HEIGHT - 60);
-                g.drawString("玩家世界座標: (" + (int)player.x + ", " + (int)player.y + ")", 10, WINDOW_HEIGHT - 40);
-                g.drawString("玩家螢幕座標: (" + playerDrawX + ", " + playerDrawY + ")", 10, WINDOW_HEIGHT - 20);
+            BufferedImage frame = frames.latest();
+            if (frame == null) {
+                frame = frames.current();
             }
             
-            // 繪製分數和狀態
+            // 等比例縮放到視窗大小，多出來的部分留黑邊
+            int width = getWidth();
+            int height = getHeight();
+            double scale = Math.min((double)width / RENDER_WIDTH, (double)height / RENDER_HEIGHT);
+            int drawWidth = (int)Math.round(RENDER_WIDTH * scale);
+            int drawHeight = (int)Math.round(RENDER_HEIGHT * scale);
+            int drawX = (width - drawWidth) / 2;
+            int drawY = (height - drawHeight) / 2;
             g.setColor(Color.BLACK);
-            g.setFont(new Font("Arial", Font.BOLD, 20));
-            g.drawString("score: " + score, 10, 30);
-            
-            // 顯示安全區狀態
-            //if (playerInSafeZone) {
-                //g.setColor(Color.GREEN);
-                //g.setFont(new Font("Arial", Font.BOLD, 18));
-                //g.drawString("安全區域！", 10, 55);
-            //}
-            
-            // 顯示死亡線距離警告
-            if (gameStarted) {
-                double distanceToDeathLine = deathLineWorldY - player.y;
-                g.setColor(Color.BLACK);
-                g.setFont(new Font("Arial", Font.BOLD, 20));
-                g.drawString("Deadline distance: " + String.format("%.1f", distanceToDeathLine / TILE_SIZE), 10, 80);
-                
-                if (distanceToDeathLine < TILE_SIZE * 5) {
-                    g.setColor(Color.RED);
-                    g.setFont(new Font("Arial", Font.BOLD, 24));
-                    g.drawString("Deadline coming!Forward!", WINDOW_WIDTH / 2 - 120, 50);
-                }
-            }
-            
-            // 顯示控制說明
-            g.setColor(Color.BLACK);
-            g.setFont(new Font("Arial", Font.PLAIN, 14));
-            g.drawString("WASD or ArrowKeys", WINDOW_WIDTH - 180, WINDOW_HEIGHT - 40);
-            g.drawString("GreenArea = SafeArea", WINDOW_WIDTH - 180, WINDOW_HEIGHT - 20);
-            
-            // 顯示安全區域提示
-            if (!gameStarted) {
-                g.setColor(Color.BLUE);
-                g.setFont(new Font("Arial", Font.BOLD, 18));
-                g.drawString("SafeArea - Forward to Start!", 10, WINDOW_HEIGHT - 60);
-                g.setColor(Color.GREEN);
-                g.setFont(new Font("Arial", Font.BOLD, 16));
-                g.drawString("There will be SafeArea in Game!", 10, WINDOW_HEIGHT - 40);
-            }
-            
-            if (!gameRunning) {
-                g.setColor(Color.BLACK);
-                g.setFont(new Font("Arial", Font.BOLD, 40));
-                g.drawString("Game Over", WINDOW_WIDTH / 2 - 80, WINDOW_HEIGHT / 2);
-            }
-        }
-    }
-    
-    // 內部類別：玩家
-    class Player {
-        double x, y;
-        
-        public Player(double x, double y) {
-            this.x = x;
-            this.y = y;
-        }
-    }
-    
-    // 內部類別：車輛
-    class Car {
-        double x, y;
-        double speed;
-        boolean movingRight;
-        Road road;
-        static final int CAR_WIDTH = (int)(TILE_SIZE * 1.5); // 車輛寬度
-        static final int CAR_HEIGHT = TILE_SIZE; // 車輛高度
-        
-        public Car(Road road) {
-            this.road = road;
-            this.y = road.y;
-            this.movingRight = road.rightDirection;
-            this.speed = road.carSpeed; // 使用道路的固定車速
-            
-            // 根據方向設定起始位置
-            if (movingRight) {
-                this.x = -CAR_WIDTH; // 從左邊界外開始
-            } else {
-                this.x = WINDOW_WIDTH + CAR_WIDTH; // 從右邊界外開始
-            }
-        }
-        
-        public void update() {
-            if (movingRight) {
-                x += speed;
-            } else {
-                x -= speed;
-            }
-        }
-        
-        public Rectangle getBounds() {
-            return new Rectangle(
-                (int)(x - CAR_WIDTH/2 + 2), 
-                (int)(y - CAR_HEIGHT/2 + 2), 
-                CAR_WIDTH - 4, 
-                CAR_HEIGHT - 4
-            );
-        }
-
-        // 新增：獲取車輛的中心 X 座標，方便定位
-        public double getCenterX() {
-            return x;
-        }
-    }
-    
-    // 內部類別：道路
-    class Road {
-        int y;
-        boolean rightDirection;
-        int roadIndex;
-        boolean isSafeZone; // 是否為安全區域
-        double carSpeed; // 這條道路上車輛的統一速度
-        int carSpawnTimer; // 車輛生成計時器
-        int carSpawnInterval; // 車輛生成間隔
-        private int lastCarCount; // 上一幀的車輛數量
-        private static final int MIN_CARS_PER_ROAD = 4; // 每條路最少車輛數
-        private static final int MAX_CARS_PER_ROAD = 8; // 每條路最多車輛數
-        
-        public Road(int y, boolean rightDirection, int roadIndex, boolean isSafeZone) {
-            this.y = y;
-            this.rightDirection = rightDirection;
-            this.roadIndex = roadIndex;
-            this.isSafeZone = isSafeZone;
-            
-            // 安全區域不需要車速相關設定
-            if (!isSafeZone) {
-                // 為每條道路設定固定的車速（1.5-4.0之間）
-                this.carSpeed = 2 + random.nextDouble() * 2;
-                
-                int baseInterval = (int)(Car.CAR_WIDTH / carSpeed);
-                this.carSpawnInterval = baseInterval + random.nextInt(30); // 增加一點隨機
-                this.carSpawnTimer = random.nextInt(carSpawnInterval);
-
-            }
-            this.lastCarCount = 0;
-        }
-        
-        public void update() {
-            if (!isSafeZone) {
-                carSpawnTimer++;
-            }
-        }
-        
-        public boolean shouldSpawnCar() {
-            if (isSafeZone) return false; // 安全區域不生成車輛
-            
-            if (carSpawnTimer >= carSpawnInterval) {
-                carSpawnTimer = 0;
-                return true;
-            }
-            return false;
-        }
-        
-        // 檢查這條道路是否需要更多車輛
-        public boolean needsMoreCars(int currentCarCount) {
-            if (isSafeZone) return false; // 安全區域不需要車輛
-            return currentCarCount < MIN_CARS_PER_ROAD;
-        }
-        
-        // 檢查這條道路是否車輛過多
-        public boolean hasTooManyCars(int currentCarCount) {
-            if (isSafeZone) return true; // 安全區域任何車輛都算過多
-            return currentCarCount > MAX_CARS_PER_ROAD;
+            g.fillRect(0, 0, width, height);
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, smoothScaling
+                    ? RenderingHints.VALUE_INTERPOLATION_BILINEAR : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2d.drawImage(frame, drawX, drawY, drawWidth, drawHeight, null);
         }
     }
     
@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// 蒙地卡羅難度調校工具：對一組難度參數的格點，各跑大量無畫面遊戲，輸出分數與存活時間分布
+//
+// 用法：java DifficultyTuner [選項] 參數=值1,值2,... 參數=...
+//   --games=N     每組參數的場數（預設 2000）
+//   --policy=P    bot（AutoPlayer）或 random（隨機跳躍，預設）
+//   --maxTicks=N  每場最多 tick 數（預設 3 分鐘）
+//   --threads=N   執行緒數（預設為 CPU 核心數）
+//   --scaling     以 1、2、4 ... 個執行緒各跑一次，輸出加速比
+// 參數名稱見 GameWorld.Difficulty.set()，例如 deathLineSpeed=0.6,0.8,1.0 maxCarsPerRoad=6,8
+public class DifficultyTuner {
+    static final int TICKS_PER_SECOND = 60;
+
+    private final List<GameWorld.Difficulty> configs;
+    private final int games;
+    private final boolean botPolicy;
+    private final int maxTicks;
+
+    // 每場結果依工作編號寫入各自的位置，執行緒之間不需要同步
+    private final int[] scores;
+    private final int[] ticks;
+    private final byte[] deathCauses;
+
+    DifficultyTuner(List<GameWorld.Difficulty> configs, int games, boolean botPolicy, int maxTicks) {
+        this.configs = configs;
+        this.games = games;
+        this.botPolicy = botPolicy;
+        this.maxTicks = maxTicks;
+        int jobs = configs.size() * games;
+        this.scores = new int[jobs];
+        this.ticks = new int[jobs];
+        this.deathCauses = new byte[jobs];
+    }
+
+    // 在指定大小的 ForkJoinPool 上跑完所有場次，回傳耗時（奈秒）
+    long run(int threads) throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long start = System.nanoTime();
+            pool.submit(() -> IntStream.range(0, scores.length).parallel().forEach(this::playOne)).get();
+            return System.nanoTime() - start;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // 跑一場遊戲；種子由工作編號決定，所以每組參數看到的是同一批世界
+    private void playOne(int job) {
+        GameWorld.Difficulty difficulty = configs.get(job / games);
+        long seed = job % games;
+        GameWorld world = new GameWorld(seed, difficulty);
+
+        if (botPolicy) {
+            AutoPlayer bot = new AutoPlayer(AutoPlayer.DEFAULT_HOP_INTERVAL, 6, 200);
+            while (world.gameRunning && world.tickCount < maxTicks) {
+                int move = bot.nextMove(world);
+                if (move != AutoPlayer.NO_MOVE) {
+                    world.movePlayer(move);
+                }
+                world.tick();
+            }
+        } else {
+            // 隨機策略：每隔固定 tick 跳一次，偏向往前
+            SplittableRandom rng = new SplittableRandom(seed * 31 + 7);
+            while (world.gameRunning && world.tickCount < maxTicks) {
+                if (world.tickCount % AutoPlayer.DEFAULT_HOP_INTERVAL == 0) {
+                    int move = AutoPlayer.randomMove(rng);
+                    if (move != AutoPlayer.NO_MOVE) {
+                        world.movePlayer(move);
+                    }
+                }
+                world.tick();
+            }
+        }
+
+        scores[job] = world.score;
+        ticks[job] = (int)world.tickCount;
+        deathCauses[job] = (byte)world.deathCause;
+    }
+
+    void report() {
+        for (int c = 0; c < configs.size(); c++) {
+            int from = c * games;
+            int to = from + games;
+            int[] s = Arrays.copyOfRange(scores, from, to);
+            int[] t = Arrays.copyOfRange(ticks, from, to);
+            Arrays.sort(s);
+            Arrays.sort(t);
+            int carDeaths = 0;
+            int lineDeaths = 0;
+            long scoreSum = 0;
+            for (int i = from; i < to; i++) {
+                scoreSum += scores[i];
+                if (deathCauses[i] == GameWorld.DEATH_CAR) carDeaths++;
+                if (deathCauses[i] == GameWorld.DEATH_LINE) lineDeaths++;
+            }
+            System.out.println("[" + c + "] " + configs.get(c));
+            System.out.printf("    score    mean=%.1f p10=%d p50=%d p90=%d max=%d%n",
+                    (double)scoreSum / games, percentile(s, 10), percentile(s, 50), percentile(s, 90), s[games - 1]);
+            System.out.printf("    survival p10=%.1fs p50=%.1fs p90=%.1fs%n",
+                    percentile(t, 10) / (double)TICKS_PER_SECOND,
+                    percentile(t, 50) / (double)TICKS_PER_SECOND,
+                    percentile(t, 90) / (double)TICKS_PER_SECOND);
+            System.out.printf("    death    car=%.1f%% line=%.1f%% timeout=%.1f%%%n",
+                    100.0 * carDeaths / games, 100.0 * lineDeaths / games,
+                    100.0 * (games - carDeaths - lineDeaths) / games);
+        }
+    }
+
+    static int percentile(int[] sorted, int p) {
+        int i = (int)Math.min(sorted.length - 1, (long)sorted.length * p / 100);
+        return sorted[i];
+    }
+
+    // 由「參數=值1,值2」清單產生所有組合
+    static List<GameWorld.Difficulty> grid(List<String> specs) {
+        List<GameWorld.Difficulty> result = new ArrayList<>();
+        result.add(new GameWorld.Difficulty());
+        for (String spec : specs) {
+            int eq = spec.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("參數格式應為 名稱=值1,值2: " + spec);
+            }
+            String name = spec.substring(0, eq);
+            String[] values = spec.substring(eq + 1).split(",");
+            List<GameWorld.Difficulty> expanded = new ArrayList<>();
+            for (GameWorld.Difficulty base : result) {
+                for (String value : values) {
+                    GameWorld.Difficulty d = base.copy();
+                    d.set(name, Double.parseDouble(value));
+                    expanded.add(d);
+                }
+            }
+            result = expanded;
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 2000;
+        boolean bot = false;
+        int maxTicks = TICKS_PER_SECOND * 60 * 3;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean scaling = false;
+        List<String> specs = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--games=")) {
+                games = Integer.parseInt(arg.substring(8));
+            } else if (arg.startsWith("--policy=")) {
+                bot = arg.substring(9).equals("bot");
+            } else if (arg.startsWith("--maxTicks=")) {
+                maxTicks = Integer.parseInt(arg.substring(11));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(10));
+            } else if (arg.equals("--scaling")) {
+                scaling = true;
+            } else {
+                specs.add(arg);
+            }
+        }
+
+        List<GameWorld.Difficulty> configs = grid(specs);
+        System.out.println("共 " + configs.size() + " 組參數，每組 " + games + " 場，策略：" + (bot ? "bot" : "random"));
+
+        if (scaling) {
+            double baseline = 0;
+            for (int n = 1; ; n = Math.min(n * 2, threads)) {
+                long nanos = new DifficultyTuner(configs, games, bot, maxTicks).run(n);
+                double seconds = nanos / 1e9;
+                if (n == 1) {
+                    baseline = seconds;
+                }
+                System.out.printf("threads=%d  %.2fs  %.0f 場/秒  加速比 %.2fx%n",
+                        n, seconds, configs.size() * games / seconds, baseline / seconds);
+                if (n == threads) {
+                    break;
+                }
+            }
+            return;
+        }
+
+        DifficultyTuner tuner = new DifficultyTuner(configs, games, bot, maxTicks);
+        long nanos = tuner.run(threads);
+        tuner.report();
+        double seconds = nanos / 1e9;
+        System.out.printf("%d 個執行緒，%.2fs，%.0f 場/秒%n", threads, seconds, configs.size() * games / seconds);
+    }
+}
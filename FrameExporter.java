@@ -0,0 +1,460 @@
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+// 離線匯出：不開視窗重播一場遊戲，用遊戲本身的 FrameRenderer 畫成圖片，輸出成 PNG 序列或 GIF 動畫
+//
+// 用法：java -Djava.awt.headless=true FrameExporter [回放封存檔] 輸出 [--replay=N|best] [--random=種子]
+//                                                  [--every=N] [--threads=N] [--max-frames=N]
+//   輸出        以 .gif 結尾時輸出 GIF 動畫，否則當成資料夾，輸出 frame_00000.png ...
+//   --replay    封存檔中的第幾場，best 為最高分（預設）
+//   --random    不讀封存檔，以隨機策略玩一場（測試用）
+//   --every     每 N 個 tick 輸出一幀（預設 3，也就是 20FPS）
+//   --threads   繪圖與編碼的執行緒數（預設為處理器數）
+//
+// 主執行緒推進世界、把快照填進空的 Slot 後交給工作執行緒繪圖與編碼。
+// Slot 數量固定為執行緒數的兩倍，沒有空的 Slot 時模擬會等待，記憶體用量不隨影片長度增加。
+// GIF 的每一幀由工作執行緒各自壓縮成單張 GIF，再由寫入執行緒依幀順序接成一個動畫檔
+public class FrameExporter {
+    static final int DEFAULT_EVERY = 3;
+    static final int TICK_HZ = 60;
+    static final int RANDOM_HOP_INTERVAL = 60;
+    static final long MAX_RANDOM_TICKS = TICK_HZ * 60 * 10; // 隨機策略最多玩 10 分鐘
+    static final int GAME_OVER_HOLD_FRAMES = 20; // 遊戲結束畫面多停留幾幀
+
+    // 可以直接取得內部陣列的輸出緩衝，接 GIF 時不必再複製一次
+    static class FrameBytes extends ByteArrayOutputStream {
+        FrameBytes() {
+            super(64 * 1024);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    // 一幀在管線中需要的所有資料，重複使用
+    static class Slot {
+        final RenderSnapshot snapshot = new RenderSnapshot();
+        final BufferedImage image = new BufferedImage(FrameRenderer.RENDER_WIDTH, FrameRenderer.RENDER_HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        final BufferedImage indexed; // GIF 用的 256 色圖
+        final FrameBytes encoded = new FrameBytes();
+        int frame;
+
+        Slot(boolean gif) {
+            indexed = gif ? new BufferedImage(FrameRenderer.RENDER_WIDTH, FrameRenderer.RENDER_HEIGHT,
+                    BufferedImage.TYPE_BYTE_INDEXED) : null;
+        }
+    }
+
+    private final File output;
+    private final boolean gif;
+    private final int every;
+    private final int threads;
+    private final int slotCount;
+    private final ArrayBlockingQueue<Slot> free;
+    private final ExecutorService workers;
+    private final ThreadLocal<FrameRenderer> renderers;
+    private int frames;
+
+    // GIF 依幀順序寫出；以 ready 當鎖
+    private final Map<Integer, Slot> ready = new HashMap<>();
+    private int totalFrames = -1; // 模擬結束後才知道
+    private Thread gifWriter;
+
+    // 統計
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicLong renderNanos = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private long simNanos;
+    private long waitNanos; // 模擬等待空 Slot 的時間
+    private long outputBytes;
+    private volatile boolean failed;
+
+    FrameExporter(File output, int every, int threads) {
+        this.output = output;
+        this.gif = output.getName().toLowerCase().endsWith(".gif");
+        this.every = every;
+        this.threads = threads;
+        this.slotCount = threads * 2;
+        free = new ArrayBlockingQueue<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            free.add(new Slot(gif));
+        }
+        // 每個工作執行緒有自己的 FrameRenderer，固定完整畫質
+        final Image player = FrameRenderer.loadPlayerImage();
+        renderers = ThreadLocal.withInitial(() -> new FrameRenderer(player));
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "export-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void start() throws IOException {
+        if (gif) {
+            gifWriter = new Thread(this::writeGif, "gif-writer");
+            gifWriter.start();
+        } else if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("無法建立資料夾：" + output);
+        }
+    }
+
+    // 把世界目前的畫面送進管線；沒有空的 Slot 時等待
+    void emit(GameWorld world, String gameOverMessage) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        Slot slot = free.take();
+        waitNanos += System.nanoTime() - waitStart;
+
+        slot.frame = frames++;
+        RenderSnapshot s = slot.snapshot;
+        s.capture(world, FrameRenderer.RENDER_HEIGHT);
+        s.qualityLevel = RenderQuality.FULL;
+        s.gameOverMessage = gameOverMessage;
+        s.gameOverRankText = "";
+        workers.execute(() -> process(slot));
+    }
+
+    // 工作執行緒：繪圖並編碼一幀
+    private void process(Slot slot) {
+        long start = System.nanoTime();
+        long rendered = start;
+        try {
+            Graphics2D g = slot.image.createGraphics();
+            try {
+                renderers.get().render(g, slot.snapshot);
+            } finally {
+                g.dispose();
+            }
+            rendered = System.nanoTime();
+
+            if (gif) {
+                Graphics2D ig = slot.indexed.createGraphics();
+                ig.drawImage(slot.image, 0, 0, null);
+                ig.dispose();
+                slot.encoded.reset();
+                if (!ImageIO.write(slot.indexed, "gif", slot.encoded)) {
+                    throw new IOException("找不到 GIF 編碼器");
+                }
+            } else {
+                File file = new File(output, String.format("frame_%05d.png", slot.frame));
+                if (!ImageIO.write(slot.image, "png", file)) {
+                    throw new IOException("找不到 PNG 編碼器");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            System.err.println("無法輸出第 " + slot.frame + " 幀");
+            failed = true;
+            slot.encoded.reset();
+        }
+        long end = System.nanoTime();
+        renderNanos.addAndGet(rendered - start);
+        encodeNanos.addAndGet(end - rendered);
+
+        if (gif) {
+            synchronized (ready) {
+                ready.put(slot.frame, slot);
+                ready.notifyAll();
+            }
+        } else {
+            written.incrementAndGet();
+            free.add(slot);
+        }
+    }
+
+    // 寫入執行緒：依幀順序把各幀接到動畫檔，寫完就把 Slot 還回去
+    private void writeGif() {
+        int delay = Math.max(2, (int)Math.round(every * 100.0 / TICK_HZ)); // 單位 1/100 秒
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(output), 1 << 16);
+            writeGifHeader(out);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("無法寫入 GIF：" + output);
+            failed = true;
+        }
+
+        int next = 0;
+        while (true) {
+            Slot slot;
+            synchronized (ready) {
+                while (!ready.containsKey(next) && (totalFrames < 0 || next < totalFrames)) {
+                    try {
+                        ready.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                slot = ready.remove(next);
+            }
+            if (slot == null) {
+                break; // 所有幀都寫完了
+            }
+            if (out != null && slot.encoded.size() > 0) {
+                try {
+                    appendGifFrame(out, slot.encoded.buffer(), slot.encoded.size(), delay);
+                    written.incrementAndGet();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.err.println("無法寫入第 " + slot.frame + " 幀");
+                    failed = true;
+                }
+            }
+            next++;
+            free.add(slot);
+        }
+
+        if (out != null) {
+            try {
+                out.write(0x3B); // 結尾
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.err.println("無法寫入 GIF：" + output);
+                failed = true;
+            }
+        }
+    }
+
+    // GIF89a 檔頭：不使用全域色盤（每幀帶自己的色盤），NETSCAPE2.0 延伸設定無限循環
+    static void writeGifHeader(OutputStream out) throws IOException {
+        out.write("GIF89a".getBytes(StandardCharsets.US_ASCII));
+        writeShort(out, FrameRenderer.RENDER_WIDTH);
+        writeShort(out, FrameRenderer.RENDER_HEIGHT);
+        out.write(0); // 沒有全域色盤
+        out.write(0); // 背景色
+        out.write(0); // 像素長寬比
+        out.write(new byte[] {0x21, (byte)0xFF, 11});
+        out.write("NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII));
+        out.write(new byte[] {3, 1, 0, 0, 0});
+    }
+
+    // 把一張單幀 GIF 的影像區塊接到動畫後面：
+    // 略過它的檔頭與延伸區塊，全域色盤改成區域色盤，前面加上播放延遲
+    static void appendGifFrame(OutputStream out, byte[] b, int length, int delay) throws IOException {
+        int p = 6 + 4; // 簽名 + 寬高
+        int packed = b[p] & 0xFF;
+        p += 3;
+        int tableOffset = -1;
+        int tableBits = 0;
+        if ((packed & 0x80) != 0) {
+            tableOffset = p;
+            tableBits = packed & 7;
+            p += 3 << (tableBits + 1);
+        }
+        while (p < length && b[p] == 0x21) {
+            p += 2;
+            while (b[p] != 0) {
+                p += (b[p] & 0xFF) + 1;
+            }
+            p++;
+        }
+        if (p + 10 > length || b[p] != 0x2C) {
+            throw new IOException("無法解析 GIF 影像區塊");
+        }
+        int end = b[length - 1] == 0x3B ? length - 1 : length;
+
+        // 圖形控制延伸：不透明，下一幀直接畫在上面
+        out.write(new byte[] {0x21, (byte)0xF9, 4, 1 << 2, (byte)delay, (byte)(delay >> 8), 0, 0});
+        out.write(b, p, 9); // 分隔符號與位置、大小
+        int imagePacked = b[p + 9] & 0xFF;
+        if ((imagePacked & 0x80) != 0 || tableOffset < 0) {
+            out.write(b, p + 9, end - (p + 9));
+        } else {
+            out.write((imagePacked & ~0x07) | 0x80 | tableBits);
+            out.write(b, tableOffset, 3 << (tableBits + 1));
+            out.write(b, p + 10, end - (p + 10));
+        }
+    }
+
+    private static void writeShort(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >> 8) & 0xFF);
+    }
+
+    // 所有幀都送出後等待工作執行緒與寫入執行緒結束
+    void finish() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.HOURS);
+        if (gif) {
+            synchronized (ready) {
+                totalFrames = frames;
+                ready.notifyAll();
+            }
+            gifWriter.join();
+            outputBytes = output.length();
+        } else {
+            File[] files = output.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    outputBytes += f.length();
+                }
+            }
+        }
+    }
+
+    // 播放一場遊戲：封存的回放或隨機策略
+    static class Run {
+        final GameWorld world;
+        final ReplayArchive.Cursor cursor; // 為 null 時使用隨機策略
+        final SplittableRandom rng;
+        boolean hasEvent;
+
+        Run(long seed, ReplayArchive.Cursor cursor) {
+            this.world = new GameWorld(seed);
+            this.cursor = cursor;
+            this.rng = new SplittableRandom(seed);
+            this.hasEvent = cursor != null && cursor.next();
+        }
+
+        // 與 CrossyRoadGame.updateGame 相同：先推進一個 tick，遊戲仍在進行才移動玩家
+        boolean step() {
+            if (!world.tick()) {
+                return false;
+            }
+            if (cursor != null) {
+                while (hasEvent && cursor.tick() == world.tickCount) {
+                    world.movePlayer(cursor.direction());
+                    hasEvent = cursor.next();
+                }
+            } else if (world.tickCount >= MAX_RANDOM_TICKS) {
+                return false;
+            } else if (world.tickCount % RANDOM_HOP_INTERVAL == 0) {
+                world.movePlayer(AutoPlayer.randomMove(rng));
+            }
+            return world.gameRunning;
+        }
+    }
+
+    static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String archivePath = null;
+        String outputPath = null;
+        String replay = "best";
+        long randomSeed = -1;
+        int every = DEFAULT_EVERY;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxFrames = Integer.MAX_VALUE;
+        for (String arg : args) {
+            if (arg.startsWith("--replay=")) {
+                replay = arg.substring(9);
+            } else if (arg.startsWith("--random=")) {
+                randomSeed = Long.parseLong(arg.substring(9));
+            } else if (arg.startsWith("--every=")) {
+                every = Math.max(1, Integer.parseInt(arg.substring(8)));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, Integer.parseInt(arg.substring(10)));
+            } else if (arg.startsWith("--max-frames=")) {
+                maxFrames = Integer.parseInt(arg.substring(13));
+            } else if (outputPath == null) {
+                outputPath = arg;
+            } else {
+                archivePath = outputPath;
+                outputPath = arg;
+            }
+        }
+        if (outputPath == null) {
+            System.err.println("用法：java -Djava.awt.headless=true FrameExporter [回放封存檔] 輸出.gif|資料夾"
+                    + " [--replay=N|best] [--random=種子] [--every=N] [--threads=N] [--max-frames=N]");
+            System.exit(2);
+        }
+        if (!GraphicsEnvironment.isHeadless()) {
+            System.out.println("提示：離線匯出建議加上 -Djava.awt.headless=true");
+        }
+
+        Run run;
+        String source;
+        if (randomSeed >= 0) {
+            run = new Run(randomSeed, null);
+            source = "隨機策略 seed=" + randomSeed;
+        } else {
+            File archiveFile = new File(archivePath != null ? archivePath : CrossyRoadGame.REPLAY_ARCHIVE_FILE);
+            ReplayArchive archive = ReplayArchive.open(archiveFile);
+            if (archive.size() == 0) {
+                System.err.println("封存檔沒有任何回放：" + archiveFile);
+                System.exit(1);
+            }
+            int index = replay.equals("best") ? archive.sortedByScore()[0] : Integer.parseInt(replay);
+            run = new Run(archive.seed(index), archive.replay(index));
+            source = "回放 #" + index + " score=" + archive.score(index);
+            // Cursor 讀的是對應到檔案的緩衝，匯出完才關閉
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }));
+        }
+
+        FrameExporter exporter = new FrameExporter(new File(outputPath), every, threads);
+        exporter.start();
+        long cpuStart = processCpuNanos();
+        long wallStart = System.nanoTime();
+
+        GameWorld world = run.world;
+        exporter.emit(world, null);
+        boolean running = true;
+        while (running && exporter.frames < maxFrames) {
+            long simStart = System.nanoTime();
+            running = run.step();
+            exporter.simNanos += System.nanoTime() - simStart;
+            if (world.tickCount % every == 0 || !running) {
+                exporter.emit(world, null);
+            }
+        }
+        if (!world.gameRunning) {
+            String message = (world.deathCause == GameWorld.DEATH_LINE ? "被死亡線追上了！得分：" : "撞到車輛！得分：")
+                    + world.score;
+            for (int i = 0; i < GAME_OVER_HOLD_FRAMES && exporter.frames < maxFrames; i++) {
+                exporter.emit(world, message);
+            }
+        }
+        exporter.finish();
+
+        double wall = (System.nanoTime() - wallStart) / 1e9;
+        double cpu = (processCpuNanos() - cpuStart) / 1e9;
+        int n = exporter.frames;
+        double fps = n / wall;
+        System.out.println(source + "，" + world.tickCount + " tick，得分 " + world.score);
+        System.out.printf("輸出 %d 幀到 %s（%.1f KB），%.2f 秒，%.1f FPS%n",
+                exporter.written.get(), outputPath, exporter.outputBytes / 1024.0, wall, fps);
+        System.out.printf("%d 個工作執行緒、%d 個 Slot：每執行緒 %.1f FPS；處理器時間 %.2f 秒（平均使用 %.2f 核），"
+                + "每核心每秒 %.1f 幀%n", threads, exporter.slotCount, fps / threads, cpu, cpu / wall,
+                cpu > 0 ? n / cpu : 0.0);
+        System.out.printf("平均每幀：模擬 %.2f ms（等待空 Slot %.2f ms），繪圖 %.2f ms，編碼 %.2f ms%n",
+                exporter.simNanos / 1e6 / n, exporter.waitNanos / 1e6 / n,
+                exporter.renderNanos.get() / 1e6 / n, exporter.encodeNanos.get() / 1e6 / n);
+        if (exporter.failed) {
+            System.exit(1);
+        }
+    }
+}
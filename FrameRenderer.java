@@ -0,0 +1,418 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+// 遊戲畫面的繪製：把一份 RenderSnapshot 畫在固定內部解析度的畫布上
+// 不依賴視窗，遊戲的繪圖執行緒與離線匯出（FrameExporter，可在 headless 下執行）共用同一份畫法
+// 每個實例只能由一個執行緒使用（畫面品質與重新開始延遲的狀態屬於實例）
+public class FrameRenderer {
+    static final int RENDER_WIDTH = GameWorld.WORLD_WIDTH;
+    static final int RENDER_HEIGHT = GameWorld.VIEW_HEIGHT;
+    private static final int TILE_SIZE = GameWorld.TILE_SIZE;
+    private static final boolean DEBUG_MODE = false; // 調試模式，顯示碰撞框
+
+    private final Image playerImage; // 為 null 時以方塊代替
+    TextureAtlas atlas; // 不為 null 時玩家與車輛從貼圖集繪製（只畫完整細節的車輛；玩家只在有圖片時）
+    final RenderQuality quality = new RenderQuality(); // 畫面品質依繪圖時間自動調整
+    private int lastRestartSerial;
+    private double lastRestartMillis = -1;
+
+    public FrameRenderer(Image playerImage) {
+        this.playerImage = playerImage;
+    }
+
+    // 載入玩家圖片並縮放到一格大小；找不到或讀取失敗時回傳 null
+    static Image loadPlayerImage() {
+        Image image = null;
+        try {
+            // 方法1：從檔案載入圖片
+            File imageFile = new File("player.png"); // 你的圖片檔案名稱
+            if (imageFile.exists()) {
+                image = ImageIO.read(imageFile);
+                System.out.println("玩家圖片載入成功：" + imageFile.getAbsolutePath());
+            } else {
+                System.out.println("圖片檔案不存在，嘗試從資源載入...");
+
+                // 方法2：從資源載入圖片（適用於打包成JAR的情況）
+                java.io.InputStream imageStream = FrameRenderer.class.getResourceAsStream("/player.png");
+                if (imageStream != null) {
+                    image = ImageIO.read(imageStream);
+                    System.out.println("從資源載入玩家圖片成功");
+                } else {
+                    System.out.println("無法找到玩家圖片，將使用預設方塊顯示");
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("載入玩家圖片時發生錯誤，將使用預設方塊顯示");
+            return null;
+        }
+        if (image == null) {
+            return null;
+        }
+
+        // 先縮放到一格大小（TILE_SIZE）；直接畫成 BufferedImage，任何執行緒第一次繪製就是完整的圖
+        BufferedImage scaled = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, TILE_SIZE, TILE_SIZE, null);
+        g.dispose();
+        return scaled;
+    }
+
+    // 以 (drawX, drawY) 為左上角畫一輛車（長方形車輛）；detail 為 false 時只畫車身
+    // 貼圖集的車輛精靈也是用這個方法畫的（TextureAtlas.carSprite）
+    static void drawCar(Graphics g, int drawX, int drawY, boolean right, boolean detail) {
+        // 繪製車身
+        g.setColor(Color.RED);
+        g.fillRect(drawX, drawY, GameWorld.Car.CAR_WIDTH, GameWorld.Car.CAR_HEIGHT);
+        if (!detail) {
+            return;
+        }
+
+        // 繪製車輛邊框
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect(drawX, drawY, GameWorld.Car.CAR_WIDTH, GameWorld.Car.CAR_HEIGHT);
+
+        // 繪製車窗
+        g.setColor(Color.CYAN);
+        int windowX = drawX + GameWorld.Car.CAR_WIDTH / 6;
+        int windowY = drawY + GameWorld.Car.CAR_HEIGHT / 4;
+        int windowWidth = GameWorld.Car.CAR_WIDTH * 2 / 3;
+        int windowHeight = GameWorld.Car.CAR_HEIGHT / 2;
+        g.fillRect(windowX, windowY, windowWidth, windowHeight);
+
+        // 根據移動方向繪製車頭燈
+        g.setColor(Color.YELLOW);
+        if (right) {
+            // 右行車輛，車頭燈在右側
+            g.fillOval(drawX + GameWorld.Car.CAR_WIDTH - 8, drawY + 4, 6, 6);
+            g.fillOval(drawX + GameWorld.Car.CAR_WIDTH - 8, drawY + GameWorld.Car.CAR_HEIGHT - 10, 6, 6);
+        } else {
+            // 左行車輛，車頭燈在左側
+            g.fillOval(drawX + 2, drawY + 4, 6, 6);
+            g.fillOval(drawX + 2, drawY + GameWorld.Car.CAR_HEIGHT - 10, 6, 6);
+        }
+    }
+
+    // 以內部解析度畫出一份快照
+    public void render(Graphics g, RenderSnapshot s) {
+        long paintStart = System.nanoTime();
+        if (s.qualityLevel != quality.fixedLevel()) {
+            quality.setFixedLevel(s.qualityLevel);
+        }
+        quality.applyHints((Graphics2D) g);
+        boolean decorations = quality.decorations();
+        boolean carDetail = quality.carDetail();
+        boolean labels = quality.labels();
+        TextureAtlas.Region carRightSprite = null;
+        TextureAtlas.Region carLeftSprite = null;
+        TextureAtlas.Region playerSprite = null;
+        if (atlas != null) {
+            atlas.beginFrame();
+            carRightSprite = atlas.region(TextureAtlas.CAR_RIGHT);
+            carLeftSprite = atlas.region(TextureAtlas.CAR_LEFT);
+            // 沒有玩家圖片時照原本畫方塊，不換成貼圖集裡的圖
+            if (playerImage != null) {
+                playerSprite = atlas.region(TextureAtlas.PLAYER);
+            }
+        }
+        
+        // 重新開始後第一個可遊玩的畫面：回報從按鍵到現在的延遲
+        if (s.restartSerial != lastRestartSerial && s.gameRunning) {
+            lastRestartSerial = s.restartSerial;
+            lastRestartMillis = (System.nanoTime() - s.restartRequestedNanos) / 1e6;
+            System.out.printf("重新開始耗時 %.2fms（按鍵到第一個可遊玩畫面）%n", lastRestartMillis);
+        }
+        
+        double cameraY = s.cameraY;
+        
+        // 背景
+        g.setColor(Color.GREEN);
+        g.fillRect(0, 0, RENDER_WIDTH, RENDER_HEIGHT);
+        
+        // 繪製道路（根據攝影機位置調整）
+        for (int i = 0; i < s.roadCount; i++) {
+            int drawY = (int)(s.roadY[i] - cameraY);
+            byte kind = s.roadKind[i];
+            
+            // 只繪製可見的道路
+            if (drawY > -TILE_SIZE && drawY < RENDER_HEIGHT + TILE_SIZE) {
+                // 根據道路類型選擇顏色
+                if (kind == RenderSnapshot.ROAD_SAFE) {
+                    // 安全區域用綠色標示
+                    g.setColor(new Color(34, 139, 34)); // 森林綠
+                } else if (kind == RenderSnapshot.ROAD_START) {
+                    // 起始安全區域用淺灰色標示
+                    g.setColor(Color.LIGHT_GRAY);
+                } else {
+                    // 普通道路用灰色
+                    g.setColor(Color.GRAY);
+                }
+                g.fillRect(0, drawY, RENDER_WIDTH, TILE_SIZE);
+                
+                // 道路邊界線
+                if (decorations) {
+                    g.setColor(Color.WHITE);
+                    g.drawLine(0, drawY, RENDER_WIDTH, drawY);
+                    g.drawLine(0, drawY + TILE_SIZE - 1, RENDER_WIDTH, drawY + TILE_SIZE - 1);
+                }
+                
+                // 安全區域不畫中線，而是畫安全標誌
+                if (kind == RenderSnapshot.ROAD_SAFE) {
+                    // 繪製安全標誌 - 綠色十字
+                    if (decorations) {
+                        g.setColor(Color.WHITE);
+                        int centerY = drawY + TILE_SIZE / 2;
+                        for (int x = TILE_SIZE; x < RENDER_WIDTH; x += TILE_SIZE * 2) {
+                            // 十字標誌
+                            g.fillRect(x - 8, centerY - 2, 16, 4);
+                            g.fillRect(x - 2, centerY - 8, 4, 16);
+                        }
+                    }
+                    
+                    // 安全區文字提示
+                    if (labels) {
+                        g.setColor(Color.WHITE);
+                        g.setFont(new Font("Arial", Font.BOLD, 14));
+                        g.drawString("安全區", 5, drawY + TILE_SIZE / 2 + 5);
+                    }
+                } else if (decorations && kind == RenderSnapshot.ROAD_NORMAL) {
+                    // 普通道路的中線
+                    g.setColor(Color.YELLOW);
+                    for (int x = 0; x < RENDER_WIDTH; x += TILE_SIZE) {
+                        g.fillRect(x, drawY + TILE_SIZE / 2 - 2, TILE_SIZE / 2, 4);
+                    }
+                }
+                
+                // 顯示道路編號（調試用）
+                if (DEBUG_MODE) {
+                    g.setColor(Color.BLACK);
+                    g.setFont(new Font("Arial", Font.BOLD, 12));
+                    String roadInfo = "路" + s.roadIndex[i];
+                    if (kind == RenderSnapshot.ROAD_SAFE) roadInfo += "(安全)";
+                    g.drawString(roadInfo, 5, drawY + TILE_SIZE / 2 + 5);
+                }
+            }
+        }
+        
+        // 繪製起始線
+        int startLineY = (int)(0 - cameraY);
+        if (startLineY > -10 && startLineY < RENDER_HEIGHT + 10) {
+            g.setColor(Color.BLUE);
+            g.fillRect(0, startLineY - 2, RENDER_WIDTH, 4);
+            if (labels) {
+                g.setColor(Color.WHITE);
+                g.setFont(new Font("Arial", Font.BOLD, 16));
+                g.drawString("起始線", 10, startLineY - 5);
+            }
+        }
+        
+        // 繪製車輛（根據攝影機位置調整）- 長方形車輛
+        g.setColor(Color.RED);
+        for (int i = 0; i < s.carCount; i++) {
+            int drawX = (int)(s.carX[i] - GameWorld.Car.CAR_WIDTH/2);
+            int drawY = (int)(s.carY[i] - cameraY - GameWorld.Car.CAR_HEIGHT/2);
+            
+            // 只繪製可見的車輛
+            if (drawX > -GameWorld.Car.CAR_WIDTH && drawX < RENDER_WIDTH + GameWorld.Car.CAR_WIDTH &&
+                drawY > -GameWorld.Car.CAR_HEIGHT && drawY < RENDER_HEIGHT + GameWorld.Car.CAR_HEIGHT) {
+                
+                if (carDetail && carRightSprite != null && carLeftSprite != null) {
+                    atlas.draw(g, s.carRight[i] ? carRightSprite : carLeftSprite, drawX, drawY);
+                } else {
+                    drawCar(g, drawX, drawY, s.carRight[i], carDetail);
+                }
+            }
+        }
+        
+        // 繪製死亡線
+        if (s.gameStarted) {
+            int deathLineY = (int)(s.deathLineWorldY - cameraY);
+            if (deathLineY >= -10 && deathLineY <= RENDER_HEIGHT + 10) {
+                g.setColor(Color.RED);
+                g.fillRect(0, deathLineY - 5, RENDER_WIDTH, 10);
+                g.setColor(Color.DARK_GRAY);
+                g.drawRect(0, deathLineY - 5, RENDER_WIDTH - 1, 9);
+                if (labels) {
+                    g.setColor(Color.WHITE);
+                    g.setFont(new Font("Arial", Font.BOLD, 16));
+                    g.drawString("死亡線", 10, deathLineY + 5);
+                }
+            }
+        }
+        
+        // 繪製玩家（修改部分 - 支援圖片顯示）
+        int playerDrawX = (int)(s.playerX - TILE_SIZE/2);
+        int playerDrawY = (int)(s.playerY - cameraY - TILE_SIZE/2);
+        
+        // 檢查玩家是否在安全區域，改變顏色
+        boolean playerInSafeZone = s.playerInSafeZone;
+        
+        // 關鍵修改：繪製玩家圖片或預設方塊
+        if (playerImage != null) {
+            // 使用圖片繪製玩家
+            Graphics2D g2d = (Graphics2D) g;
+            
+            // 如果在安全區域，添加特殊效果
+            if (playerInSafeZone && labels) {
+                // 方法1：添加發光效果
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f));
+                g2d.setColor(Color.CYAN);
+                g2d.fillOval(playerDrawX - 5, playerDrawY - 5, TILE_SIZE + 10, TILE_SIZE + 10);
+                g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1.0f));
+                
+                // 方法2：添加邊框
+                g2d.setColor(Color.CYAN);
+                g2d.setStroke(new BasicStroke(3));
+                g2d.drawRect(playerDrawX - 2, playerDrawY - 2, TILE_SIZE + 4, TILE_SIZE + 4);
+            }
+            
+            // 繪製玩家圖片
+            if (playerSprite != null) {
+                atlas.draw(g2d, playerSprite, playerDrawX, playerDrawY, TILE_SIZE, TILE_SIZE);
+            } else {
+                g2d.drawImage(playerImage, playerDrawX, playerDrawY, TILE_SIZE, TILE_SIZE, null);
+            }
+            
+        } else {
+            // 圖片載入失敗時，使用原來的方塊繪製
+            if (playerInSafeZone) {
+                g.setColor(Color.CYAN); // 在安全區域時用青色
+            } else {
+                g.setColor(Color.BLUE); // 普通狀態用藍色
+            }
+            g.fillRect(playerDrawX, playerDrawY, TILE_SIZE, TILE_SIZE);
+            g.setColor(Color.BLACK);
+            g.drawRect(playerDrawX, playerDrawY, TILE_SIZE, TILE_SIZE);
+        }
+        
+        // 調試模式：顯示碰撞框和格線
+        if (DEBUG_MODE) {
+            // 玩家碰撞框
+            g.setColor(Color.MAGENTA);
+            g.drawRect(playerDrawX + 2, playerDrawY + 2, TILE_SIZE - 4, TILE_SIZE - 4);
+            
+            // 顯示格線
+            g.setColor(new Color(0, 255, 255, 100));
+            int gridOffsetY = (int)(cameraY % TILE_SIZE);
+            
+            // 垂直線
+            for (int x = 0; x < RENDER_WIDTH; x += TILE_SIZE) {
+                g.drawLine(x, 0, x, RENDER_HEIGHT);
+            }
+            
+            // 水平線
+            for (int y = -gridOffsetY; y < RENDER_HEIGHT; y += TILE_SIZE) {
+                g.drawLine(0, y, RENDER_WIDTH, y);
+            }
+            
+            // 攝影機資訊
+            g.setColor(Color.BLACK);
+            g.setFont(new Font("Arial", Font.BOLD, 12));
+            g.drawString("攝影機Y: " + (int)cameraY, 10, RENDER_HEIGHT - 60);
+            g.drawString("玩家世界座標: (" + (int)s.playerX + ", " + (int)s.playerY + ")", 10, RENDER_HEIGHT - 40);
+            g.drawString("玩家螢幕座標: (" + playerDrawX + ", " + playerDrawY + ")", 10, RENDER_HEIGHT - 20);
+        }
+        
+        // 繪製分數和狀態
+        g.setColor(Color.BLACK);
+        g.setFont(new Font("Arial", Font.BOLD, 20));
+        g.drawString("score: " + s.score, 10, 30);
+        
+        // 事件提示（新紀錄、進入安全區）
+        if (s.banner != null && s.gameRunning) {
+            g.setColor(new Color(200, 120, 0));
+            g.setFont(new Font(Font.DIALOG, Font.BOLD, 24));
+            g.drawString(s.banner, RENDER_WIDTH / 2 - 60, 110);
+        }
+        
+        // 顯示安全區狀態
+        //if (playerInSafeZone) {
+            //g.setColor(Color.GREEN);
+            //g.setFont(new Font("Arial", Font.BOLD, 18));
+            //g.drawString("安全區域！", 10, 55);
+        //}
+        
+        // 顯示死亡線距離警告
+        if (s.gameStarted) {
+            double distanceToDeathLine = s.deathLineWorldY - s.playerY;
+            g.setColor(Color.BLACK);
+            g.setFont(new Font("Arial", Font.BOLD, 20));
+            g.drawString("Deadline distance: " + String.format("%.1f", distanceToDeathLine / TILE_SIZE), 10, 80);
+            
+            if (distanceToDeathLine < TILE_SIZE * 5) {
+                g.setColor(Color.RED);
+                g.setFont(new Font("Arial", Font.BOLD, 24));
+                g.drawString("Deadline coming!Forward!", RENDER_WIDTH / 2 - 120, 50);
+            }
+        }
+        
+        // 顯示控制說明
+        if (labels) {
+            g.setColor(Color.BLACK);
+            g.setFont(new Font("Arial", Font.PLAIN, 14));
+            g.drawString("WASD or ArrowKeys", RENDER_WIDTH - 180, RENDER_HEIGHT - 40);
+            g.drawString("GreenArea = SafeArea", RENDER_WIDTH - 180, RENDER_HEIGHT - 20);
+        }
+        
+        // 畫面品質與繪圖時間（上一幀以前的平均）
+        if (s.diagnostics) {
+            g.setColor(Color.DARK_GRAY);
+            g.setFont(new Font("Arial", Font.PLAIN, 12));
+            g.drawString(String.format("quality: %s%s  paint %.1fms", quality.levelName(),
+                    quality.fixedLevel() >= 0 ? " (fixed)" : "", quality.averageNanos() / 1e6),
+                    RENDER_WIDTH - 180, RENDER_HEIGHT - 60);
+            g.drawString(String.format("%dx%d -> %dx%d %s", RENDER_WIDTH, RENDER_HEIGHT, s.windowWidth, s.windowHeight,
+                    s.smoothScaling ? "bilinear" : "nearest"), RENDER_WIDTH - 180, RENDER_HEIGHT - 75);
+            g.drawString(String.format("sim %.2fms  skipped %d  %s", s.simNanos / 1e6, s.overwritten,
+                    ActivityThrottle.STATE_NAMES[s.activityState]),
+                    RENDER_WIDTH - 180, RENDER_HEIGHT - 90);
+        }
+        
+        // 顯示安全區域提示
+        if (!s.gameStarted) {
+            g.setColor(Color.BLUE);
+            g.setFont(new Font("Arial", Font.BOLD, 18));
+            g.drawString("SafeArea - Forward to Start!", 10, RENDER_HEIGHT - 60);
+            g.setColor(Color.GREEN);
+            g.setFont(new Font("Arial", Font.BOLD, 16));
+            g.drawString("There will be SafeArea in Game!", 10, RENDER_HEIGHT - 40);
+            if (lastRestartMillis >= 0) {
+                g.setColor(Color.DARK_GRAY);
+                g.setFont(new Font("Arial", Font.PLAIN, 14));
+                g.drawString(String.format("restart: %.2fms", lastRestartMillis), 10, RENDER_HEIGHT - 80);
+            }
+        }
+        
+        // 自動遊玩狀態與決策耗時
+        if (s.autoPlay) {
+            g.setColor(Color.MAGENTA);
+            g.setFont(new Font("Arial", Font.BOLD, 16));
+            g.drawString("AUTO  decision: " + s.decisionMicros + "us (max "
+                    + s.maxDecisionMicros + "us)", RENDER_WIDTH - 300, 30);
+        }
+        
+        if (!s.gameRunning) {
+            // 半透明的遊戲結束畫面，遊戲畫面仍在底下
+            g.setColor(new Color(0, 0, 0, 150));
+            g.fillRect(0, RENDER_HEIGHT / 2 - 80, RENDER_WIDTH, 180);
+            g.setColor(Color.WHITE);
+            g.setFont(new Font("Arial", Font.BOLD, 40));
+            g.drawString("Game Over", RENDER_WIDTH / 2 - 100, RENDER_HEIGHT / 2 - 30);
+            if (s.gameOverMessage != null) {
+                g.setFont(new Font(Font.DIALOG, Font.BOLD, 22));
+                g.drawString(s.gameOverMessage, RENDER_WIDTH / 2 - 150, RENDER_HEIGHT / 2 + 10);
+                g.setFont(new Font(Font.DIALOG, Font.PLAIN, 16));
+                g.drawString(s.gameOverRankText, RENDER_WIDTH / 2 - 250, RENDER_HEIGHT / 2 + 40);
+                g.setColor(Color.YELLOW);
+                g.drawString("按 Enter / 空白鍵 / R 重新開始", RENDER_WIDTH / 2 - 120, RENDER_HEIGHT / 2 + 75);
+            }
+        }
+        
+        quality.record(System.nanoTime() - paintStart);
+    }
+}
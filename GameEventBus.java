@@ -0,0 +1,325 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 遊戲事件匯流排：單一寫入端（模擬執行緒）的無鎖環狀緩衝區，多個消費者各自在自己的執行緒上處理
+//
+// 事件內容存放在預先配置的基本型別陣列中，發佈只是寫幾個欄位再推進序號，不配置物件也不等待。
+// 每個消費者有自己的讀取序號，依序處理所有事件（只對訂閱的類型呼叫 handler）；
+// 最慢的消費者落後整個緩衝區時新事件直接丟棄並計數，模擬執行緒永遠不會被消費者拖慢。
+// 消費者沒有事件時 park，寫入端只在消費者等待中才 unpark，平時不會有額外的系統呼叫
+//
+// 統計：每個消費者落後的事件數（最大值）、從發佈到處理的延遲（平均與最大）
+public class GameEventBus {
+    // 事件類型
+    static final int COLLISION = 0; // 撞到車輛：value=分數 extra=死亡原因 x,y=玩家位置
+    static final int DEATH_LINE = 1; // 被死亡線追上：同上
+    static final int SAFE_ZONE_ENTERED = 2; // 進入隨機安全區：value=道路編號 x,y=玩家位置
+    static final int NEW_BEST = 3; // 分數超過之前的最高分：value=分數
+    static final int ROAD_GENERATED = 4; // 生成新道路：value=道路編號 extra=是否為安全區 y=道路位置
+    static final String[] TYPE_NAMES = {"collision", "death-line", "safe-zone", "new-best", "road"};
+    static final int ALL = (1 << TYPE_NAMES.length) - 1;
+
+    static int mask(int... types) {
+        int m = 0;
+        for (int type : types) {
+            m |= 1 << type;
+        }
+        return m;
+    }
+
+    // 消費者看到的事件；每個消費者一份，處理下一個事件時會被覆寫
+    static class Event {
+        int type;
+        long tick;
+        long seed;
+        int value;
+        int extra;
+        double x, y;
+        long publishNanos;
+    }
+
+    interface Handler {
+        void onEvent(Event event);
+    }
+
+    private final int mask;
+    private final int[] types;
+    private final long[] ticks;
+    private final long[] seeds;
+    private final int[] values;
+    private final int[] extras;
+    private final double[] xs;
+    private final double[] ys;
+    private final long[] publishNanos;
+
+    private final AtomicLong published = new AtomicLong(); // 已發佈的事件數（下一個事件的序號）
+    private long next; // 只由寫入端使用
+    private final ArrayList<Consumer> consumers = new ArrayList<>();
+    private Consumer[] consumerArray = new Consumer[0];
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    // 統計（只由寫入端更新）
+    volatile long dropped;
+    final long[] publishedByType = new long[TYPE_NAMES.length];
+
+    // capacity 需為 2 的次方
+    public GameEventBus(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("事件緩衝區大小需為 2 的次方: " + capacity);
+        }
+        mask = capacity - 1;
+        types = new int[capacity];
+        ticks = new long[capacity];
+        seeds = new long[capacity];
+        values = new int[capacity];
+        extras = new int[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        publishNanos = new long[capacity];
+    }
+
+    // 加入消費者；必須在 start 之前
+    public synchronized void subscribe(String name, int typeMask, Handler handler) {
+        if (started) {
+            throw new IllegalStateException("事件匯流排已啟動，不能再加入消費者");
+        }
+        consumers.add(new Consumer(name, typeMask, handler));
+    }
+
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        consumerArray = consumers.toArray(new Consumer[0]);
+        started = true;
+        for (Consumer c : consumerArray) {
+            c.thread.start();
+        }
+    }
+
+    // 寫入端：發佈一個事件；緩衝區滿（最慢的消費者落後 capacity 個事件）時丟棄並回傳 false
+    public boolean publish(int type, long tick, long seed, int value, int extra, double x, double y) {
+        long seq = next;
+        Consumer[] cs = consumerArray;
+        for (Consumer c : cs) {
+            if (seq - c.sequence.get() > mask) {
+                dropped++;
+                return false;
+            }
+        }
+        int i = (int)seq & mask;
+        types[i] = type;
+        ticks[i] = tick;
+        seeds[i] = seed;
+        values[i] = value;
+        extras[i] = extra;
+        xs[i] = x;
+        ys[i] = y;
+        publishNanos[i] = System.nanoTime();
+        next = seq + 1;
+        published.set(next); // volatile 寫入：之後讀到的 waiting 與消費者的檢查不會錯過彼此
+        publishedByType[type]++;
+
+        for (Consumer c : cs) {
+            long lag = next - c.sequence.get();
+            if (lag > c.maxLag) {
+                c.maxLag = lag;
+            }
+            if (c.waiting) {
+                LockSupport.unpark(c.thread);
+            }
+        }
+        return true;
+    }
+
+    // 最慢的消費者還有幾個事件沒處理
+    long lag() {
+        long head = published.get();
+        long max = 0;
+        for (Consumer c : consumerArray) {
+            max = Math.max(max, head - c.sequence.get());
+        }
+        return max;
+    }
+
+    // 處理完已發佈的所有事件後停止消費者執行緒；可重複呼叫，第二次呼叫會等第一次完成
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Consumer c : consumerArray) {
+            LockSupport.unpark(c.thread);
+        }
+        for (Consumer c : consumerArray) {
+            try {
+                c.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder("遊戲事件：");
+        for (int t = 0; t < TYPE_NAMES.length; t++) {
+            sb.append(t == 0 ? "" : "、").append(TYPE_NAMES[t]).append(' ').append(publishedByType[t]);
+        }
+        sb.append("，丟棄 ").append(dropped);
+        for (Consumer c : consumerArray) {
+            long handled = c.handled;
+            sb.append(String.format("%n  %-12s 處理 %6d  目前落後 %4d  最大落後 %4d  延遲 平均 %7.1fus 最大 %8.1fus",
+                    c.name, handled, published.get() - c.sequence.get(), c.maxLag,
+                    handled == 0 ? 0.0 : c.latencyNanos / 1e3 / handled, c.maxLatencyNanos / 1e3));
+        }
+        return sb.toString();
+    }
+
+    private class Consumer implements Runnable {
+        final String name;
+        final int typeMask;
+        final Handler handler;
+        final Thread thread;
+        final AtomicLong sequence = new AtomicLong(); // 已處理到的序號（不含）
+        final Event event = new Event();
+        volatile boolean waiting;
+
+        volatile long maxLag; // 由寫入端更新
+        // 以下由消費者執行緒更新
+        volatile long handled;
+        volatile long latencyNanos;
+        volatile long maxLatencyNanos;
+
+        Consumer(String name, int typeMask, Handler handler) {
+            this.name = name;
+            this.typeMask = typeMask;
+            this.handler = handler;
+            thread = new Thread(this, "events-" + name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long seq = 0;
+            while (true) {
+                long available = published.get();
+                if (seq == available) {
+                    if (closed) {
+                        return;
+                    }
+                    waiting = true;
+                    if (published.get() == seq && !closed) {
+                        LockSupport.parkNanos(this, 100_000_000L);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                while (seq < available) {
+                    int i = (int)seq & mask;
+                    int type = types[i];
+                    if ((typeMask & (1 << type)) != 0) {
+                        Event e = event;
+                        e.type = type;
+                        e.tick = ticks[i];
+                        e.seed = seeds[i];
+                        e.value = values[i];
+                        e.extra = extras[i];
+                        e.x = xs[i];
+                        e.y = ys[i];
+                        e.publishNanos = publishNanos[i];
+                        long latency = System.nanoTime() - e.publishNanos;
+                        try {
+                            handler.onEvent(e);
+                        } catch (RuntimeException ex) {
+                            ex.printStackTrace();
+                            System.err.println("事件消費者 " + name + " 處理 " + TYPE_NAMES[type] + " 時發生錯誤");
+                        }
+                        handled++;
+                        latencyNanos += latency;
+                        if (latency > maxLatencyNanos) {
+                            maxLatencyNanos = latency;
+                        }
+                    }
+                    seq++;
+                    sequence.set(seq);
+                }
+            }
+        }
+    }
+
+    // 命令列：以隨機策略連續玩 N 場並把事件發佈到匯流排，量測發佈的耗時與配置量，以及各消費者的延遲
+    //   java GameEventBus [場數] [慢消費者每個事件的處理毫秒數]
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int slowMillis = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        GameEventBus bus = new GameEventBus(1024);
+        bus.subscribe("all", ALL, e -> { });
+        bus.subscribe("game-over", mask(COLLISION, DEATH_LINE), e -> { });
+        bus.subscribe("slow", mask(ROAD_GENERATED), e -> {
+            if (slowMillis > 0) {
+                try {
+                    Thread.sleep(slowMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        bus.start();
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int best = 0;
+        long ticks = 0;
+        long start = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            GameWorld world = new GameWorld(g);
+            world.events = bus;
+            world.bestScore = best;
+            SplittableRandom rng = new SplittableRandom(g);
+            while (world.gameRunning) {
+                if (world.tickCount % AutoPlayer.DEFAULT_HOP_INTERVAL == 0) {
+                    int move = AutoPlayer.randomMove(rng);
+                    if (move != AutoPlayer.NO_MOVE) {
+                        world.movePlayer(move);
+                    }
+                }
+                world.tick();
+                ticks++;
+            }
+            best = Math.max(best, world.score);
+        }
+        long simNanos = System.nanoTime() - start;
+
+        // 發佈本身：每次連續發佈 BATCH 個事件（不超過緩衝區，不會丟棄），等消費者處理完再發佈下一批；
+        // 只量測發佈的耗時與配置量
+        final int batch = 256;
+        int batches = 4000;
+        long publishNanos = 0;
+        long bytes = 0;
+        for (int b = 0; b < batches; b++) {
+            while (bus.lag() > 0) {
+                Thread.yield();
+            }
+            long before = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                bus.publish(SAFE_ZONE_ENTERED, i, 0, i, 0, 0, 0);
+            }
+            publishNanos += System.nanoTime() - start;
+            bytes += threads.getThreadAllocatedBytes(threadId) - before;
+        }
+        int publishes = batch * batches;
+        bus.close();
+
+        System.out.printf("%d 場、%d tick（%.1fs）；另外發佈 %d 個事件：平均 %.0fns、配置 %d 位元組%n",
+                games, ticks, simNanos / 1e9, publishes, (double)publishNanos / publishes, bytes);
+        System.out.println(bus.report());
+    }
+}
@@ -0,0 +1,760 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// 遊戲世界：不依賴 Swing 的模擬狀態（玩家、道路、車輛、攝影機、死亡線、分數）
+// CrossyRoadGame 負責輸入、繪圖與音效；機器人與批次模擬可直接驅動這個類別
+public class GameWorld {
+    // 世界座標與畫面無關：道路寬度固定，攝影機視野高度只影響道路與車輛的生成範圍
+    // 畫面怎麼呈現（內部解析度、視窗大小）由 CrossyRoadGame 決定
+    static final int WORLD_WIDTH = 800; // 道路寬度（車輛的存活範圍以此為準）
+    static final int VIEW_HEIGHT = 600; // 預設攝影機視野高度（Difficulty.viewportHeight）
+    static final int TILE_SIZE = 40;
+
+    // 攝影機系統
+    static final double CAMERA_FOLLOW_SPEED = 0.08; // 攝影機跟隨速度
+    static final double CAMERA_DEADZONE_X = 100; // X軸死區範圍
+    static final double CAMERA_DEADZONE_Y = 100; // Y軸死區範圍
+
+    static final double DEATH_LINE_SPEED = 0.8; // 死亡線移動速度
+    static final int SAFE_ZONE_SIZE = 3; // 安全區域大小（底部幾排）
+
+    // 隨機安全區相關
+    static final double SAFE_ZONE_PROBABILITY = 0.15; // 15% 機率生成安全區
+    static final int MIN_SAFE_ZONE_INTERVAL = 8; // 安全區最小間隔
+    static final int MAX_SAFE_ZONE_INTERVAL = 15; // 安全區最大間隔
+
+    // 世界邊界
+    static final int WORLD_LEFT_BOUNDARY = -WORLD_WIDTH;
+    static final int WORLD_RIGHT_BOUNDARY = WORLD_WIDTH * 2;
+
+    // 平行更新：車輛或道路多到超過門檻才分給多個執行緒，否則排程成本比省下的還多
+    // 門檻是 Difficulty 的參數（這裡只是預設值），還沒有多核心機器上的量測支持；
+    // 在多核心機器上以 StressTest --compare --ramp --parallel-cars=0 --parallel-roads=0 找出加速比超過 1 的規模再調整
+    static final int PARALLEL_CAR_THRESHOLD = 20000;
+    static final int PARALLEL_ROAD_THRESHOLD = 2000;
+    static final int PARALLEL_CHUNK = 4096; // 每個工作負責的連續區段大小
+
+    // 移動方向（回放檔以兩個位元儲存）
+    public static final int MOVE_UP = 0;
+    public static final int MOVE_DOWN = 1;
+    public static final int MOVE_LEFT = 2;
+    public static final int MOVE_RIGHT = 3;
+
+    // 死亡原因
+    public static final int DEATH_NONE = 0;
+    public static final int DEATH_CAR = 1; // 撞到車輛
+    public static final int DEATH_LINE = 2; // 被死亡線追上
+
+    Difficulty difficulty; // 本世界使用的難度參數
+    Player player;
+    ArrayList<Car> cars = new ArrayList<>();
+    ArrayList<Road> roads = new ArrayList<>();
+    Random random = new Random();
+    long seed;
+    int score;
+    boolean gameRunning;
+    boolean gameStarted; // 是否已離開安全區開始遊戲
+    int deathCause;
+    long tickCount;
+    private int nextCarId; // 車輛編號遞增，cars 清單因此保持依編號排序
+
+    double cameraY; // 攝影機Y位置
+    double targetCameraY; // 目標攝影機Y位置
+    double deathLineWorldY; // 死亡線的世界Y位置
+    // 多人伺服器：最後方存活玩家的Y位置；道路保留與生成新車的範圍從 player 延伸到這裡
+    // 單人遊戲維持負無限大，範圍只看 player
+    double trailingY = Double.NEGATIVE_INFINITY;
+    private int lastSafeZoneIndex = -100; // 上一個安全區的位置
+
+    ForkJoinPool parallelPool; // 為 null 時全部依序更新；結果與依序更新逐位元相同
+    final CollisionScheduler collisions = new CollisionScheduler(this); // 只檢查預測會碰到玩家的車輛
+    final CarLifecycle lifecycle = new CarLifecycle(this); // 車輛生成與移除的範圍、上限與統計
+    final CarSpawner spawner; // 初始車輛、新道路與每一步的車輛生成方式
+
+    // 遊戲事件：不為 null 時發佈碰撞、死亡線、進入安全區、新紀錄與新道路（只由呼叫 tick 的執行緒發佈）
+    // 發佈不使用亂數，有沒有匯流排遊戲過程都相同
+    GameEventBus events;
+    int bestScore = Integer.MAX_VALUE; // 分數超過這個值時發佈 NEW_BEST 並更新
+    private boolean inSafeZone; // 上一步玩家是否在安全區
+    private final ArrayList<Road> reservedRoads = new ArrayList<>(); // 有佔位的道路
+
+    public GameWorld(long seed) {
+        this(seed, new Difficulty());
+    }
+
+    public GameWorld(long seed, Difficulty difficulty) {
+        this(seed, difficulty, new RejectionSpawner());
+    }
+
+    public GameWorld(long seed, Difficulty difficulty, CarSpawner spawner) {
+        this.difficulty = difficulty;
+        this.spawner = spawner;
+        reset(seed);
+    }
+
+    // 以指定種子重新開始；相同種子與相同輸入會得到相同的遊戲過程
+    public void reset(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+
+        // 玩家初始位置 - 世界座標系
+        player = new Player(WORLD_WIDTH / 2, 0); // Y=0 是起始線
+
+        // 攝影機初始位置 - 只跟隨Y軸
+        cameraY = player.y - difficulty.viewportHeight * 0.7; // 玩家在螢幕下方30%的位置
+        targetCameraY = cameraY;
+
+        cars.clear();
+        roads.clear();
+        collisions.clear();
+        reservedRoads.clear();
+        score = 0;
+        gameRunning = true;
+        gameStarted = false;
+        deathCause = DEATH_NONE;
+        tickCount = 0;
+        nextCarId = 0;
+        deathLineWorldY = 200; // 死亡線從玩家下方開始
+        trailingY = Double.NEGATIVE_INFINITY;
+        lastSafeZoneIndex = -100; // 重置安全區記錄
+        inSafeZone = true; // 從起始安全區開始
+
+        createRoads();
+        spawner.initializeCars(this);
+    }
+
+    private void createRoads() {
+        // 創建更多道路用於無限世界
+        for (int i = -10; i < 50; i++) { // 從負數開始，確保有足夠的道路
+            int y = i * TILE_SIZE;
+            boolean isSafeZone = shouldCreateSafeZone(i);
+            roads.add(spawner.createRoad(this, y, random.nextBoolean(), i, isSafeZone));
+        }
+    }
+
+    // 起始安全區（底部幾排）
+    static boolean isStartZone(int roadIndex) {
+        return roadIndex >= -SAFE_ZONE_SIZE && roadIndex <= SAFE_ZONE_SIZE;
+    }
+
+    // 判斷是否應該創建安全區
+    private boolean shouldCreateSafeZone(int roadIndex) {
+        // 起始區域周圍不創建隨機安全區
+        if (isStartZone(roadIndex)) {
+            return false;
+        }
+
+        // 檢查與上一個安全區的距離
+        int distanceFromLastSafeZone = Math.abs(roadIndex - lastSafeZoneIndex);
+        if (distanceFromLastSafeZone < difficulty.minSafeZoneInterval) {
+            return false;
+        }
+
+        // 如果距離足夠遠，有一定機率創建安全區
+        if (distanceFromLastSafeZone >= difficulty.maxSafeZoneInterval) {
+            // 強制創建安全區，避免過長時間沒有安全區
+            lastSafeZoneIndex = roadIndex;
+            return true;
+        }
+
+        // 正常機率判斷
+        if (random.nextDouble() < difficulty.safeZoneProbability) {
+            lastSafeZoneIndex = roadIndex;
+            return true;
+        }
+
+        return false;
+    }
+
+    // 推進一個 tick；回傳遊戲是否仍在進行
+    public boolean tick() {
+        if (!gameRunning) return false;
+
+        tickCount++;
+
+        // 檢查玩家是否離開安全區
+        if (!gameStarted && player.y < -SAFE_ZONE_SIZE * TILE_SIZE) {
+            gameStarted = true;
+        }
+
+        // 更新攝影機目標位置 - 平滑跟隨玩家
+        updateCamera();
+
+        // 只有離開安全區後死亡線才開始移動
+        if (gameStarted) {
+            deathLineWorldY -= difficulty.deathLineSpeed; // 死亡線向上移動（Y座標減少）
+
+            // 檢查玩家是否被死亡線追上
+            if (player.y >= deathLineWorldY) { // 玩家在死亡線下方就被追上
+                gameRunning = false;
+                deathCause = DEATH_LINE;
+                if (events != null) {
+                    events.publish(GameEventBus.DEATH_LINE, tickCount, seed, score, deathCause, player.x, player.y);
+                }
+                return false;
+            }
+        }
+
+        // 如果玩家在安全區域，不進行碰撞檢測
+        boolean safe = isPlayerInSafeZone();
+        if (safe && !inSafeZone && events != null) {
+            events.publish(GameEventBus.SAFE_ZONE_ENTERED, tickCount, seed,
+                    (int)(player.y / TILE_SIZE), 0, player.x, player.y);
+        }
+        inSafeZone = safe;
+
+        // 道路與車輛；玩家在安全區時不算碰撞
+        if (advanceEnvironment() && !safe) {
+            // 碰撞發生！音效與訊息由呼叫端依 deathCause 處理
+            gameRunning = false;
+            deathCause = DEATH_CAR;
+        }
+
+        // 更新分數 - 玩家向上移動分數增加
+        score = Math.max(score, (int)(-player.y / TILE_SIZE));
+        if (events != null) {
+            if (score > bestScore) {
+                bestScore = score;
+                events.publish(GameEventBus.NEW_BEST, tickCount, seed, score, 0, player.x, player.y);
+            }
+            if (deathCause == DEATH_CAR) {
+                events.publish(GameEventBus.COLLISION, tickCount, seed, score, deathCause, player.x, player.y);
+            }
+        }
+        return gameRunning;
+    }
+
+    // 推進道路與車輛（以 player 位置決定生成與清理範圍），不檢查死亡；回傳這個 tick 是否有車撞到 player
+    // 多人伺服器以最前方玩家的位置驅動這部分，並以 trailingY 延伸到最後方玩家
+    boolean advanceEnvironment() {
+        // 玩家換了位置就重新預測碰撞
+        collisions.prepare(tickCount - 1);
+
+        // 動態生成新道路
+        generateNewRoads();
+
+        // 生成新車輛
+        generateNewCars();
+
+        // 更新車輛位置，只對預測會碰到玩家的車輛檢查碰撞
+        collisions.beginStep();
+        int carCount = cars.size();
+        updateCars();
+        clearReservations();
+        boolean hit = collisions.checkStep(carCount);
+
+        // 清理舊道路和車輛
+        cleanup();
+        return hit;
+    }
+
+    // 玩家移動一格
+    public void movePlayer(int direction) {
+        applyMove(player, direction);
+    }
+
+    static void applyMove(Player player, int direction) {
+        switch (direction) {
+            case MOVE_UP:
+                player.y -= TILE_SIZE; // 向上移動（Y座標減少）
+                break;
+            case MOVE_DOWN:
+                player.y += TILE_SIZE; // 向下移動（Y座標增加）
+                break;
+            case MOVE_LEFT:
+                if (player.x > WORLD_LEFT_BOUNDARY) {
+                    player.x -= TILE_SIZE;
+                }
+                break;
+            case MOVE_RIGHT:
+                if (player.x < WORLD_RIGHT_BOUNDARY) {
+                    player.x += TILE_SIZE;
+                }
+                break;
+        }
+    }
+
+    void updateCamera() {
+        // Y軸攝影機跟隨 - 保持玩家在螢幕下方
+        targetCameraY = player.y - difficulty.viewportHeight * 0.7;
+
+        // 平滑移動攝影機到目標位置（只有Y軸）
+        double cameraSpeedY = (targetCameraY - cameraY) * CAMERA_FOLLOW_SPEED;
+        cameraY += cameraSpeedY;
+    }
+
+    private void generateNewRoads() {
+        // 找到最高和最低的道路
+        int highestRoadIndex = roads.isEmpty() ? 0 : roads.get(0).roadIndex;
+        int lowestRoadIndex = roads.isEmpty() ? 0 : roads.get(0).roadIndex;
+
+        for (Road road : roads) {
+            if (road.roadIndex > highestRoadIndex) {
+                highestRoadIndex = road.roadIndex;
+            }
+            if (road.roadIndex < lowestRoadIndex) {
+                lowestRoadIndex = road.roadIndex;
+            }
+        }
+
+        // 根據玩家位置生成新道路
+        int playerRoadIndex = (int)(player.y / TILE_SIZE);
+
+
+        // 向上生成道路（如果需要）
+        while (lowestRoadIndex > playerRoadIndex - spawner.rowsAhead(this)) {
+            lowestRoadIndex--;
+            int y = lowestRoadIndex * TILE_SIZE;
+            boolean isSafeZone = shouldCreateSafeZone(lowestRoadIndex);
+            Road newRoad = spawner.createRoad(this, y, random.nextBoolean(), lowestRoadIndex, isSafeZone);
+            roads.add(newRoad);
+            if (events != null) {
+                events.publish(GameEventBus.ROAD_GENERATED, tickCount, seed, lowestRoadIndex, isSafeZone ? 1 : 0, 0, y);
+            }
+
+            // 只在非安全區域生成車輛
+            if (!newRoad.isSafeZone && !isStartZone(newRoad.roadIndex)) {
+                spawner.populateNewRoad(this, newRoad);
+            }
+        }
+    }
+
+    // 道路是否在攝影機附近（只在可見範圍附近生成新車，避免在很遠的地方生成過多車輛）
+    boolean inSpawnRange(Road road) {
+        double roadScreenY = road.y - cameraY;
+        return roadScreenY >= -TILE_SIZE * difficulty.spawnRangeRows
+                && roadScreenY <= difficulty.viewportHeight + TILE_SIZE * difficulty.spawnRangeRows + trailingSpan();
+    }
+
+    // 最後方玩家在 player 後方多遠（單人遊戲為 0）
+    double trailingSpan() {
+        return Math.max(0, trailingY - player.y);
+    }
+
+    private void generateNewCars() {
+        // 道路很多時先平行推進生成計時器；計時器只屬於各自的道路，不影響亂數順序
+        boolean timersAdvanced = false;
+        if (parallelPool != null && roads.size() >= difficulty.parallelRoadThreshold) {
+            advanceSpawnTimersParallel();
+            timersAdvanced = true;
+        }
+
+        spawner.generateNewCars(this, timersAdvanced);
+    }
+
+    // 在 x 生成一輛車；第一步就會被移除或超過車輛上限時不配置，回傳 null
+    // 第一步就會被移除的位置在下次移動車輛之前仍佔著車道（計入車輛數與重疊檢查），
+    // 與原本先配置再移除時的生成結果完全相同
+    Car spawnCar(Road road, double x) {
+        if (lifecycle.culledOnArrival(road, x)) {
+            if (road.reservedCount == 0) {
+                reservedRoads.add(road);
+            }
+            road.reserve(x);
+            return null;
+        }
+        if (!lifecycle.withinBudget()) {
+            return null;
+        }
+        Car car = new Car(road);
+        car.x = x;
+        car.id = nextCarId++;
+        cars.add(car);
+        lifecycle.spawned(car, tickCount - 1);
+        collisions.schedule(car);
+        return car;
+    }
+
+    private void clearReservations() {
+        for (Road road : reservedRoads) {
+            road.reservedCount = 0;
+        }
+        reservedRoads.clear();
+    }
+
+    private void advanceSpawnTimersParallel() {
+        int n = roads.size();
+        int chunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        parallelPool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+            int end = Math.min(n, (c + 1) * PARALLEL_CHUNK);
+            for (int i = c * PARALLEL_CHUNK; i < end; i++) {
+                Road road = roads.get(i);
+                if (spawner.updatesRoad(this, road)) {
+                    road.update();
+                }
+            }
+        })).join();
+    }
+
+    private void updateCars() {
+        if (parallelPool != null && cars.size() >= difficulty.parallelCarThreshold) {
+            updateCarsParallel();
+            return;
+        }
+        long tick = tickCount - 1;
+        for (int i = cars.size() - 1; i >= 0; i--) {
+            Car car = cars.get(i);
+            car.update();
+
+            // 移除太遠的車輛
+            if (!lifecycle.inRange(car.x)) {
+                lifecycle.removed(car, tick, false);
+                cars.remove(i);
+            }
+        }
+    }
+
+    // 平行版本：車輛清單切成連續區段分給各執行緒，每個執行緒只移動自己區段的車，
+    // 之後依原本順序壓縮清單，因此車輛順序與位置都和依序更新完全相同
+    private void updateCarsParallel() {
+        int n = cars.size();
+        int chunks = (n + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        parallelPool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+            int end = Math.min(n, (c + 1) * PARALLEL_CHUNK);
+            for (int i = c * PARALLEL_CHUNK; i < end; i++) {
+                cars.get(i).update();
+            }
+        })).join();
+
+        long tick = tickCount - 1;
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            Car car = cars.get(i);
+            if (lifecycle.inRange(car.x)) {
+                cars.set(kept++, car);
+            } else {
+                lifecycle.removed(car, tick, false);
+            }
+        }
+        cars.subList(kept, n).clear();
+    }
+
+    // 車輛目前的位置是否與玩家重疊
+    boolean hitsPlayer(Car car) {
+        return Math.abs(car.x - player.x) < Car.CAR_WIDTH + TILE_SIZE
+                && playerBounds(player.x, player.y).intersects(car.getBounds());
+    }
+
+    private void cleanup() {
+        // 清理太遠的道路，但保留更多玩家前方的道路；多人時保留到最後方玩家後方
+        int playerRoadIndex = (int)(player.y / TILE_SIZE);
+        int trailingRoadIndex = (int)((player.y + trailingSpan()) / TILE_SIZE);
+        int retained = difficulty.rowsRetained;
+        int retainedAhead = spawner.rowsRetainedAhead(this);
+        int roadCount = roads.size();
+        roads.removeIf(road -> road.removed = road.roadIndex > trailingRoadIndex + retained
+                || road.roadIndex < playerRoadIndex - retainedAhead);
+
+        // 道路已清除的車輛離玩家很遠，不會再出現在畫面上
+        if (roads.size() < roadCount) {
+            long tick = tickCount;
+            cars.removeIf(car -> {
+                if (car.road.removed) {
+                    lifecycle.removed(car, tick, true);
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    // 檢查玩家是否在安全區域（起始區或隨機安全區）
+    public boolean isPlayerInSafeZone() {
+        return isSafeZoneAt(player.y);
+    }
+
+    boolean isSafeZoneAt(double y) {
+        int roadIndex = (int)(y / TILE_SIZE);
+
+        // 檢查起始安全區
+        if (isStartZone(roadIndex)) {
+            return true;
+        }
+
+        // 檢查隨機安全區
+        for (Road road : roads) {
+            if (road.isSafeZone && Math.abs(road.y - y) < TILE_SIZE / 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 位於 (x, y) 的玩家是否會撞到車（不考慮安全區）
+    boolean collidesWithCar(double x, double y) {
+        Rectangle playerRect = playerBounds(x, y);
+
+        for (Car car : cars) {
+            // 檢查車輛是否與玩家在同一行且距離較近
+            if (Math.abs(car.road.y - y) < TILE_SIZE &&
+                Math.abs(car.x - x) < Car.CAR_WIDTH + TILE_SIZE) {
+
+                Rectangle carRect = car.getBounds();
+
+                if (playerRect.intersects(carRect)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // 玩家碰撞框
+    static Rectangle playerBounds(double x, double y) {
+        return new Rectangle(
+            (int)(x - TILE_SIZE/2 + 2),
+            (int)(y - TILE_SIZE/2 + 2),
+            TILE_SIZE - 4,
+            TILE_SIZE - 4
+        );
+    }
+
+    // 難度參數：預設值即原本的常數，調校工具可以替每個世界個別設定
+    static class Difficulty {
+        double deathLineSpeed = DEATH_LINE_SPEED;
+        double safeZoneProbability = SAFE_ZONE_PROBABILITY;
+        int minSafeZoneInterval = MIN_SAFE_ZONE_INTERVAL;
+        int maxSafeZoneInterval = MAX_SAFE_ZONE_INTERVAL;
+        int minCarsPerRoad = Road.MIN_CARS_PER_ROAD;
+        int maxCarsPerRoad = Road.MAX_CARS_PER_ROAD;
+        double minCarSpeed = 2;
+        double maxCarSpeed = 4;
+        double carSpeedSkew = 1; // 車速分布：1 為均勻，大於 1 偏向慢車，小於 1 偏向快車
+
+        // 世界規模：預設值即原本寫死的範圍，壓力測試可以放大
+        int rowsAhead = 25; // 在玩家前方預先生成幾排道路
+        int rowsRetained = 40; // 玩家前後各保留幾排道路
+        int spawnRangeRows = 25; // 視窗上下多少排以內的道路會生成新車
+        int viewportHeight = VIEW_HEIGHT; // 攝影機視野高度
+        int despawnMargin = Car.CAR_WIDTH * 2; // 車輛離開畫面左右多遠後移除
+        int newRoadMinCars = 2; // 新生成道路上的車輛數
+        int newRoadMaxCars = 4;
+        int carBudget = Integer.MAX_VALUE; // 全世界同時存在的車輛上限
+        int parallelCarThreshold = PARALLEL_CAR_THRESHOLD; // 有 parallelPool 時，車輛數達到此值才平行更新
+        int parallelRoadThreshold = PARALLEL_ROAD_THRESHOLD; // 道路數達到此值才平行推進生成計時器
+
+        Difficulty copy() {
+            Difficulty d = new Difficulty();
+            d.deathLineSpeed = deathLineSpeed;
+            d.safeZoneProbability = safeZoneProbability;
+            d.minSafeZoneInterval = minSafeZoneInterval;
+            d.maxSafeZoneInterval = maxSafeZoneInterval;
+            d.minCarsPerRoad = minCarsPerRoad;
+            d.maxCarsPerRoad = maxCarsPerRoad;
+            d.minCarSpeed = minCarSpeed;
+            d.maxCarSpeed = maxCarSpeed;
+            d.carSpeedSkew = carSpeedSkew;
+            d.rowsAhead = rowsAhead;
+            d.rowsRetained = rowsRetained;
+            d.spawnRangeRows = spawnRangeRows;
+            d.viewportHeight = viewportHeight;
+            d.despawnMargin = despawnMargin;
+            d.newRoadMinCars = newRoadMinCars;
+            d.newRoadMaxCars = newRoadMaxCars;
+            d.carBudget = carBudget;
+            d.parallelCarThreshold = parallelCarThreshold;
+            d.parallelRoadThreshold = parallelRoadThreshold;
+            return d;
+        }
+
+        // 依名稱設定參數（命令列工具使用）
+        void set(String name, double value) {
+            switch (name) {
+                case "deathLineSpeed": deathLineSpeed = value; break;
+                case "safeZoneProbability": safeZoneProbability = value; break;
+                case "minSafeZoneInterval": minSafeZoneInterval = (int)value; break;
+                case "maxSafeZoneInterval": maxSafeZoneInterval = (int)value; break;
+                case "minCarsPerRoad": minCarsPerRoad = (int)value; break;
+                case "maxCarsPerRoad": maxCarsPerRoad = (int)value; break;
+                case "minCarSpeed": minCarSpeed = value; break;
+                case "maxCarSpeed": maxCarSpeed = value; break;
+                case "carSpeedSkew": carSpeedSkew = value; break;
+                case "rowsAhead": rowsAhead = (int)value; break;
+                case "rowsRetained": rowsRetained = (int)value; break;
+                case "spawnRangeRows": spawnRangeRows = (int)value; break;
+                case "viewportHeight": viewportHeight = (int)value; break;
+                case "despawnMargin": despawnMargin = (int)value; break;
+                case "newRoadMinCars": newRoadMinCars = (int)value; break;
+                case "newRoadMaxCars": newRoadMaxCars = (int)value; break;
+                case "carBudget": carBudget = (int)value; break;
+                case "parallelCarThreshold": parallelCarThreshold = (int)value; break;
+                case "parallelRoadThreshold": parallelRoadThreshold = (int)value; break;
+                default: throw new IllegalArgumentException("未知的難度參數: " + name);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "deathLineSpeed=" + deathLineSpeed
+                    + " safeZoneProbability=" + safeZoneProbability
+                    + " safeZoneInterval=" + minSafeZoneInterval + "-" + maxSafeZoneInterval
+                    + " carsPerRoad=" + minCarsPerRoad + "-" + maxCarsPerRoad
+                    + " carSpeed=" + minCarSpeed + "-" + maxCarSpeed;
+        }
+    }
+
+    // 玩家
+    static class Player {
+        double x, y;
+
+        public Player(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    // 車輛
+    static class Car {
+        int id; // 加入世界時指定，用於快照差異比對
+        double x, y;
+        double speed;
+        boolean movingRight;
+        Road road;
+        long spawnTick; // 生成時的 tick 與位置，供 CarLifecycle 統計
+        double spawnX;
+        static final int CAR_WIDTH = (int)(TILE_SIZE * 1.5); // 車輛寬度
+        static final int CAR_HEIGHT = TILE_SIZE; // 車輛高度
+
+        public Car(Road road) {
+            this.road = road;
+            this.y = road.y;
+            this.movingRight = road.rightDirection;
+            this.speed = road.carSpeed; // 使用道路的固定車速
+
+            // 根據方向設定起始位置
+            if (movingRight) {
+                this.x = -CAR_WIDTH; // 從左邊界外開始
+            } else {
+                this.x = WORLD_WIDTH + CAR_WIDTH; // 從右邊界外開始
+            }
+        }
+
+        public void update() {
+            if (movingRight) {
+                x += speed;
+            } else {
+                x -= speed;
+            }
+        }
+
+        public Rectangle getBounds() {
+            return boundsAt(x);
+        }
+
+        // 車輛中心在 x 時的碰撞框
+        Rectangle boundsAt(double x) {
+            return boundsAt(x, y);
+        }
+
+        static Rectangle boundsAt(double x, double y) {
+            return new Rectangle(
+                (int)(x - CAR_WIDTH/2 + 2),
+                (int)(y - CAR_HEIGHT/2 + 2),
+                CAR_WIDTH - 4,
+                CAR_HEIGHT - 4
+            );
+        }
+
+        // 獲取車輛的中心 X 座標，方便定位
+        public double getCenterX() {
+            return x;
+        }
+    }
+
+    // 道路
+    static class Road {
+        int y;
+        boolean rightDirection;
+        int roadIndex;
+        boolean isSafeZone; // 是否為安全區域
+        double carSpeed; // 這條道路上車輛的統一速度
+        int carSpawnTimer; // 車輛生成計時器
+        int carSpawnInterval; // 車輛生成間隔
+        boolean removed; // 已被清理
+        double[] reservedX; // 第一步就會被移除、沒有配置的車輛位置（見 spawnCar）
+        int reservedCount;
+        private int lastCarCount; // 上一幀的車輛數量
+        private final int minCarsPerRoad; // 每條路最少車輛數
+        private final int maxCarsPerRoad; // 每條路最多車輛數
+        static final int MIN_CARS_PER_ROAD = 4; // 預設每條路最少車輛數
+        static final int MAX_CARS_PER_ROAD = 8; // 預設每條路最多車輛數
+
+        public Road(int y, boolean rightDirection, int roadIndex, boolean isSafeZone, Random random,
+                    Difficulty difficulty) {
+            this.y = y;
+            this.rightDirection = rightDirection;
+            this.roadIndex = roadIndex;
+            this.isSafeZone = isSafeZone;
+            this.minCarsPerRoad = difficulty.minCarsPerRoad;
+            this.maxCarsPerRoad = difficulty.maxCarsPerRoad;
+
+            // 安全區域不需要車速相關設定
+            if (!isSafeZone) {
+                // 為每條道路設定固定的車速（預設 2.0-4.0 之間）
+                this.carSpeed = difficulty.minCarSpeed
+                        + Math.pow(random.nextDouble(), difficulty.carSpeedSkew) * (difficulty.maxCarSpeed - difficulty.minCarSpeed);
+
+                int baseInterval = (int)(Car.CAR_WIDTH / carSpeed);
+                this.carSpawnInterval = baseInterval + random.nextInt(30); // 增加一點隨機
+                this.carSpawnTimer = random.nextInt(carSpawnInterval);
+
+            }
+            this.lastCarCount = 0;
+        }
+
+        // 車速與生成節奏由生成策略決定的道路（見 CarSpawner.createRoad）
+        Road(int y, boolean rightDirection, int roadIndex, boolean isSafeZone, double carSpeed,
+             int carSpawnInterval, int carSpawnTimer, int minCarsPerRoad, int maxCarsPerRoad) {
+            this.y = y;
+            this.rightDirection = rightDirection;
+            this.roadIndex = roadIndex;
+            this.isSafeZone = isSafeZone;
+            this.carSpeed = carSpeed;
+            this.carSpawnInterval = carSpawnInterval;
+            this.carSpawnTimer = carSpawnTimer;
+            this.minCarsPerRoad = minCarsPerRoad;
+            this.maxCarsPerRoad = maxCarsPerRoad;
+            this.lastCarCount = 0;
+        }
+
+        void reserve(double x) {
+            if (reservedX == null) {
+                reservedX = new double[4];
+            } else if (reservedCount == reservedX.length) {
+                reservedX = java.util.Arrays.copyOf(reservedX, reservedCount * 2);
+            }
+            reservedX[reservedCount++] = x;
+        }
+
+        public void update() {
+            if (!isSafeZone) {
+                carSpawnTimer++;
+            }
+        }
+
+        public boolean shouldSpawnCar() {
+            if (isSafeZone) return false; // 安全區域不生成車輛
+
+            if (carSpawnTimer >= carSpawnInterval) {
+                carSpawnTimer = 0;
+                return true;
+            }
+            return false;
+        }
+
+        // 檢查這條道路是否需要更多車輛
+        public boolean needsMoreCars(int currentCarCount) {
+            if (isSafeZone) return false; // 安全區域不需要車輛
+            return currentCarCount < minCarsPerRoad;
+        }
+
+        // 檢查這條道路是否車輛過多
+        public boolean hasTooManyCars(int currentCarCount) {
+            if (isSafeZone) return true; // 安全區域任何車輛都算過多
+            return currentCarCount > maxCarsPerRoad;
+        }
+    }
+}
@@ -1,39 +1,311 @@
+import javax.sound.sampled.*;
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.VolatileImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+// 資源檢查工具：載入資料夾中所有圖片與 WAV，逐一回報
+//   解碼時間、解碼後在記憶體中的大小、像素格式，
+//   以及圖片是否與螢幕相容、轉成相容格式後能否被加速（需要螢幕），並量測畫到畫面緩衝區的時間
+// 有螢幕時再把所有圖片以黑色背景預覽
+//
+// 原本用 ImageIcon 載入，解碼在背景延後進行，看不出成本；這裡改用 ImageIO 立即解碼並計時
+//
+// 用法：java ImageDisplay [資料夾] [--no-window]
 public class ImageDisplay extends JFrame {
+    static final String[] IMAGE_EXTENSIONS = {".png", ".jpg", ".jpeg", ".gif", ".bmp"};
+    static final String[] SOUND_EXTENSIONS = {".wav"};
+    static final int DRAW_REPEAT = 20; // 量測繪製時間的次數
+    static final int ACCELERATION_DRAWS = 5; // 受管理的影像要先畫過幾次才會被快取到顯示卡
+    static final int THUMBNAIL_SIZE = 240;
 
-    public ImageDisplay() {
-        setTitle("圖片顯示（黑色背景）");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    // 一個資源的檢查結果
+    static class AssetReport {
+        final File file;
+        boolean image;
+        long firstDecodeNanos; // 第一次解碼，包含該格式解碼器的載入與初始化
+        long decodeNanos;
+        long memoryBytes;
+        String format;
+        int width;
+        int height;
+        String compatible = "-"; // 與螢幕的相容性，headless 時無法判斷
+        String accelerated = "-";
+        long convertNanos = -1; // 轉成相容格式的時間
+        long drawNanos = -1; // 畫到 TYPE_INT_RGB 畫面緩衝區一次的平均時間
+        double seconds; // 音效長度
+        String error;
+        BufferedImage decoded;
 
-        // 設定背景為黑色的 JPanel
-        JPanel panel = new JPanel() {
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                setBackground(Color.BLACK); // 設定背景為黑色
-            }
-        };
+        AssetReport(File file) {
+            this.file = file;
+        }
+    }
 
-        // 使用 BorderLayout 讓圖片置中
-        panel.setLayout(new BorderLayout());
+    public ImageDisplay(List<AssetReport> reports) {
+        setTitle("資源預覽（黑色背景）");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        // 載入圖片（支援透明背景的格式：PNG）
-        ImageIcon imageIcon = new ImageIcon("Unknown.jpg"); // 請確認圖檔為支援透明的格式（例如 .png）
-        JLabel imageLabel = new JLabel(imageIcon);
-        imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        imageLabel.setVerticalAlignment(SwingConstants.CENTER);
+        // 設定背景為黑色的 JPanel
+        JPanel panel = new JPanel(new GridLayout(0, 3, 8, 8));
+        panel.setBackground(Color.BLACK);
+        panel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
 
-        panel.add(imageLabel, BorderLayout.CENTER);
-        setContentPane(panel);
+        for (AssetReport report : reports) {
+            if (report.decoded == null) {
+                continue;
+            }
+            JLabel imageLabel = new JLabel(new ImageIcon(thumbnail(report.decoded)));
+            imageLabel.setText("<html>" + report.file.getName() + "<br>" + report.width + "x" + report.height
+                    + " " + report.format + "<br>" + formatBytes(report.memoryBytes) + "，解碼 "
+                    + String.format("%.1f", report.decodeNanos / 1e6) + " ms</html>");
+            imageLabel.setForeground(Color.WHITE);
+            imageLabel.setHorizontalTextPosition(SwingConstants.CENTER);
+            imageLabel.setVerticalTextPosition(SwingConstants.BOTTOM);
+            imageLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            panel.add(imageLabel);
+        }
 
+        setContentPane(new JScrollPane(panel));
         pack();
         setLocationRelativeTo(null); // 置中視窗
         setVisible(true);
     }
 
+    // 等比例縮小到預覽大小（保留透明）
+    static BufferedImage thumbnail(BufferedImage image) {
+        double scale = Math.min(1.0, (double)THUMBNAIL_SIZE / Math.max(image.getWidth(), image.getHeight()));
+        int w = Math.max(1, (int)(image.getWidth() * scale));
+        int h = Math.max(1, (int)(image.getHeight() * scale));
+        BufferedImage thumb = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = thumb.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, w, h, null);
+        g.dispose();
+        return thumb;
+    }
+
+    static boolean hasExtension(File file, String[] extensions) {
+        String name = file.getName().toLowerCase();
+        for (String extension : extensions) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 資料夾中所有圖片與音效，依檔名排序
+    static List<AssetReport> profile(File directory) {
+        File[] files = directory.listFiles(f -> f.isFile()
+                && (hasExtension(f, IMAGE_EXTENSIONS) || hasExtension(f, SOUND_EXTENSIONS)));
+        List<AssetReport> reports = new ArrayList<>();
+        if (files == null) {
+            return reports;
+        }
+        Arrays.sort(files);
+
+        GraphicsConfiguration gc = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        for (File file : files) {
+            AssetReport report = new AssetReport(file);
+            try {
+                if (hasExtension(file, IMAGE_EXTENSIONS)) {
+                    profileImage(report, gc);
+                } else {
+                    profileSound(report);
+                }
+            } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+                e.printStackTrace();
+                System.err.println("無法載入：" + file.getName());
+                report.error = e.toString();
+            }
+            reports.add(report);
+        }
+        return reports;
+    }
+
+    static void profileImage(AssetReport report, GraphicsConfiguration gc) throws IOException {
+        report.image = true;
+        long start = System.nanoTime();
+        BufferedImage image = ImageIO.read(report.file);
+        report.firstDecodeNanos = System.nanoTime() - start;
+        if (image == null) {
+            throw new IOException("沒有可以解碼這個格式的 ImageReader");
+        }
+        start = System.nanoTime();
+        image = ImageIO.read(report.file);
+        report.decodeNanos = System.nanoTime() - start;
+        report.decoded = image;
+        report.width = image.getWidth();
+        report.height = image.getHeight();
+        report.memoryBytes = memoryBytes(image);
+        report.format = pixelFormat(image);
+        report.drawNanos = drawNanos(image);
+
+        if (gc == null) {
+            // 沒有螢幕時以 TYPE_INT_ARGB / TYPE_INT_RGB 代替螢幕格式，只量測轉換時間
+            int type = image.getTransparency() == Transparency.OPAQUE
+                    ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+            report.compatible = image.getType() == type ? "int" : "需轉換";
+            start = System.nanoTime();
+            BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+            Graphics2D g = converted.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+            report.convertNanos = System.nanoTime() - start;
+            return;
+        }
+
+        ColorModel screenModel = gc.getColorModel(image.getTransparency());
+        boolean compatible = screenModel.equals(image.getColorModel());
+        report.compatible = compatible ? "是" : "否";
+        BufferedImage onScreen = image;
+        if (!compatible) {
+            start = System.nanoTime();
+            onScreen = gc.createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+            Graphics2D g = onScreen.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+            report.convertNanos = System.nanoTime() - start;
+        }
+
+        // 受管理的影像畫過幾次之後才會快取到顯示卡，先畫到 VolatileImage 上再查詢
+        VolatileImage target = gc.createCompatibleVolatileImage(
+                Math.min(image.getWidth(), 1024), Math.min(image.getHeight(), 1024));
+        for (int i = 0; i < ACCELERATION_DRAWS; i++) {
+            Graphics2D g = target.createGraphics();
+            g.drawImage(onScreen, 0, 0, null);
+            g.dispose();
+        }
+        boolean originalAccelerated = image.getCapabilities(gc).isAccelerated();
+        boolean convertedAccelerated = onScreen.getCapabilities(gc).isAccelerated();
+        report.accelerated = compatible ? (originalAccelerated ? "是" : "否")
+                : (convertedAccelerated ? "轉換後是" : "否");
+        target.flush();
+    }
+
+    // 解碼後的像素資料大小
+    static long memoryBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long)buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    static String pixelFormat(BufferedImage image) {
+        String type;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB: type = "INT_RGB"; break;
+            case BufferedImage.TYPE_INT_ARGB: type = "INT_ARGB"; break;
+            case BufferedImage.TYPE_INT_ARGB_PRE: type = "INT_ARGB_PRE"; break;
+            case BufferedImage.TYPE_INT_BGR: type = "INT_BGR"; break;
+            case BufferedImage.TYPE_3BYTE_BGR: type = "3BYTE_BGR"; break;
+            case BufferedImage.TYPE_4BYTE_ABGR: type = "4BYTE_ABGR"; break;
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE: type = "4BYTE_ABGR_PRE"; break;
+            case BufferedImage.TYPE_BYTE_GRAY: type = "BYTE_GRAY"; break;
+            case BufferedImage.TYPE_BYTE_INDEXED: type = "BYTE_INDEXED"; break;
+            case BufferedImage.TYPE_USHORT_GRAY: type = "USHORT_GRAY"; break;
+            default: type = "CUSTOM"; break;
+        }
+        String transparency;
+        switch (image.getTransparency()) {
+            case Transparency.OPAQUE: transparency = "不透明"; break;
+            case Transparency.BITMASK: transparency = "透明遮罩"; break;
+            default: transparency = "半透明"; break;
+        }
+        return type + " " + image.getColorModel().getPixelSize() + "bpp " + transparency;
+    }
+
+    // 以原尺寸畫到一個 800x600 TYPE_INT_RGB 緩衝區（與遊戲的畫面緩衝區相同）的平均時間
+    static long drawNanos(BufferedImage image) {
+        BufferedImage canvas = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = canvas.createGraphics();
+        g.drawImage(image, 0, 0, null); // 第一次不計
+        long start = System.nanoTime();
+        for (int i = 0; i < DRAW_REPEAT; i++) {
+            g.drawImage(image, 0, 0, null);
+        }
+        long elapsed = System.nanoTime() - start;
+        g.dispose();
+        return elapsed / DRAW_REPEAT;
+    }
+
+    static void profileSound(AssetReport report) throws IOException, UnsupportedAudioFileException {
+        long start = System.nanoTime();
+        AudioInputStream stream = AudioSystem.getAudioInputStream(report.file);
+        try {
+            AudioFormat format = stream.getFormat();
+            byte[] data = stream.readAllBytes();
+            report.decodeNanos = System.nanoTime() - start;
+            report.firstDecodeNanos = report.decodeNanos;
+            report.memoryBytes = data.length;
+            report.seconds = data.length / (double)format.getFrameSize() / format.getFrameRate();
+            report.format = format.getEncoding() + " " + (int)format.getSampleRate() + "Hz "
+                    + format.getSampleSizeInBits() + "bit " + format.getChannels() + "ch";
+        } finally {
+            stream.close();
+        }
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format("%.1f MB", bytes / 1024.0 / 1024.0);
+        }
+        return String.format("%.1f KB", bytes / 1024.0);
+    }
+
+    static void printReports(List<AssetReport> reports) {
+        long totalFile = 0;
+        long totalMemory = 0;
+        long totalDecode = 0;
+        System.out.printf("%-44s %10s %10s %10s %10s %-30s %8s %10s %10s %10s%n", "檔案", "檔案大小", "首次解碼ms", "解碼ms", "記憶體",
+                "格式", "相容", "加速", "轉換ms", "繪製ms");
+        for (AssetReport r : reports) {
+            String name = r.file.getName();
+            if (name.length() > 44) {
+                name = name.substring(0, 41) + "...";
+            }
+            if (r.error != null) {
+                System.out.printf("%-44s 錯誤：%s%n", name, r.error);
+                continue;
+            }
+            String format = r.image ? r.width + "x" + r.height + " " + r.format
+                    : r.format + String.format(" %.1fs", r.seconds);
+            System.out.printf("%-44s %10s %10.1f %10.1f %10s %-30s %8s %10s %10s %10s%n",
+                    name, formatBytes(r.file.length()), r.firstDecodeNanos / 1e6, r.decodeNanos / 1e6, formatBytes(r.memoryBytes), format,
+                    r.compatible, r.accelerated,
+                    r.convertNanos < 0 ? "-" : String.format("%.1f", r.convertNanos / 1e6),
+                    r.drawNanos < 0 ? "-" : String.format("%.2f", r.drawNanos / 1e6));
+            totalFile += r.file.length();
+            totalMemory += r.memoryBytes;
+            totalDecode += r.firstDecodeNanos;
+        }
+        System.out.printf("共 %d 個資源：檔案 %s，首次解碼共 %.1f ms，記憶體 %s%n", reports.size(),
+                formatBytes(totalFile), totalDecode / 1e6, formatBytes(totalMemory));
+    }
+
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new ImageDisplay());
+        File directory = new File(".");
+        boolean window = true;
+        for (String arg : args) {
+            if (arg.equals("--no-window")) {
+                window = false;
+            } else {
+                directory = new File(arg);
+            }
+        }
+
+        List<AssetReport> reports = profile(directory);
+        printReports(reports);
+        if (window && !GraphicsEnvironment.isHeadless()) {
+            SwingUtilities.invokeLater(() -> new ImageDisplay(reports));
+        }
     }
 }
@@ -0,0 +1,432 @@
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// 本機排行榜：每場遊戲結束後把成績附加到只增不改的記錄檔，記憶體中維護前 K 名、
+// 每個種子的最高分與分數分布，排名查詢不需要讀檔
+//
+// 檔案格式（小端序）：
+//   [標頭]  MAGIC(int) VERSION(int)
+//   [紀錄]  每筆 RECORD_SIZE 位元組：seed(long) score(int) durationTicks(int) deathCause(int) timestamp(long) crc32(int)
+// 每筆紀錄都有 CRC，程式中途結束時寫到一半的尾端紀錄會在下次開啟時被偵測並截掉
+//
+// 寫入由背景執行緒批次進行，遊戲執行緒只更新記憶體索引後就返回
+public class Leaderboard {
+    static final int MAGIC = 0x424C5243; // "CRLB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 32;
+    static final int DEFAULT_TOP_K = 100;
+    static final int MAX_BATCH = 256;
+    static final int READ_CHUNK_RECORDS = 2048; // 重建索引時每次讀取的紀錄數
+
+    // 一場遊戲的成績
+    public static class Run {
+        final long seed;
+        final int score;
+        final int durationTicks;
+        final int deathCause;
+        final long timestamp;
+
+        public Run(long seed, int score, int durationTicks, int deathCause, long timestamp) {
+            this.seed = seed;
+            this.score = score;
+            this.durationTicks = durationTicks;
+            this.deathCause = deathCause;
+            this.timestamp = timestamp;
+        }
+    }
+
+    // 分數相同時較早的成績排前面
+    static final Comparator<Run> RANK_ORDER =
+            Comparator.comparingInt((Run r) -> -r.score).thenComparingLong(r -> r.timestamp);
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int topK;
+
+    // 記憶體索引（以 this 同步）
+    private final PriorityQueue<Run> top; // 最小堆積：堆頂是目前前 K 名中最差的一筆
+    private int[] scoreCounts = new int[256]; // 各分數的場數，用來計算名次
+    private int maxScore;
+    private long runCount;
+    // 種子 -> 最高分，開放定址雜湊表；空位以 EMPTY_SCORE 標記
+    private static final int EMPTY_SCORE = -1;
+    private long[] seedKeys = new long[1024];
+    private int[] seedBest = new int[1024];
+    private int seedCount;
+
+    // 背景寫入
+    private final LinkedBlockingQueue<Run> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile long writtenRuns;
+    private volatile long batchesWritten;
+
+    private final long rebuildNanos;
+    private final long truncatedBytes;
+
+    private Leaderboard(File logFile, int topK) throws IOException {
+        this.topK = topK;
+        this.top = new PriorityQueue<>(topK + 1, RANK_ORDER.reversed());
+        java.util.Arrays.fill(seedBest, EMPTY_SCORE);
+
+        file = new RandomAccessFile(logFile, "rw");
+        channel = file.getChannel();
+        long start = System.nanoTime();
+        long valid;
+        try {
+            valid = rebuild();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        rebuildNanos = System.nanoTime() - start;
+
+        // 截掉寫到一半或損毀的尾端紀錄，之後從有效結尾繼續附加
+        long size = channel.size();
+        truncatedBytes = size - valid;
+        if (size > valid) {
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        channel.position(valid);
+
+        writer = new Thread(this::writeLoop, "leaderboard-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static Leaderboard open(File logFile) throws IOException {
+        return new Leaderboard(logFile, DEFAULT_TOP_K);
+    }
+
+    public static Leaderboard open(File logFile, int topK) throws IOException {
+        return new Leaderboard(logFile, topK);
+    }
+
+    // 分段讀取記錄檔並重建索引，回傳有效資料的結尾位置
+    // 不使用記憶體映射：映射要等到被回收才會解除，Windows 上仍有映射的檔案不能截短
+    private long rebuild() throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            // 新檔案（或連標頭都沒寫完）：寫入標頭
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+            channel.force(true);
+            return HEADER_SIZE;
+        }
+
+        ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        chunk.limit(HEADER_SIZE);
+        readFully(chunk, 0);
+        if (chunk.getInt(0) != MAGIC) {
+            throw new IOException("排行榜記錄檔標記錯誤");
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] bytes = chunk.array();
+        long pos = HEADER_SIZE;
+        while (pos + RECORD_SIZE <= size) {
+            // 每次讀取完整的紀錄，寫到一半的尾端紀錄不讀
+            chunk.clear();
+            chunk.limit((int)Math.min(chunk.capacity(), (size - pos) / RECORD_SIZE * RECORD_SIZE));
+            readFully(chunk, pos);
+            for (int off = 0; off < chunk.limit(); off += RECORD_SIZE) {
+                crc.reset();
+                crc.update(bytes, off, RECORD_SIZE - 4);
+                if ((int)crc.getValue() != chunk.getInt(off + RECORD_SIZE - 4)) {
+                    return pos + off;
+                }
+                long seed = chunk.getLong(off);
+                int score = chunk.getInt(off + 8);
+                // 只有可能進榜的紀錄才建立物件，其餘只更新基本型別的統計
+                if (top.size() < topK || score > top.peek().score) {
+                    index(new Run(seed, score, chunk.getInt(off + 12), chunk.getInt(off + 16), chunk.getLong(off + 20)));
+                } else {
+                    count(seed, score);
+                }
+            }
+            pos += chunk.limit();
+        }
+        return pos;
+    }
+
+    // 從檔案的 position 處讀滿 buffer 剩餘的空間
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long at = position;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, at);
+            if (n < 0) {
+                throw new EOFException("排行榜記錄檔在讀取時變短");
+            }
+            at += n;
+        }
+    }
+
+    private void index(Run run) {
+        count(run.seed, run.score);
+        top.add(run);
+        if (top.size() > topK) {
+            top.poll();
+        }
+    }
+
+    private void count(long seed, int score) {
+        if (score >= scoreCounts.length) {
+            scoreCounts = java.util.Arrays.copyOf(scoreCounts, Math.max(score + 1, scoreCounts.length * 2));
+        }
+        scoreCounts[score]++;
+        maxScore = Math.max(maxScore, score);
+        runCount++;
+
+        if ((seedCount + 1) * 2 > seedKeys.length) {
+            growSeeds();
+        }
+        int slot = seedSlot(seedKeys, seedBest, seed);
+        if (seedBest[slot] == EMPTY_SCORE) {
+            seedKeys[slot] = seed;
+            seedBest[slot] = score;
+            seedCount++;
+        } else if (score > seedBest[slot]) {
+            seedBest[slot] = score;
+        }
+    }
+
+    private static int seedSlot(long[] keys, int[] best, long seed) {
+        int mask = keys.length - 1;
+        int slot = (int)(seed * 0x9E3779B97F4A7C15L >>> 40) & mask;
+        while (best[slot] != EMPTY_SCORE && keys[slot] != seed) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growSeeds() {
+        long[] keys = new long[seedKeys.length * 2];
+        int[] best = new int[keys.length];
+        java.util.Arrays.fill(best, EMPTY_SCORE);
+        for (int i = 0; i < seedKeys.length; i++) {
+            if (seedBest[i] != EMPTY_SCORE) {
+                int slot = seedSlot(keys, best, seedKeys[i]);
+                keys[slot] = seedKeys[i];
+                best[slot] = seedBest[i];
+            }
+        }
+        seedKeys = keys;
+        seedBest = best;
+    }
+
+    // 記錄一場成績：立即更新索引，檔案寫入交給背景執行緒
+    // 檢查是否已關閉與加入待寫佇列在同一把鎖下，close 之前送出的成績一定會寫入
+    public synchronized void submit(Run run) {
+        if (closed) {
+            throw new IllegalStateException("排行榜已關閉");
+        }
+        index(run);
+        pending.add(run);
+    }
+
+    // 名次：分數比它高的場數加一
+    public synchronized long rank(int score) {
+        long above = 0;
+        for (int s = Math.max(score + 1, 0); s <= maxScore; s++) {
+            above += scoreCounts[s];
+        }
+        return above + 1;
+    }
+
+    // 前 n 名，由高到低
+    public synchronized List<Run> top(int n) {
+        ArrayList<Run> list = new ArrayList<>(top);
+        list.sort(RANK_ORDER);
+        return list.size() > n ? new ArrayList<>(list.subList(0, n)) : list;
+    }
+
+    // 指定種子的最高分，沒有紀錄時回傳 -1
+    public synchronized int bestForSeed(long seed) {
+        return seedBest[seedSlot(seedKeys, seedBest, seed)];
+    }
+
+    public synchronized int bestScore() {
+        return top.isEmpty() ? 0 : maxScore;
+    }
+
+    public synchronized long runCount() {
+        return runCount;
+    }
+
+    public synchronized int seedCount() {
+        return seedCount;
+    }
+
+    public long rebuildNanos() {
+        return rebuildNanos;
+    }
+
+    public long truncatedBytes() {
+        return truncatedBytes;
+    }
+
+    public long writtenRuns() {
+        return writtenRuns;
+    }
+
+    public long batchesWritten() {
+        return batchesWritten;
+    }
+
+    // 背景寫入：一次取出所有待寫紀錄，合併成一次 write 加一次 force
+    private void writeLoop() {
+        ByteBuffer batch = ByteBuffer.allocateDirect(MAX_BATCH * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ArrayList<Run> runs = new ArrayList<>(MAX_BATCH);
+        CRC32 crc = new CRC32();
+        while (true) {
+            try {
+                Run first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // closed 在最後一筆加入佇列之後才設定，讀到 closed 時佇列若是空的就不會再有成績
+                    if (closed && pending.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                runs.clear();
+                runs.add(first);
+                pending.drainTo(runs, MAX_BATCH - 1);
+
+                batch.clear();
+                for (Run run : runs) {
+                    int start = batch.position();
+                    batch.putLong(run.seed).putInt(run.score).putInt(run.durationTicks)
+                            .putInt(run.deathCause).putLong(run.timestamp);
+                    int end = batch.position();
+                    crc.reset();
+                    batch.position(start).limit(end);
+                    crc.update(batch);
+                    batch.limit(batch.capacity());
+                    batch.putInt((int)crc.getValue());
+                }
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                writtenRuns += runs.size();
+                batchesWritten++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.err.println("無法寫入排行榜紀錄，" + runs.size() + " 筆成績未儲存");
+            }
+        }
+    }
+
+    // 寫完所有待寫紀錄後關閉檔案
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("關閉排行榜記錄檔時發生錯誤");
+        }
+    }
+
+    static String deathCauseName(int deathCause) {
+        switch (deathCause) {
+            case GameWorld.DEATH_CAR: return "車輛";
+            case GameWorld.DEATH_LINE: return "死亡線";
+            default: return "-";
+        }
+    }
+
+    // 用法：
+    //   java Leaderboard [記錄檔]                     列出前 10 名
+    //   java Leaderboard --generate=N [記錄檔]        附加 N 筆模擬成績，再量測重建與查詢時間
+    public static void main(String[] args) throws IOException {
+        String path = "leaderboard.crlb";
+        long generate = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--generate=")) {
+                generate = Long.parseLong(arg.substring(11));
+            } else {
+                path = arg;
+            }
+        }
+        File logFile = new File(path);
+
+        if (generate > 0) {
+            Leaderboard board = open(logFile);
+            SplittableRandom rng = new SplittableRandom(generate);
+            long now = System.currentTimeMillis();
+            long start = System.nanoTime();
+            for (long i = 0; i < generate; i++) {
+                // 分數大致呈指數分布，種子集中在十萬個之內以產生重複
+                int score = (int)(-Math.log(1 - rng.nextDouble()) * 40);
+                int ticks = score * 50 + rng.nextInt(600);
+                int cause = rng.nextInt(4) == 0 ? GameWorld.DEATH_LINE : GameWorld.DEATH_CAR;
+                board.submit(new Run(rng.nextInt(100_000), score, ticks, cause, now + i));
+            }
+            long submitNanos = System.nanoTime() - start;
+            board.close();
+            System.out.printf("附加 %d 筆：submit 平均 %.0fns，背景寫入 %d 批%n",
+                    generate, submitNanos / (double)generate, board.batchesWritten());
+        }
+
+        Leaderboard board = open(logFile);
+        System.out.printf("%s：%d 場、%d 個種子，重建索引 %.1fms%s%n", path, board.runCount(), board.seedCount(),
+                board.rebuildNanos() / 1e6,
+                board.truncatedBytes() > 0 ? "（截掉損毀尾端 " + board.truncatedBytes() + " 位元組）" : "");
+        int place = 1;
+        for (Run run : board.top(10)) {
+            System.out.printf("%3d. 得分 %5d  存活 %6.1fs  死因 %s  種子 %d%n", place++, run.score,
+                    run.durationTicks / 60.0, deathCauseName(run.deathCause), run.seed);
+        }
+
+        if (board.runCount() > 0) {
+            int queries = 1_000_000;
+            SplittableRandom rng = new SplittableRandom(1);
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                sink += board.rank(rng.nextInt(board.bestScore() + 1));
+            }
+            long rankNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                sink += board.bestForSeed(rng.nextInt(100_000));
+            }
+            long seedNanos = System.nanoTime() - start;
+            System.out.printf("名次查詢平均 %.0fns，種子最高分查詢平均 %.0fns（%d）%n",
+                    rankNanos / (double)queries, seedNanos / (double)queries, sink & 1);
+        }
+        board.close();
+    }
+}
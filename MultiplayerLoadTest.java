@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+// 多人伺服器本機壓力測試：在 127.0.0.1 啟動伺服器，以模擬用戶端逐步增加玩家數，
+// 量測伺服器 tick 時間與每位用戶端收到的位元組數
+// 開始前先檢查玩家分散時的共用世界：最後方玩家落後超過道路保留與生成範圍時，附近仍要有車道並持續生成車輛，
+// 不符合時以非零狀態結束
+//
+// 用法：java MultiplayerLoadTest [最多玩家數] [每階段秒數]
+public class MultiplayerLoadTest {
+
+    // 模擬用戶端：每隔固定時間送出隨機移動，並解析收到的訊息框
+    static class SimulatedClient {
+        final SocketChannel channel;
+        final SplittableRandom rng;
+        final ByteBuffer in = ByteBuffer.allocate(128 * 1024);
+        final ByteBuffer move = ByteBuffer.allocate(1);
+        long bytesReceived;
+        long snapshotsReceived;
+
+        SimulatedClient(SocketChannel channel, long seed) {
+            this.channel = channel;
+            this.rng = new SplittableRandom(seed);
+        }
+
+        void read() throws IOException {
+            int n = channel.read(in);
+            if (n <= 0) {
+                return;
+            }
+            bytesReceived += n;
+            in.flip();
+            while (in.remaining() >= 5) {
+                int length = in.getInt(in.position());
+                if (in.remaining() < 4 + length) {
+                    break;
+                }
+                if (in.get(in.position() + 4) == MultiplayerServer.MSG_SNAPSHOT) {
+                    snapshotsReceived++;
+                }
+                in.position(in.position() + 4 + length);
+            }
+            in.compact();
+        }
+
+        void sendMove() throws IOException {
+            int m = AutoPlayer.randomMove(rng);
+            if (m == AutoPlayer.NO_MOVE) {
+                return;
+            }
+            move.clear();
+            move.put((byte)m).flip();
+            channel.write(move);
+        }
+    }
+
+    static void runLevel(int clients, int seconds) throws IOException, InterruptedException {
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        MultiplayerServer server = new MultiplayerServer(loopback, 1234);
+        Thread serverThread = new Thread(server, "multiplayer-server");
+        serverThread.start();
+
+        Selector selector = Selector.open();
+        ArrayList<SimulatedClient> list = new ArrayList<>();
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port());
+        for (int i = 0; i < clients; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            SimulatedClient client = new SimulatedClient(channel, i);
+            channel.register(selector, SelectionKey.OP_READ, client);
+            list.add(client);
+        }
+
+        // 預熱一秒後再開始計算
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        long end = warmupEnd + seconds * 1_000_000_000L;
+        long nextMove = System.nanoTime();
+        long moveInterval = MultiplayerServer.TICK_NANOS * AutoPlayer.DEFAULT_HOP_INTERVAL;
+        long ticksAtStart = 0;
+        long bytesAtStart = 0;
+        long[] clientBytesAtStart = new long[clients];
+        long[] clientSnapshotsAtStart = new long[clients];
+        boolean measuring = false;
+
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                break;
+            }
+            if (!measuring && now >= warmupEnd) {
+                measuring = true;
+                ticksAtStart = server.ticks();
+                bytesAtStart = server.bytesSent();
+                for (int i = 0; i < clients; i++) {
+                    clientBytesAtStart[i] = list.get(i).bytesReceived;
+                    clientSnapshotsAtStart[i] = list.get(i).snapshotsReceived;
+                }
+            }
+            if (now >= nextMove) {
+                for (SimulatedClient client : list) {
+                    client.sendMove();
+                }
+                nextMove += moveInterval;
+            }
+            selector.select(5);
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                ((SimulatedClient)key.attachment()).read();
+            }
+        }
+
+        long ticks = server.ticks() - ticksAtStart;
+        long bytes = server.bytesSent() - bytesAtStart;
+        long clientBytes = 0;
+        long clientSnapshots = 0;
+        for (int i = 0; i < clients; i++) {
+            clientBytes += list.get(i).bytesReceived - clientBytesAtStart[i];
+            clientSnapshots += list.get(i).snapshotsReceived - clientSnapshotsAtStart[i];
+        }
+
+        System.out.printf("%4d 玩家  tick=%.0f/s  平均 tick %.1fus（廣播 %.1fus）最慢 %.1fus  "
+                        + "送出 %.1fKB/s  每位 %.2fKB/s（%.0fB/快照）  丟棄快照 %d%n",
+                clients, ticks / (double)seconds, server.averageTickMicros(), server.averageBroadcastMicros(),
+                server.maxTickMicros(), bytes / 1024.0 / seconds, clientBytes / 1024.0 / seconds / clients,
+                clientSnapshots == 0 ? 0 : (double)clientBytes / clientSnapshots, server.snapshotsDropped());
+
+        server.stop();
+        serverThread.join();
+        for (SimulatedClient client : list) {
+            client.channel.close();
+        }
+        selector.close();
+    }
+
+    // 以伺服器推進共用世界的方式，讓最前方玩家一路往前、最後方玩家停在原地，
+    // 直到兩人相距 gapRows 排；之後最後方玩家附近的車道必須都還在，而且在觀察期間有新車生成
+    static boolean checkSpread(long seed, int gapRows) {
+        GameWorld world = new GameWorld(seed);
+        double trailY = -(GameWorld.SAFE_ZONE_SIZE + 5) * GameWorld.TILE_SIZE;
+        double leadY = trailY;
+        int trailRow = (int)(trailY / GameWorld.TILE_SIZE);
+        long ticks = 0;
+        while (leadY > trailY - gapRows * GameWorld.TILE_SIZE) {
+            if (ticks % AutoPlayer.DEFAULT_HOP_INTERVAL == 0) {
+                leadY -= GameWorld.TILE_SIZE;
+            }
+            MultiplayerServer.advanceSharedWorld(world, leadY, trailY);
+            ticks++;
+        }
+
+        int firstNewCar = world.cars.isEmpty() ? 0 : world.cars.get(world.cars.size() - 1).id + 1;
+        int newCars = 0;
+        int missingRoads = 0;
+        for (int t = 0; t < 10 * MultiplayerServer.TICK_HZ; t++) {
+            MultiplayerServer.advanceSharedWorld(world, leadY, trailY);
+        }
+        for (int row = trailRow - 3; row <= trailRow + 3; row++) {
+            boolean found = false;
+            for (GameWorld.Road road : world.roads) {
+                found |= road.roadIndex == row;
+            }
+            if (!found) {
+                missingRoads++;
+            }
+        }
+        for (GameWorld.Car car : world.cars) {
+            if (car.id >= firstNewCar && Math.abs(car.road.roadIndex - trailRow) <= 3) {
+                newCars++;
+            }
+        }
+        boolean ok = missingRoads == 0 && newCars > 0;
+        System.out.printf("分散玩家（種子 %d，相距 %d 排）：最後方玩家前後 3 排缺少車道 %d 條，10 秒內新生成的車 %d 輛 %s%n",
+                seed, gapRows, missingRoads, newCars, ok ? "OK" : "FAIL");
+        return ok;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        GameWorld.Difficulty difficulty = new GameWorld.Difficulty();
+        boolean spreadOk = true;
+        for (long seed = 1; seed <= 5; seed++) {
+            spreadOk &= checkSpread(seed, difficulty.spawnRangeRows + 5); // 超出生成範圍
+            spreadOk &= checkSpread(seed, difficulty.rowsRetained + 20); // 超出道路保留範圍
+        }
+        if (!spreadOk) {
+            System.exit(1);
+        }
+
+        int maxClients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        for (int clients = 1; clients <= maxClients; clients *= 2) {
+            runLevel(clients, seconds);
+        }
+    }
+}
@@ -0,0 +1,473 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+// 權威式多人伺服器：道路與車輛狀態只存在伺服器上，玩家透過 java.nio 非阻塞連線送出移動
+//
+// 協定（大端序，每則訊息前置 int 長度）：
+//   用戶端 -> 伺服器：每個位元組是一個移動（GameWorld.MOVE_*）
+//   伺服器 -> 用戶端：
+//     MSG_WELCOME  id(short) seed(long)
+//     MSG_SNAPSHOT tick(int) 自己的id(short) deathLineY(float)
+//                  玩家數(byte) { id(short) x(float) y(float) alive(byte) score(int) }
+//                  車道數(short) { roadIndex(int) flags(byte) speed(float) 車數(byte) { x(float) } }
+// 快照只包含玩家附近 VIEW_ROWS_AHEAD / VIEW_ROWS_BEHIND 排內的車道與玩家（興趣管理）
+public class MultiplayerServer implements Runnable {
+    static final int DEFAULT_PORT = 7777;
+    static final int TICK_HZ = 60;
+    static final int BROADCAST_HZ = 20;
+    static final long TICK_NANOS = 1_000_000_000L / TICK_HZ;
+    static final int VIEW_ROWS_AHEAD = 15;
+    static final int VIEW_ROWS_BEHIND = 5;
+    static final int MAX_PENDING_BYTES = 64 * 1024; // 用戶端積壓超過此值就略過快照
+
+    static final byte MSG_WELCOME = 0;
+    static final byte MSG_SNAPSHOT = 1;
+
+    static final byte LANE_SAFE = 1;
+    static final byte LANE_RIGHT = 2;
+
+    // 連線中的玩家
+    static class RemotePlayer {
+        final int id;
+        final SocketChannel channel;
+        final GameWorld.Player player;
+        boolean alive = true;
+        boolean closed;
+        int score;
+        final ByteBuffer in = ByteBuffer.allocate(256);
+        final ByteBuffer out = ByteBuffer.allocate(MAX_PENDING_BYTES);
+        long bytesSent;
+
+        RemotePlayer(int id, SocketChannel channel) {
+            this.id = id;
+            this.channel = channel;
+            this.player = new GameWorld.Player(spawnX(id), 0);
+            out.flip(); // out 平時保持在「可讀取」狀態
+        }
+    }
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final GameWorld world;
+    private final ArrayList<RemotePlayer> players = new ArrayList<>();
+    private long nextSeed;
+    private int nextPlayerId;
+    private volatile boolean running = true;
+
+    // 廣播時使用的暫存：依 roadIndex 排序的車道，以及每條車道的車輛
+    private GameWorld.Road[] sortedRoads = new GameWorld.Road[128];
+    private int[] laneCarStart = new int[129];
+    private float[] laneCarX = new float[1024];
+    private int[] laneFill = new int[128];
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_PENDING_BYTES);
+
+    // 統計
+    private volatile long ticks;
+    private volatile long tickNanosTotal;
+    private volatile long maxTickNanos;
+    private volatile long broadcastNanosTotal;
+    private volatile long bytesSentTotal;
+    private volatile long snapshotsSent;
+    private volatile long snapshotsDropped;
+
+    public MultiplayerServer(InetSocketAddress bindAddress, long seed) throws IOException {
+        this.nextSeed = seed;
+        this.world = new GameWorld(nextSeed++);
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(bindAddress);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    static double spawnX(int id) {
+        return GameWorld.WORLD_WIDTH / 2 + ((id % 9) - 4) * GameWorld.TILE_SIZE;
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime();
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 1_000_000) {
+                    selector.select(wait / 1_000_000);
+                } else {
+                    selector.selectNow();
+                }
+                handleKeys();
+
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    tick();
+                    nextTick += TICK_NANOS;
+                    if (now - nextTick > TICK_NANOS * 10) {
+                        nextTick = now; // 落後太多時不再追趕，避免連續補跑
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("多人伺服器發生錯誤，停止運作");
+        } finally {
+            for (RemotePlayer p : players) {
+                closeQuietly(p.channel);
+            }
+            closeQuietly(serverChannel);
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void handleKeys() throws IOException {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            RemotePlayer p = (RemotePlayer)key.attachment();
+            if (p.closed) {
+                continue;
+            }
+            try {
+                if (key.isReadable()) {
+                    readInput(p);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(p);
+                }
+            } catch (IOException e) {
+                disconnect(p);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        RemotePlayer p = new RemotePlayer(nextPlayerId++, channel);
+        players.add(p);
+        channel.register(selector, SelectionKey.OP_READ, p);
+
+        scratch.clear();
+        scratch.putInt(11).put(MSG_WELCOME).putShort((short)p.id).putLong(world.seed);
+        scratch.flip();
+        enqueue(p, scratch);
+    }
+
+    private void readInput(RemotePlayer p) throws IOException {
+        int n = p.channel.read(p.in);
+        if (n < 0) {
+            disconnect(p);
+            return;
+        }
+        p.in.flip();
+        while (p.in.hasRemaining()) {
+            int move = p.in.get();
+            if (p.alive && move >= GameWorld.MOVE_UP && move <= GameWorld.MOVE_RIGHT) {
+                GameWorld.applyMove(p.player, move);
+            }
+        }
+        p.in.clear();
+    }
+
+    // 只標記為已關閉，於 tick 結束時才從清單移除，避免在走訪 players 時修改清單
+    private void disconnect(RemotePlayer p) {
+        p.closed = true;
+        closeQuietly(p.channel);
+    }
+
+    private static void closeQuietly(java.io.Closeable c) {
+        try {
+            c.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // 伺服器 tick：以最前方的存活玩家驅動道路生成，道路保留與車輛生成延伸到最後方的存活玩家，再逐一判定每位玩家的死亡
+    private void tick() {
+        long start = System.nanoTime();
+        ticks++;
+
+        double leadY = Double.MAX_VALUE;
+        double trailY = -Double.MAX_VALUE;
+        for (RemotePlayer p : players) {
+            if (p.alive && !p.closed) {
+                leadY = Math.min(leadY, p.player.y);
+                trailY = Math.max(trailY, p.player.y);
+            }
+        }
+        if (leadY == Double.MAX_VALUE) {
+            if (!players.isEmpty()) {
+                startNewRound();
+            }
+            leadY = 0;
+            trailY = 0;
+        }
+        advanceSharedWorld(world, leadY, trailY);
+
+        for (RemotePlayer p : players) {
+            if (!p.alive || p.closed) {
+                continue;
+            }
+            if (p.player.y >= world.deathLineWorldY
+                    || (!world.isSafeZoneAt(p.player.y) && world.collidesWithCar(p.player.x, p.player.y))) {
+                p.alive = false;
+            } else {
+                p.score = Math.max(p.score, (int)(-p.player.y / GameWorld.TILE_SIZE));
+            }
+        }
+
+        if (ticks % (TICK_HZ / BROADCAST_HZ) == 0) {
+            long broadcastStart = System.nanoTime();
+            broadcast();
+            broadcastNanosTotal += System.nanoTime() - broadcastStart;
+        }
+
+        players.removeIf(p -> p.closed);
+
+        long elapsed = System.nanoTime() - start;
+        tickNanosTotal += elapsed;
+        if (elapsed > maxTickNanos) {
+            maxTickNanos = elapsed;
+        }
+    }
+
+    // 推進共用的世界一個 tick：攝影機與道路生成跟著最前方玩家（leadY），
+    // 道路保留與新車生成的範圍延伸到最後方玩家（trailY），落後很多的玩家附近仍有車道與車輛
+    static void advanceSharedWorld(GameWorld world, double leadY, double trailY) {
+        world.tickCount++;
+        world.player.x = GameWorld.WORLD_WIDTH / 2;
+        world.player.y = leadY;
+        world.trailingY = trailY;
+        if (!world.gameStarted && leadY < -GameWorld.SAFE_ZONE_SIZE * GameWorld.TILE_SIZE) {
+            world.gameStarted = true;
+        }
+        world.updateCamera();
+        if (world.gameStarted) {
+            world.deathLineWorldY -= world.difficulty.deathLineSpeed;
+        }
+        world.advanceEnvironment();
+    }
+
+    // 所有玩家都死亡後，以新種子重建世界並讓大家回到起點
+    private void startNewRound() {
+        world.reset(nextSeed++);
+        for (RemotePlayer p : players) {
+            p.alive = true;
+            p.score = 0;
+            p.player.x = spawnX(p.id);
+            p.player.y = 0;
+        }
+    }
+
+    private void broadcast() {
+        indexLanes();
+        int roadCount = world.roads.size();
+        for (RemotePlayer p : players) {
+            if (p.closed) {
+                continue;
+            }
+            int playerRow = (int)Math.floor(p.player.y / GameWorld.TILE_SIZE);
+            int minRow = playerRow - VIEW_ROWS_AHEAD;
+            int maxRow = playerRow + VIEW_ROWS_BEHIND;
+
+            scratch.clear();
+            scratch.putInt(0); // 長度稍後回填
+            scratch.put(MSG_SNAPSHOT);
+            scratch.putInt((int)ticks);
+            scratch.putShort((short)p.id);
+            scratch.putFloat((float)world.deathLineWorldY);
+
+            int countPos = scratch.position();
+            scratch.put((byte)0);
+            int visiblePlayers = 0;
+            for (RemotePlayer other : players) {
+                int row = (int)Math.floor(other.player.y / GameWorld.TILE_SIZE);
+                if (row < minRow || row > maxRow || visiblePlayers == 255) {
+                    continue;
+                }
+                scratch.putShort((short)other.id);
+                scratch.putFloat((float)other.player.x);
+                scratch.putFloat((float)other.player.y);
+                scratch.put((byte)(other.alive ? 1 : 0));
+                scratch.putInt(other.score);
+                visiblePlayers++;
+            }
+            scratch.put(countPos, (byte)visiblePlayers);
+
+            countPos = scratch.position();
+            scratch.putShort((short)0);
+            int lanes = 0;
+            int first = lowerBound(roadCount, minRow);
+            for (int r = first; r < roadCount && sortedRoads[r].roadIndex <= maxRow; r++) {
+                GameWorld.Road road = sortedRoads[r];
+                int carCount = Math.min(255, laneCarStart[r + 1] - laneCarStart[r]);
+                scratch.putInt(road.roadIndex);
+                scratch.put((byte)((road.isSafeZone ? LANE_SAFE : 0) | (road.rightDirection ? LANE_RIGHT : 0)));
+                scratch.putFloat((float)road.carSpeed);
+                scratch.put((byte)carCount);
+                for (int c = 0; c < carCount; c++) {
+                    scratch.putFloat(laneCarX[laneCarStart[r] + c]);
+                }
+                lanes++;
+            }
+            scratch.putShort(countPos, (short)lanes);
+            scratch.putInt(0, scratch.position() - 4);
+            scratch.flip();
+
+            if (enqueue(p, scratch)) {
+                snapshotsSent++;
+            } else {
+                snapshotsDropped++;
+            }
+        }
+    }
+
+    // 把道路依 roadIndex 排序，並把車輛分配到各車道（每次廣播一次，所有玩家共用）
+    private void indexLanes() {
+        int roadCount = world.roads.size();
+        if (sortedRoads.length < roadCount) {
+            sortedRoads = new GameWorld.Road[roadCount * 2];
+            laneCarStart = new int[roadCount * 2 + 1];
+            laneFill = new int[roadCount * 2];
+        }
+        for (int i = 0; i < roadCount; i++) {
+            sortedRoads[i] = world.roads.get(i);
+        }
+        Arrays.sort(sortedRoads, 0, roadCount, (a, b) -> Integer.compare(a.roadIndex, b.roadIndex));
+
+        Arrays.fill(laneCarStart, 0, roadCount + 1, 0);
+        int lowest = roadCount == 0 ? 0 : sortedRoads[0].roadIndex;
+        for (GameWorld.Car car : world.cars) {
+            int r = car.road.roadIndex - lowest;
+            if (r >= 0 && r < roadCount && sortedRoads[r] == car.road) {
+                laneCarStart[r + 1]++;
+            }
+        }
+        for (int r = 0; r < roadCount; r++) {
+            laneCarStart[r + 1] += laneCarStart[r];
+        }
+        if (laneCarX.length < laneCarStart[roadCount]) {
+            laneCarX = new float[laneCarStart[roadCount] * 2];
+        }
+        System.arraycopy(laneCarStart, 0, laneFill, 0, roadCount);
+        for (GameWorld.Car car : world.cars) {
+            int r = car.road.roadIndex - lowest;
+            if (r >= 0 && r < roadCount && sortedRoads[r] == car.road) {
+                laneCarX[laneFill[r]++] = (float)car.x;
+            }
+        }
+    }
+
+    private int lowerBound(int roadCount, int roadIndex) {
+        int lo = 0;
+        int hi = roadCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedRoads[mid].roadIndex < roadIndex) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // 放入用戶端的輸出緩衝並嘗試送出；積壓過多時回傳 false（丟棄這則訊息）
+    private boolean enqueue(RemotePlayer p, ByteBuffer message) {
+        p.out.compact();
+        boolean fits = p.out.remaining() >= message.remaining();
+        if (fits) {
+            p.out.put(message);
+        }
+        p.out.flip();
+        try {
+            flush(p);
+        } catch (IOException e) {
+            disconnect(p);
+        }
+        return fits;
+    }
+
+    private void flush(RemotePlayer p) throws IOException {
+        int written = p.channel.write(p.out);
+        p.bytesSent += written;
+        bytesSentTotal += written;
+        SelectionKey key = p.channel.keyFor(selector);
+        if (key != null && key.isValid()) {
+            key.interestOps(p.out.hasRemaining()
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+    }
+
+    public int playerCount() {
+        return players.size();
+    }
+
+    public long ticks() {
+        return ticks;
+    }
+
+    public double averageTickMicros() {
+        return ticks == 0 ? 0 : tickNanosTotal / 1000.0 / ticks;
+    }
+
+    public double maxTickMicros() {
+        return maxTickNanos / 1000.0;
+    }
+
+    public double averageBroadcastMicros() {
+        long broadcasts = ticks / (TICK_HZ / BROADCAST_HZ);
+        return broadcasts == 0 ? 0 : broadcastNanosTotal / 1000.0 / broadcasts;
+    }
+
+    public long bytesSent() {
+        return bytesSentTotal;
+    }
+
+    public long snapshotsSent() {
+        return snapshotsSent;
+    }
+
+    public long snapshotsDropped() {
+        return snapshotsDropped;
+    }
+
+    // 啟動伺服器：java MultiplayerServer [埠號]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        MultiplayerServer server = new MultiplayerServer(new InetSocketAddress(port), System.nanoTime());
+        System.out.println("多人伺服器啟動於埠 " + server.port());
+        server.run();
+    }
+}
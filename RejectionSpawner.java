@@ -0,0 +1,180 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+
+// 目前遊戲的生成方式（預設）：
+//   初始車輛  每條路 4-8 輛（Difficulty.min/maxCarsPerRoad），在畫面外隨機取位置，與已放置的車重疊就重抽，最多 50 次
+//   新道路    2-4 輛（Difficulty.newRoadMin/MaxCars），在道路範圍內均勻分布
+//   每一步    生成計時器到期且車輛未超過上限時，在畫面外取不重疊的位置，最多嘗試 20 次
+public class RejectionSpawner implements CarSpawner {
+    static final int INITIAL_ATTEMPTS = 50;
+    static final int SPAWN_ATTEMPTS = 20;
+
+    @Override
+    public String name() {
+        return "rejection";
+    }
+
+    @Override
+    public GameWorld.Road createRoad(GameWorld world, int y, boolean rightDirection, int roadIndex, boolean isSafeZone) {
+        // 車速與生成間隔依 Difficulty
+        return new GameWorld.Road(y, rightDirection, roadIndex, isSafeZone, world.random, world.difficulty);
+    }
+
+    @Override
+    public void initializeCars(GameWorld world) {
+        GameWorld.Difficulty difficulty = world.difficulty;
+        // 在每條道路上隨機放置一些車輛，但跳過所有安全區域
+        for (GameWorld.Road road : world.roads) {
+            // 跳過所有安全區域（包括起始區和隨機安全區）
+            if (road.isSafeZone || GameWorld.isStartZone(road.roadIndex)) {
+                continue;
+            }
+
+            // 這條道路上已放置的位置，以便在生成時進行檢查
+            // 第一步就會被移除的位置不配置車輛，但仍佔位，亂數序列與原本相同
+            int numCars = world.random.nextInt(difficulty.maxCarsPerRoad - difficulty.minCarsPerRoad + 1)
+                    + difficulty.minCarsPerRoad; // 每條路4-8輛車（預設）
+            double[] placedX = new double[numCars];
+            int placedCount = 0;
+
+            for (int i = 0; i < numCars; i++) {
+                // 嘗試隨機生成位置，直到不重疊
+                boolean placed = false;
+                int attempts = 0;
+                while (!placed && attempts < INITIAL_ATTEMPTS) { // 最多嘗試50次
+                    double potentialX;
+                    if (road.rightDirection) {
+                        // 從左邊界外開始，並考慮一些預留空間
+                        potentialX = -GameWorld.Car.CAR_WIDTH - world.random.nextDouble() * GameWorld.WORLD_WIDTH * 1.5;
+                    } else {
+                        // 從右邊界外開始，並考慮一些預留空間
+                        potentialX = GameWorld.WORLD_WIDTH + GameWorld.Car.CAR_WIDTH
+                                + world.random.nextDouble() * GameWorld.WORLD_WIDTH * 1.5;
+                    }
+
+                    // 檢查是否與已在此路上生成的車輛重疊
+                    boolean overlap = false;
+                    Rectangle potentialCarRect = GameWorld.Car.boundsAt(potentialX, road.y);
+
+                    for (int k = 0; k < placedCount; k++) {
+                        if (potentialCarRect.intersects(GameWorld.Car.boundsAt(placedX[k], road.y))) {
+                            overlap = true;
+                            break;
+                        }
+                    }
+
+                    if (!overlap) {
+                        placedX[placedCount++] = potentialX;
+                        placed = true;
+                        world.spawnCar(road, potentialX); // 將生成的車輛添加到總列表中
+                    }
+                    attempts++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int rowsAhead(GameWorld world) {
+        return world.difficulty.rowsAhead;
+    }
+
+    @Override
+    public int rowsRetainedAhead(GameWorld world) {
+        return world.difficulty.rowsRetained;
+    }
+
+    @Override
+    public void populateNewRoad(GameWorld world, GameWorld.Road road) {
+        GameWorld.Difficulty difficulty = world.difficulty;
+        int numCars = world.random.nextInt(difficulty.newRoadMaxCars - difficulty.newRoadMinCars + 1)
+                + difficulty.newRoadMinCars; // 新道路2-4輛車（預設）
+        for (int i = 0; i < numCars; i++) {
+            // 在道路可見範圍內隨機分布車輛
+            if (road.rightDirection) {
+                world.spawnCar(road, world.random.nextInt(GameWorld.WORLD_WIDTH * 2) - GameWorld.WORLD_WIDTH);
+            } else {
+                world.spawnCar(road, world.random.nextInt(GameWorld.WORLD_WIDTH * 2) - GameWorld.WORLD_WIDTH / 2);
+            }
+        }
+    }
+
+    @Override
+    public boolean updatesRoad(GameWorld world, GameWorld.Road road) {
+        // 安全區域和起始安全區域都不生成車輛；超出螢幕可見範圍太遠的道路也不生成
+        return !road.isSafeZone && !GameWorld.isStartZone(road.roadIndex) && world.inSpawnRange(road);
+    }
+
+    @Override
+    public void generateNewCars(GameWorld world, boolean timersAdvanced) {
+        // 找到遊戲中所有車輛，並按道路分組
+        java.util.Map<GameWorld.Road, ArrayList<GameWorld.Car>> carsByRoad = new java.util.HashMap<>();
+        for (GameWorld.Car car : world.cars) {
+            carsByRoad.computeIfAbsent(car.road, k -> new ArrayList<>()).add(car);
+        }
+
+        for (GameWorld.Road road : world.roads) {
+            if (!updatesRoad(world, road)) {
+                continue;
+            }
+
+            if (!timersAdvanced) {
+                road.update(); // 更新道路的生成計時器
+            }
+
+            ArrayList<GameWorld.Car> currentCarsOnRoad = carsByRoad.getOrDefault(road, new ArrayList<>());
+            int currentCarCount = currentCarsOnRoad.size() + road.reservedCount;
+
+            // 判斷是否需要生成新車輛 (考慮數量上限和生成間隔)
+            if (road.shouldSpawnCar() && !road.hasTooManyCars(currentCarCount)) {
+                // 嘗試為新車輛找到一個不重疊的初始位置
+                boolean placed = false;
+                int attempts = 0;
+                // 嘗試在螢幕外生成，或者在靠近邊緣的地方
+                double spawnXMin, spawnXMax;
+                if (road.rightDirection) {
+                    spawnXMin = -GameWorld.WORLD_WIDTH / 2.0; // 從螢幕左側外一點開始
+                    spawnXMax = -GameWorld.Car.CAR_WIDTH;       // 直到螢幕邊緣
+                } else {
+                    spawnXMin = GameWorld.WORLD_WIDTH + GameWorld.Car.CAR_WIDTH; // 從螢幕右側邊緣開始
+                    spawnXMax = GameWorld.WORLD_WIDTH * 1.5;         // 直到螢幕右側外一點
+                }
+
+                while (!placed && attempts < SPAWN_ATTEMPTS) { // 最多嘗試20次
+                    double potentialX = spawnXMin + world.random.nextDouble() * (spawnXMax - spawnXMin);
+                    if (!road.rightDirection) { // 如果是向左行駛，則從右邊生成
+                        potentialX = spawnXMax - world.random.nextDouble() * (spawnXMax - spawnXMin);
+                    }
+
+                    Rectangle potentialCarRect = new Rectangle(
+                        (int)(potentialX - GameWorld.Car.CAR_WIDTH/2),
+                        (int)(road.y - GameWorld.Car.CAR_HEIGHT/2),
+                        GameWorld.Car.CAR_WIDTH,
+                        GameWorld.Car.CAR_HEIGHT
+                    );
+
+                    boolean overlap = false;
+                    for (GameWorld.Car existingCar : currentCarsOnRoad) {
+                        // 檢查與當前道路上所有車輛的重疊
+                        if (potentialCarRect.intersects(existingCar.getBounds())) {
+                            overlap = true;
+                            break;
+                        }
+                    }
+                    for (int k = 0; k < road.reservedCount && !overlap; k++) {
+                        overlap = potentialCarRect.intersects(GameWorld.Car.boundsAt(road.reservedX[k], road.y));
+                    }
+
+                    if (!overlap) {
+                        GameWorld.Car newCar = world.spawnCar(road, potentialX);
+                        if (newCar != null) {
+                            currentCarsOnRoad.add(newCar); // 添加到這條路的車輛列表中
+                        }
+                        placed = true;
+                    }
+                    attempts++;
+                }
+            }
+        }
+    }
+}
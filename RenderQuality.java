@@ -0,0 +1,155 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+// 自動調整畫面品質：量測每一幀的繪圖時間，超過預算就逐級降低細節，餘裕夠多時再逐級恢復
+//
+// 等級（數字越大細節越少）：
+//   0 完整：所有裝飾與車輛細節，繪圖提示維持預設（與原本的畫面相同）
+//   1 不畫裝飾：道路邊線、車道虛線、安全區十字
+//   2 車輛只畫車身：不畫邊框、車窗、車頭燈
+//   3 不畫說明文字與特效：安全區、起始線、死亡線的標籤，操作說明，玩家在安全區的光暈；
+//     繪圖提示也改為速度優先（原本就沒有反鋸齒，這部分幾乎沒有差別，省下的主要是文字）
+//     分數、死亡線距離與警告、遊戲結束畫面照常顯示
+//
+// 以最近 WINDOW 幀的平均繪圖時間判斷：平均超過預算就降一級；
+// 連續 RAISE_FRAMES 幀的平均都低於預算的 RAISE_RATIO 才升一級。
+// 每次換等級後先累積 WINDOW 幀新等級的時間再判斷，避免在兩個等級之間來回跳動
+public class RenderQuality {
+    static final int FULL = 0;
+    static final int NO_DECORATIONS = 1;
+    static final int PLAIN_CARS = 2;
+    static final int MINIMAL = 3;
+    static final String[] LEVEL_NAMES = {"full", "no-decor", "plain-cars", "minimal"};
+
+    static final long DEFAULT_BUDGET_NANOS = 8_000_000; // 60FPS 一幀約 16ms，繪圖最多用一半
+    static final int HISTORY = 240; // 保留最近幾幀的繪圖時間
+    static final int WINDOW = 30;
+    static final int RAISE_FRAMES = 120;
+    static final double RAISE_RATIO = 0.5;
+
+    private final long budgetNanos;
+    private final long[] history = new long[HISTORY];
+    private long frames; // 總共記錄的幀數
+    private long windowSum; // 最近 WINDOW 幀的總和
+    private int level = FULL;
+    private int fixedLevel = -1; // 不為 -1 時固定在這個等級，不自動調整
+    private int framesSinceChange;
+    private int headroomFrames;
+    int levelChanges;
+
+    public RenderQuality() {
+        this(DEFAULT_BUDGET_NANOS);
+    }
+
+    public RenderQuality(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    // 記錄一幀的繪圖時間，必要時調整等級（下一幀生效）
+    public void record(long paintNanos) {
+        int slot = (int)(frames % HISTORY);
+        if (frames >= WINDOW) {
+            windowSum -= history[(int)((frames - WINDOW) % HISTORY)];
+        }
+        history[slot] = paintNanos;
+        windowSum += paintNanos;
+        frames++;
+        framesSinceChange++;
+
+        if (fixedLevel >= 0) {
+            level = fixedLevel;
+            return;
+        }
+        if (framesSinceChange < WINDOW) {
+            return;
+        }
+        long average = windowSum / WINDOW;
+        if (average > budgetNanos) {
+            headroomFrames = 0;
+            if (level < MINIMAL) {
+                changeLevel(level + 1);
+            }
+        } else if (average < budgetNanos * RAISE_RATIO) {
+            headroomFrames++;
+            if (headroomFrames >= RAISE_FRAMES && level > FULL) {
+                changeLevel(level - 1);
+            }
+        } else {
+            headroomFrames = 0;
+        }
+    }
+
+    private void changeLevel(int newLevel) {
+        level = newLevel;
+        levelChanges++;
+        framesSinceChange = 0;
+        headroomFrames = 0;
+    }
+
+    // 固定等級（-1 恢復自動調整）
+    public void setFixedLevel(int fixed) {
+        fixedLevel = fixed;
+        if (fixed >= 0) {
+            level = fixed;
+        }
+        framesSinceChange = 0;
+        headroomFrames = 0;
+    }
+
+    public int fixedLevel() {
+        return fixedLevel;
+    }
+
+    public int level() {
+        return level;
+    }
+
+    public String levelName() {
+        return LEVEL_NAMES[level];
+    }
+
+    public boolean decorations() {
+        return level < NO_DECORATIONS;
+    }
+
+    public boolean carDetail() {
+        return level < PLAIN_CARS;
+    }
+
+    public boolean labels() {
+        return level < MINIMAL;
+    }
+
+    // 等級 0-2 設回預設值（同一個 Graphics 之前可能在等級 3 畫過），等級 3 改為速度優先
+    public void applyHints(Graphics2D g) {
+        if (level < MINIMAL) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_DEFAULT);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_DEFAULT);
+        } else {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        }
+    }
+
+    public long budgetNanos() {
+        return budgetNanos;
+    }
+
+    // 最近 WINDOW 幀的平均繪圖時間
+    public long averageNanos() {
+        int n = (int)Math.min(frames, WINDOW);
+        return n == 0 ? 0 : windowSum / n;
+    }
+
+    // 最近的繪圖時間，由舊到新
+    public long[] frameTimes() {
+        int n = (int)Math.min(frames, HISTORY);
+        long[] times = new long[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = history[(int)((frames - n + i) % HISTORY)];
+        }
+        return times;
+    }
+}
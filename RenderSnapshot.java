@@ -0,0 +1,98 @@
+// 繪圖用的世界快照：模擬執行緒每個 tick 填好一份，透過 TripleBuffer 交給繪圖執行緒
+// 只保留畫面範圍內的道路與車輛，以基本型別陣列存放；發佈後不再修改，繪圖時不需要鎖
+// 三份快照輪流重複使用，陣列只在不夠大時才重新配置
+public class RenderSnapshot {
+    static final byte ROAD_NORMAL = 0;
+    static final byte ROAD_SAFE = 1; // 隨機安全區
+    static final byte ROAD_START = 2; // 起始安全區
+
+    long tick;
+    double cameraY;
+    double playerX;
+    double playerY;
+    boolean playerInSafeZone;
+    boolean gameStarted;
+    boolean gameRunning;
+    double deathLineWorldY;
+    int score;
+
+    int roadCount;
+    int[] roadY = new int[32];
+    int[] roadIndex = new int[32];
+    byte[] roadKind = new byte[32];
+
+    int carCount;
+    double[] carX = new double[128];
+    double[] carY = new double[128];
+    boolean[] carRight = new boolean[128];
+
+    // 畫面上的其他資訊，由 CrossyRoadGame 填入
+    boolean autoPlay;
+    long decisionMicros;
+    long maxDecisionMicros;
+    String gameOverMessage;
+    String gameOverRankText;
+    String banner; // 畫面上方的提示，null 表示不顯示
+    int restartSerial; // 每次重新開始加一
+    long restartRequestedNanos;
+    int qualityLevel; // 固定的畫面品質等級，-1 為自動
+    boolean smoothScaling;
+    int windowWidth;
+    int windowHeight;
+    long simNanos; // 這個 tick 的模擬時間
+    long overwritten; // 繪圖執行緒來不及畫而被跳過的快照數
+    boolean diagnostics; // 是否顯示畫面品質、解析度與模擬時間
+    int activityState; // ActivityThrottle 的更新頻率狀態
+
+    // 複製畫面高度 viewHeight 以內的道路與車輛（可見範圍的判斷與原本繪圖時相同）
+    void capture(GameWorld world, int viewHeight) {
+        tick = world.tickCount;
+        cameraY = world.cameraY;
+        playerX = world.player.x;
+        playerY = world.player.y;
+        playerInSafeZone = world.isPlayerInSafeZone();
+        gameStarted = world.gameStarted;
+        gameRunning = world.gameRunning;
+        deathLineWorldY = world.deathLineWorldY;
+        score = world.score;
+
+        int tile = GameWorld.TILE_SIZE;
+        roadCount = 0;
+        for (GameWorld.Road road : world.roads) {
+            int drawY = (int)(road.y - cameraY);
+            if (drawY > -tile && drawY < viewHeight + tile) {
+                if (roadCount == roadY.length) {
+                    roadY = java.util.Arrays.copyOf(roadY, roadCount * 2);
+                    roadIndex = java.util.Arrays.copyOf(roadIndex, roadCount * 2);
+                    roadKind = java.util.Arrays.copyOf(roadKind, roadCount * 2);
+                }
+                roadY[roadCount] = road.y;
+                roadIndex[roadCount] = road.roadIndex;
+                roadKind[roadCount] = road.isSafeZone ? ROAD_SAFE
+                        : road.roadIndex >= -GameWorld.SAFE_ZONE_SIZE && road.roadIndex <= GameWorld.SAFE_ZONE_SIZE
+                        ? ROAD_START : ROAD_NORMAL;
+                roadCount++;
+            }
+        }
+
+        int carWidth = GameWorld.Car.CAR_WIDTH;
+        int carHeight = GameWorld.Car.CAR_HEIGHT;
+        carCount = 0;
+        for (GameWorld.Car car : world.cars) {
+            int drawX = (int)(car.x - carWidth / 2);
+            int drawY = (int)(car.y - cameraY - carHeight / 2);
+            if (drawX > -carWidth && drawX < GameWorld.WORLD_WIDTH + carWidth
+                    && drawY > -carHeight && drawY < viewHeight + carHeight) {
+                if (carCount == carX.length) {
+                    carX = java.util.Arrays.copyOf(carX, carCount * 2);
+                    carY = java.util.Arrays.copyOf(carY, carCount * 2);
+                    carRight = java.util.Arrays.copyOf(carRight, carCount * 2);
+                }
+                carX[carCount] = car.x;
+                carY[carCount] = car.y;
+                carRight[carCount] = car.movingRight;
+                carCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,499 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// 回放封存檔：把每一場遊戲的輸入紀錄附加到同一個檔案，每場附上固定長度的索引項目與檔尾
+//
+// 檔案格式（小端序，VERSION 2）：
+//   [標頭]  MAGIC(int) VERSION(int)
+//   [區塊]  每場一個，依附加順序緊接在標頭之後：
+//           回放    varint 事件數，接著每個事件 varint((tickDelta << 2) | 方向)，方向為 GameWorld.MOVE_*
+//           索引    INDEX_ENTRY_SIZE 位元組：offset(long) length(int) seed(long) score(int) durationTicks(int) deathCause(int)
+//           檔尾    entryOffset(long) count(int) MAGIC(int)
+// 每個區塊的回放緊接在上一個區塊的檔尾之後，從最後一個檔尾可以一路找回所有索引項目；
+// 開啟時依序複製成記憶體中的連續索引，查詢只讀索引，不會解碼無關的回放
+//
+// 附加只寫在最後一個有效檔尾之後，不覆寫任何舊資料：先寫回放與索引項目並 force，最後才寫檔尾並 force。
+// 寫到一半中斷（當機、磁碟已滿）時舊檔尾仍然有效，結尾不完整的資料在開啟時忽略、下次附加時截掉；
+// 每次附加只寫新的這一場，不會隨封存檔變大而變慢
+//
+// VERSION 1（所有索引集中在檔尾之前）仍可讀取，第一次附加時整個轉成 VERSION 2
+public class ReplayArchive {
+    static final int MAGIC = 0x41525243; // "CRRA"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 32;
+    static final int FOOTER_SIZE = 16;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer index; // 第 i 場的索引項目在 i * INDEX_ENTRY_SIZE
+    private final int count;
+
+    private ReplayArchive(RandomAccessFile file, MappedByteBuffer buffer, ByteBuffer index, int count) {
+        this.file = file;
+        this.buffer = buffer;
+        this.index = index;
+        this.count = count;
+    }
+
+    // 以唯讀方式映射封存檔；索引或檔尾指向檔案範圍以外時視為損毀
+    public static ReplayArchive open(File archiveFile) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(archiveFile, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("回放封存檔超過 2GB，請分檔存放: " + archiveFile);
+            }
+            int version = readVersion(channel, archiveFile);
+            if (version == 1) {
+                return openVersion1(raf, channel, size, archiveFile);
+            }
+
+            long footer = lastValidFooter(channel, size);
+            long end = footer < 0 ? HEADER_SIZE : footer + FOOTER_SIZE;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            int count = footer < 0 ? 0 : mapped.getInt((int)footer + 8);
+            ByteBuffer index = ByteBuffer.allocate(count * INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            // 從最後一個檔尾往前找回每一場的索引項目
+            int f = (int)footer;
+            for (int i = count - 1; i >= 0; i--) {
+                int e = f - INDEX_ENTRY_SIZE;
+                long offset = mapped.getLong(e);
+                int length = mapped.getInt(e + 8);
+                if (offset < HEADER_SIZE || length < 0 || offset + length != e) {
+                    throw new IOException("回放封存檔索引損毀（第 " + i + " 場）: " + archiveFile);
+                }
+                for (int k = 0; k < INDEX_ENTRY_SIZE; k += 4) {
+                    index.putInt(i * INDEX_ENTRY_SIZE + k, mapped.getInt(e + k));
+                }
+                if (i == 0) {
+                    if (offset != HEADER_SIZE) {
+                        throw new IOException("回放封存檔索引損毀（第 0 場）: " + archiveFile);
+                    }
+                } else {
+                    f = (int)offset - FOOTER_SIZE;
+                    if (f < HEADER_SIZE + INDEX_ENTRY_SIZE || mapped.getInt(f + 12) != MAGIC
+                            || mapped.getInt(f + 8) != i || mapped.getLong(f) != f - INDEX_ENTRY_SIZE) {
+                        throw new IOException("回放封存檔索引損毀（第 " + (i - 1) + " 場的檔尾）: " + archiveFile);
+                    }
+                }
+            }
+            return new ReplayArchive(raf, mapped, index, count);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    // VERSION 1：[標頭][回放...][連續索引][檔尾 indexOffset(long) count(int) MAGIC(int)]
+    private static ReplayArchive openVersion1(RandomAccessFile raf, FileChannel channel, long size, File archiveFile)
+            throws IOException {
+        if (size < HEADER_SIZE + FOOTER_SIZE) {
+            throw new IOException("不是有效的回放封存檔: " + archiveFile);
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        int footer = (int)size - FOOTER_SIZE;
+        if (mapped.getInt(footer + 12) != MAGIC) {
+            throw new IOException("回放封存檔標記錯誤: " + archiveFile);
+        }
+        long indexOffset = mapped.getLong(footer);
+        int count = mapped.getInt(footer + 8);
+        if (count < 0 || indexOffset < HEADER_SIZE || indexOffset + (long)count * INDEX_ENTRY_SIZE != footer) {
+            throw new IOException("回放封存檔索引位置超出檔案範圍: " + archiveFile);
+        }
+        for (int i = 0; i < count; i++) {
+            int e = (int)indexOffset + i * INDEX_ENTRY_SIZE;
+            long offset = mapped.getLong(e);
+            int length = mapped.getInt(e + 8);
+            if (offset < HEADER_SIZE || length < 0 || offset + length > indexOffset) {
+                throw new IOException("回放封存檔索引損毀（第 " + i + " 場）: " + archiveFile);
+            }
+        }
+        ByteBuffer index = mapped.slice((int)indexOffset, count * INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        return new ReplayArchive(raf, mapped, index, count);
+    }
+
+    private static int readVersion(FileChannel channel, File archiveFile) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.read(header, 0) != HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("不是有效的回放封存檔: " + archiveFile);
+        }
+        int version = header.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("不支援的回放封存檔版本 " + version + ": " + archiveFile);
+        }
+        return version;
+    }
+
+    // 最後一個有效檔尾的位置，沒有任何一場時回傳 -1
+    // 正常情況下就在檔案結尾；結尾有寫到一半的區塊時往前逐位元組找
+    private static long lastValidFooter(FileChannel channel, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(INDEX_ENTRY_SIZE + FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (long f = size - FOOTER_SIZE; f >= HEADER_SIZE + INDEX_ENTRY_SIZE; f--) {
+            block.clear();
+            channel.read(block, f - INDEX_ENTRY_SIZE);
+            if (block.position() < block.capacity()) {
+                continue;
+            }
+            // 檔尾指向緊接在前面的索引項目，索引項目的回放緊接在它前面
+            // 每個區塊至少有索引項目與檔尾，場數不可能超過到這個檔尾為止放得下的區塊數
+            long entryOffset = f - INDEX_ENTRY_SIZE;
+            long offset = block.getLong(0);
+            int length = block.getInt(8);
+            int count = block.getInt(INDEX_ENTRY_SIZE + 8);
+            long maxCount = (f + FOOTER_SIZE - HEADER_SIZE) / (INDEX_ENTRY_SIZE + FOOTER_SIZE);
+            if (block.getInt(INDEX_ENTRY_SIZE + 12) == MAGIC && block.getLong(INDEX_ENTRY_SIZE) == entryOffset
+                    && count > 0 && count <= maxCount && offset >= HEADER_SIZE && length >= 0
+                    && offset + length == entryOffset) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    public void close() throws IOException {
+        // MappedByteBuffer 會在 GC 時釋放映射，這裡只關閉檔案控制代碼
+        file.close();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private int entry(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("回放索引超出範圍: " + i);
+        }
+        return i * INDEX_ENTRY_SIZE;
+    }
+
+    public long seed(int i) {
+        return index.getLong(entry(i) + 12);
+    }
+
+    public int score(int i) {
+        return index.getInt(entry(i) + 20);
+    }
+
+    public int durationTicks(int i) {
+        return index.getInt(entry(i) + 24);
+    }
+
+    public int deathCause(int i) {
+        return index.getInt(entry(i) + 28);
+    }
+
+    // 開啟一場回放：直接在映射區上建立切片，不複製資料
+    public Cursor replay(int i) {
+        int e = entry(i);
+        int offset = (int)index.getLong(e);
+        int length = index.getInt(e + 8);
+        ByteBuffer slice = buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        return new Cursor(slice);
+    }
+
+    // 分數在 [minScore, maxScore] 範圍內的回放，只掃描索引中的分數欄位
+    public int[] scoreRange(int minScore, int maxScore) {
+        return fieldRange(20, minScore, maxScore);
+    }
+
+    // 存活時間（tick）在範圍內的回放
+    public int[] durationRange(int minTicks, int maxTicks) {
+        return fieldRange(24, minTicks, maxTicks);
+    }
+
+    public int[] withDeathCause(int deathCause) {
+        return fieldRange(28, deathCause, deathCause);
+    }
+
+    private int[] fieldRange(int fieldOffset, int min, int max) {
+        int[] result = new int[16];
+        int n = 0;
+        int pos = fieldOffset;
+        for (int i = 0; i < count; i++, pos += INDEX_ENTRY_SIZE) {
+            int value = index.getInt(pos);
+            if (value >= min && value <= max) {
+                if (n == result.length) {
+                    result = Arrays.copyOf(result, n * 2);
+                }
+                result[n++] = i;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // 依分數由高到低排序的回放編號
+    public int[] sortedByScore() {
+        return sortedByField(20);
+    }
+
+    // 依存活時間由長到短排序的回放編號
+    public int[] sortedByDuration() {
+        return sortedByField(24);
+    }
+
+    private int[] sortedByField(int fieldOffset) {
+        // 把 (欄位值, 編號) 打包成 long 後排序，避免建立比較器與裝箱物件
+        long[] keys = new long[count];
+        int pos = fieldOffset;
+        for (int i = 0; i < count; i++, pos += INDEX_ENTRY_SIZE) {
+            long value = index.getInt(pos) & 0xFFFFFFFFL;
+            keys[i] = ((value ^ 0x80000000L) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int)keys[count - 1 - i];
+        }
+        return result;
+    }
+
+    // 將一場錄好的回放附加到封存檔：新區塊寫在最後一個有效檔尾之後，檔尾最後寫入
+    public static synchronized void append(File archiveFile, Recorder recorder, int score,
+                                           int durationTicks, int deathCause) throws IOException {
+        if (archiveFile.length() >= HEADER_SIZE && readVersion(archiveFile) == 1) {
+            upgrade(archiveFile);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(archiveFile, "rw")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            long end;
+            int count;
+            if (size < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                end = HEADER_SIZE;
+                count = 0;
+            } else {
+                readVersion(channel, archiveFile);
+                long footer = lastValidFooter(channel, size);
+                if (footer < 0) {
+                    end = HEADER_SIZE;
+                    count = 0;
+                } else {
+                    ByteBuffer b = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+                    channel.read(b, footer + 8);
+                    end = footer + FOOTER_SIZE;
+                    count = b.getInt(0);
+                }
+                if (end < size) {
+                    channel.truncate(end); // 上次附加中斷留下的不完整資料
+                }
+            }
+            writeBlock(channel, end, count, recorder, score, durationTicks, deathCause);
+        }
+    }
+
+    // 在 end 寫入一個區塊：回放與索引項目先寫入並 force，檔尾最後寫入並 force
+    private static void writeBlock(FileChannel channel, long end, int count, Recorder recorder, int score,
+                                   int durationTicks, int deathCause) throws IOException {
+        int replayLength = recorder.encodedLength();
+        ByteBuffer block = ByteBuffer.allocate(replayLength + INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        recorder.encodeTo(block);
+        block.putLong(end);
+        block.putInt(replayLength);
+        block.putLong(recorder.seed);
+        block.putInt(score);
+        block.putInt(durationTicks);
+        block.putInt(deathCause);
+        block.flip();
+        writeFully(channel, block, end);
+        channel.force(false);
+
+        long entryOffset = end + replayLength;
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        footer.putLong(entryOffset).putInt(count + 1).putInt(MAGIC).flip();
+        writeFully(channel, footer, entryOffset + INDEX_ENTRY_SIZE);
+        channel.force(false);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        long end = position + data.remaining();
+        while (data.hasRemaining()) {
+            channel.write(data, end - data.remaining());
+        }
+    }
+
+    private static int readVersion(File archiveFile) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(archiveFile, "r")) {
+            return readVersion(raf.getChannel(), archiveFile);
+        }
+    }
+
+    // VERSION 1 轉成 VERSION 2：寫到暫存檔後再取代原檔，中途失敗時原檔不變
+    private static void upgrade(File archiveFile) throws IOException {
+        File temp = new File(archiveFile.getPath() + ".tmp");
+        ReplayArchive old = open(archiveFile);
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(channel, header, 0);
+            long end = HEADER_SIZE;
+            for (int i = 0; i < old.count; i++) {
+                int e = old.entry(i);
+                ByteBuffer replay = old.buffer.slice((int)old.index.getLong(e), old.index.getInt(e + 8));
+                long entryOffset = end + replay.remaining();
+                writeFully(channel, replay, end);
+                ByteBuffer entryAndFooter = ByteBuffer.allocate(INDEX_ENTRY_SIZE + FOOTER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                entryAndFooter.putLong(end).putInt((int)(entryOffset - end))
+                        .putLong(old.seed(i)).putInt(old.score(i)).putInt(old.durationTicks(i)).putInt(old.deathCause(i))
+                        .putLong(entryOffset).putInt(i + 1).putInt(MAGIC).flip();
+                writeFully(channel, entryAndFooter, entryOffset);
+                end = entryOffset + INDEX_ENTRY_SIZE + FOOTER_SIZE;
+            }
+            channel.force(true);
+        } finally {
+            old.close();
+        }
+        java.nio.file.Files.move(temp.toPath(), archiveFile.toPath(),
+                java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("回放封存檔已轉換為新格式: " + archiveFile);
+    }
+
+    static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    // 遊戲進行中累積輸入事件，遊戲結束時交給 append() 寫入
+    public static class Recorder {
+        private byte[] events = new byte[256];
+        private int length;
+        private int eventCount;
+        private long lastTick;
+        long seed;
+
+        public void start(long seed) {
+            this.seed = seed;
+            length = 0;
+            eventCount = 0;
+            lastTick = 0;
+        }
+
+        public void record(long tick, int direction) {
+            long packed = ((tick - lastTick) << 2) | (direction & 3);
+            lastTick = tick;
+            if (length + 10 > events.length) {
+                events = Arrays.copyOf(events, events.length * 2);
+            }
+            while ((packed & ~0x7FL) != 0) {
+                events[length++] = (byte)((packed & 0x7F) | 0x80);
+                packed >>>= 7;
+            }
+            events[length++] = (byte)packed;
+            eventCount++;
+        }
+
+        public int eventCount() {
+            return eventCount;
+        }
+
+        int encodedLength() {
+            return varLongSize(eventCount) + length;
+        }
+
+        void encodeTo(ByteBuffer out) {
+            writeVarLong(out, eventCount);
+            out.put(events, 0, length);
+        }
+    }
+
+    // 逐一讀取一場回放中的輸入事件
+    public static class Cursor {
+        private final ByteBuffer data;
+        private int remaining;
+        private long tick;
+        private int direction;
+
+        Cursor(ByteBuffer data) {
+            this.data = data;
+            this.remaining = (int)readVarLong(data);
+        }
+
+        public int eventCount() {
+            return remaining;
+        }
+
+        public boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            long packed = readVarLong(data);
+            tick += packed >>> 2;
+            direction = (int)(packed & 3);
+            remaining--;
+            return true;
+        }
+
+        public long tick() {
+            return tick;
+        }
+
+        public int direction() {
+            return direction;
+        }
+    }
+
+    // 命令列：列出封存檔內容，可指定最低分數
+    //   java ReplayArchive replays.crra [最低分數]
+    public static void main(String[] args) throws IOException {
+        File archiveFile = new File(args.length > 0 ? args[0] : "replays.crra");
+        int minScore = args.length > 1 ? Integer.parseInt(args[1]) : Integer.MIN_VALUE;
+
+        ReplayArchive archive = open(archiveFile);
+        try {
+            int[] matching = archive.scoreRange(minScore, Integer.MAX_VALUE);
+            System.out.println("共 " + archive.size() + " 場回放，符合條件 " + matching.length + " 場");
+            for (int r : archive.sortedByScore()) {
+                if (archive.score(r) < minScore) {
+                    break;
+                }
+                System.out.println("#" + r + " score=" + archive.score(r)
+                        + " ticks=" + archive.durationTicks(r)
+                        + " death=" + (archive.deathCause(r) == GameWorld.DEATH_CAR ? "car" : "line")
+                        + " inputs=" + archive.replay(r).eventCount()
+                        + " seed=" + archive.seed(r));
+            }
+        } finally {
+            archive.close();
+        }
+    }
+}
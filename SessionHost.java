@@ -0,0 +1,197 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// 多場遊戲主機：在同一個 JVM 內同時執行 N 場彼此獨立的無畫面遊戲
+// 每場遊戲有自己的 GameWorld 與亂數，共用一個排程執行緒池以 60Hz 推進
+//
+// 用法：java SessionHost [場數] [秒數] [執行緒數] [--policy=bot|random] [--ramp]
+//   --ramp  從 16 場開始每次加倍，直到無法維持 60Hz 為止，回報可承載的場數
+public class SessionHost {
+    static final int TICK_HZ = 60;
+    static final long TICK_NANOS = 1_000_000_000L / TICK_HZ;
+
+    // 單場遊戲；同一場的 step() 由排程器保證不會同時執行
+    static class Session {
+        final int id;
+        final GameWorld world;
+        final AutoPlayer bot; // 為 null 時使用隨機策略
+        final SplittableRandom rng;
+        private long nextSeed;
+
+        volatile long ticks;
+        volatile long tickNanos;
+        volatile long maxTickNanos;
+        volatile int gamesPlayed;
+        volatile int bestScore;
+
+        Session(int id, boolean useBot) {
+            this.id = id;
+            this.nextSeed = (long)id << 32;
+            this.world = new GameWorld(nextSeed++);
+            this.bot = useBot ? new AutoPlayer(AutoPlayer.DEFAULT_HOP_INTERVAL, 6, 200) : null;
+            this.rng = new SplittableRandom(id);
+        }
+
+        void step() {
+            long start = System.nanoTime();
+            int move;
+            if (bot != null) {
+                move = bot.nextMove(world);
+            } else {
+                move = world.tickCount % AutoPlayer.DEFAULT_HOP_INTERVAL == 0
+                        ? AutoPlayer.randomMove(rng) : AutoPlayer.NO_MOVE;
+            }
+            if (move != AutoPlayer.NO_MOVE) {
+                world.movePlayer(move);
+            }
+            if (!world.tick()) {
+                // 遊戲結束後立即以新種子重新開始，模擬持續運作的展示機台
+                bestScore = Math.max(bestScore, world.score);
+                gamesPlayed++;
+                world.reset(nextSeed++);
+            }
+            long elapsed = System.nanoTime() - start;
+            tickNanos += elapsed;
+            if (elapsed > maxTickNanos) {
+                maxTickNanos = elapsed;
+            }
+            ticks++;
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final List<Session> sessions = new ArrayList<>();
+    private final List<ScheduledFuture<?>> futures = new ArrayList<>();
+
+    SessionHost(int threads) {
+        scheduler = new ScheduledThreadPoolExecutor(threads);
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    // 建立並開始排程 n 場遊戲；起始時間錯開，避免所有場次擠在同一瞬間
+    void start(int n, boolean useBot) {
+        for (int i = 0; i < n; i++) {
+            Session session = new Session(sessions.size(), useBot);
+            sessions.add(session);
+            long offset = TICK_NANOS * i / n;
+            futures.add(scheduler.scheduleAtFixedRate(session::step, offset, TICK_NANOS, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    void stop() {
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long totalTicks() {
+        long total = 0;
+        for (Session s : sessions) {
+            total += s.ticks;
+        }
+        return total;
+    }
+
+    static long usedHeapAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    // 執行 n 場共 seconds 秒，輸出吞吐量與記憶體；回傳是否維持住 60Hz
+    static boolean runLevel(int n, int seconds, int threads, boolean useBot) throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = usedHeapAfterGc(memory);
+
+        SessionHost host = new SessionHost(threads);
+        host.start(n, useBot);
+        long start = System.nanoTime();
+        long lastTicks = 0;
+        long lastTime = start;
+
+        for (int sec = 1; sec <= seconds; sec++) {
+            Thread.sleep(1000);
+            long now = System.nanoTime();
+            long ticks = host.totalTicks();
+            double rate = (ticks - lastTicks) * 1e9 / (now - lastTime);
+            System.out.printf("  [%ds] %d 場  %.0f ticks/s（目標 %d）  heap=%dMB%n",
+                    sec, n, rate, n * TICK_HZ, memory.getHeapMemoryUsage().getUsed() >> 20);
+            lastTicks = ticks;
+            lastTime = now;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long heapDuring = usedHeapAfterGc(memory);
+        host.stop();
+
+        long ticks = 0;
+        long tickNanos = 0;
+        long maxTickNanos = 0;
+        int games = 0;
+        int bestScore = 0;
+        for (Session s : host.sessions) {
+            ticks += s.ticks;
+            tickNanos += s.tickNanos;
+            maxTickNanos = Math.max(maxTickNanos, s.maxTickNanos);
+            games += s.gamesPlayed;
+            bestScore = Math.max(bestScore, s.bestScore);
+        }
+        double achieved = ticks * 1e9 / elapsed;
+        double target = (double)n * TICK_HZ;
+        boolean sustained = achieved >= target * 0.95;
+
+        System.out.printf("%d 場：%.0f ticks/s（目標的 %.1f%%）%s%n", n, achieved, 100 * achieved / target,
+                sustained ? "" : "  <-- 無法維持 60Hz");
+        System.out.printf("    每 tick 平均 %.1fus，最慢 %.1fus；完成 %d 場遊戲，最高分 %d%n",
+                ticks == 0 ? 0 : tickNanos / 1000.0 / ticks, maxTickNanos / 1000.0, games, bestScore);
+        System.out.printf("    每場記憶體約 %.1fKB（共 %.1fMB）%n",
+                (heapDuring - heapBefore) / 1024.0 / n, (heapDuring - heapBefore) / 1024.0 / 1024.0);
+        return sustained;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<Integer> numbers = new ArrayList<>();
+        boolean useBot = false;
+        boolean ramp = false;
+        for (String arg : args) {
+            if (arg.startsWith("--policy=")) {
+                useBot = arg.substring(9).equals("bot");
+            } else if (arg.equals("--ramp")) {
+                ramp = true;
+            } else {
+                numbers.add(Integer.parseInt(arg));
+            }
+        }
+        int n = numbers.size() > 0 ? numbers.get(0) : 100;
+        int seconds = numbers.size() > 1 ? numbers.get(1) : 10;
+        int threads = numbers.size() > 2 ? numbers.get(2) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("執行緒 " + threads + "，策略：" + (useBot ? "bot" : "random"));
+        if (!ramp) {
+            runLevel(n, seconds, threads, useBot);
+            return;
+        }
+
+        int sustainedSessions = 0;
+        for (int sessions = 16; ; sessions *= 2) {
+            if (!runLevel(sessions, seconds, threads, useBot)) {
+                break;
+            }
+            sustainedSessions = sessions;
+        }
+        System.out.println("本機可在 60Hz 下承載至少 " + sustainedSessions + " 場遊戲");
+    }
+}
@@ -0,0 +1,176 @@
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+// 車輛生成策略比較：同一批種子、同樣的隨機策略玩家，分別以每個 CarSpawner 執行，比較
+//   生成成本    每個 tick 花在生成（generateNewCars 與新道路的車輛）的時間，以及初始車輛的時間
+//   重疊率      畫面內與同一條路上其他車輛重疊的車輛比例
+//   車道密度    畫面內每條有車道路（不含安全區）的平均車輛數
+//   遊戲結果    平均分數、存活 tick 數與被車撞死的比例
+//
+// 用法：java SpawnComparison [場數] [每場最多 tick 數]
+public class SpawnComparison {
+    static final int HOP_INTERVAL = 8;
+
+    // 量測生成耗時的包裝，不改變被包裝策略的行為與亂數順序
+    static class TimedSpawner implements CarSpawner {
+        final CarSpawner inner;
+        long initNanos;
+        long spawnNanos;
+
+        TimedSpawner(CarSpawner inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public String name() {
+            return inner.name();
+        }
+
+        @Override
+        public GameWorld.Road createRoad(GameWorld world, int y, boolean rightDirection, int roadIndex,
+                                         boolean isSafeZone) {
+            return inner.createRoad(world, y, rightDirection, roadIndex, isSafeZone);
+        }
+
+        @Override
+        public void initializeCars(GameWorld world) {
+            long start = System.nanoTime();
+            inner.initializeCars(world);
+            initNanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public int rowsAhead(GameWorld world) {
+            return inner.rowsAhead(world);
+        }
+
+        @Override
+        public int rowsRetainedAhead(GameWorld world) {
+            return inner.rowsRetainedAhead(world);
+        }
+
+        @Override
+        public void populateNewRoad(GameWorld world, GameWorld.Road road) {
+            long start = System.nanoTime();
+            inner.populateNewRoad(world, road);
+            spawnNanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public boolean updatesRoad(GameWorld world, GameWorld.Road road) {
+            return inner.updatesRoad(world, road);
+        }
+
+        @Override
+        public void generateNewCars(GameWorld world, boolean timersAdvanced) {
+            long start = System.nanoTime();
+            inner.generateNewCars(world, timersAdvanced);
+            spawnNanos += System.nanoTime() - start;
+        }
+    }
+
+    // 一種策略的統計
+    static class Result {
+        final String name;
+        long games;
+        long ticks;
+        long initNanos;
+        long spawnNanos;
+        long spawned;
+        long visibleCars;
+        long overlappingCars;
+        long visibleLanes; // 畫面內可以有車的道路數（逐 tick 累加）
+        long laneCars; // 這些道路上的畫面內車輛數
+        long scoreSum;
+        long carDeaths;
+
+        Result(String name) {
+            this.name = name;
+        }
+    }
+
+    // 畫面內的車輛與重疊情形
+    static void sample(GameWorld world, Result result, ArrayList<GameWorld.Car> lane) {
+        double top = world.cameraY - GameWorld.TILE_SIZE;
+        double bottom = world.cameraY + world.difficulty.viewportHeight + GameWorld.TILE_SIZE;
+        double halfWidth = GameWorld.Car.CAR_WIDTH / 2.0;
+        for (GameWorld.Road road : world.roads) {
+            if (road.y < top || road.y > bottom || road.isSafeZone || GameWorld.isStartZone(road.roadIndex)) {
+                continue;
+            }
+            lane.clear();
+            for (GameWorld.Car car : world.cars) {
+                if (car.road == road && car.x > -halfWidth && car.x < GameWorld.WORLD_WIDTH + halfWidth) {
+                    lane.add(car);
+                }
+            }
+            result.visibleLanes++;
+            result.laneCars += lane.size();
+            result.visibleCars += lane.size();
+            for (int i = 0; i < lane.size(); i++) {
+                Rectangle bounds = lane.get(i).getBounds();
+                for (int j = 0; j < lane.size(); j++) {
+                    if (i != j && bounds.intersects(lane.get(j).getBounds())) {
+                        result.overlappingCars++;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    static Result run(CarSpawner spawner, int games, int maxTicks) {
+        TimedSpawner timed = new TimedSpawner(spawner);
+        Result result = new Result(spawner.name());
+        ArrayList<GameWorld.Car> lane = new ArrayList<>();
+        for (int g = 0; g < games; g++) {
+            GameWorld world = new GameWorld(g, new GameWorld.Difficulty(), timed);
+            SplittableRandom rng = new SplittableRandom(g);
+            while (world.gameRunning && world.tickCount < maxTicks) {
+                if (world.tick() && world.tickCount % HOP_INTERVAL == 0) {
+                    world.movePlayer(AutoPlayer.randomMove(rng));
+                }
+                sample(world, result, lane);
+            }
+            result.games++;
+            result.ticks += world.tickCount;
+            result.scoreSum += world.score;
+            result.spawned += world.lifecycle.spawned;
+            if (world.deathCause == GameWorld.DEATH_CAR) {
+                result.carDeaths++;
+            }
+        }
+        result.initNanos = timed.initNanos;
+        result.spawnNanos = timed.spawnNanos;
+        return result;
+    }
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int maxTicks = args.length > 1 ? Integer.parseInt(args[1]) : 60 * 60 * 3;
+        CarSpawner[] spawners = {new RejectionSpawner(), new UniformSpawner()};
+
+        // 先各跑一輪預熱，讓 JIT 編譯完成
+        for (CarSpawner spawner : spawners) {
+            run(spawner, Math.max(1, games / 5), maxTicks);
+        }
+
+        System.out.printf("每種策略 %d 場，每場最多 %d tick，隨機策略玩家%n", games, maxTicks);
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %8s %8s%n", "策略", "生成ns/tick", "初始us/場",
+                "生成/tick", "畫面車輛", "重疊率", "車道密度", "平均分", "撞車死");
+        for (CarSpawner spawner : spawners) {
+            Result r = run(spawner, games, maxTicks);
+            System.out.printf("%-10s %10.0f %10.1f %10.3f %10.2f %9.2f%% %10.2f %8.1f %7.1f%%%n",
+                    r.name,
+                    (double)r.spawnNanos / r.ticks,
+                    r.initNanos / 1e3 / r.games,
+                    (double)r.spawned / r.ticks,
+                    (double)r.visibleCars / r.ticks,
+                    r.visibleCars == 0 ? 0.0 : 100.0 * r.overlappingCars / r.visibleCars,
+                    r.visibleLanes == 0 ? 0.0 : (double)r.laneCars / r.visibleLanes,
+                    (double)r.scoreSum / r.games,
+                    100.0 * r.carDeaths / r.games);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// 壓力測試：產生遠超正常遊戲規模的世界（大量道路、每條路大量車輛），
+// 逐步加大規模，量測每個 tick 的模擬時間、繪圖時間、堆積使用量與 GC 次數
+//
+// 用法：java StressTest [選項]
+//   --lanes=N       最大道路數（預設 10000）；搭配 --ramp 從 100 開始每次乘以 10
+//   --cars=N        每條路的車輛數（預設 50）
+//   --speed=A-B     車速範圍（預設 2-4）
+//   --skew=S        車速分布，1 為均勻，大於 1 偏向慢車（預設 1）
+//   --viewport=H    攝影機視野高度（預設 600）
+//   --ticks=N       每個規模量測的 tick 數（預設 600）
+//   --render        每個 tick 也畫一張畫面（畫在離屏影像上，無螢幕也可執行）
+//   --window        畫面同時顯示在視窗中（需要螢幕）
+//   --ramp          逐步增加道路數
+//   --threads=N     以 N 個執行緒平行更新車道（GameWorld.parallelPool，預設不平行）
+//   --compare       每個規模先依序、再平行各跑一次，輸出加速比並確認結果逐位元相同
+//   --budget=N      全世界同時存在的車輛上限（Difficulty.carBudget，預設不限）
+//   --parallel-cars=N   車輛數達到 N 才平行更新（Difficulty.parallelCarThreshold，預設 20000）
+//   --parallel-roads=N  道路數達到 N 才平行推進生成計時器（Difficulty.parallelRoadThreshold，預設 2000）
+//                   設為 0 並搭配 --compare --ramp，可以看出每個規模平行化的加速比，用來決定門檻
+//   --quality=L     繪圖固定在 RenderQuality 的等級 L（0 完整 ~ 3 最低，預設 0）
+//   --paint-budget=MS  依每幀繪圖預算自動調整畫面品質（RenderQuality），隱含 --render
+public class StressTest {
+    int lanes = 10000;
+    int carsPerLane = 50;
+    double minSpeed = 2;
+    double maxSpeed = 4;
+    double speedSkew = 1;
+    int viewportHeight = GameWorld.VIEW_HEIGHT;
+    int ticks = 600;
+    boolean render;
+    boolean window;
+    boolean ramp;
+    int threads;
+    boolean compare;
+    int carBudget = Integer.MAX_VALUE;
+    int parallelCarThreshold = GameWorld.PARALLEL_CAR_THRESHOLD;
+    int parallelRoadThreshold = GameWorld.PARALLEL_ROAD_THRESHOLD;
+    int qualityLevel = RenderQuality.FULL;
+    double paintBudgetMillis; // 大於 0 時自動調整畫面品質
+    long lastStateHash; // 最後一個 tick 的世界狀態雜湊，用來比對平行與依序結果
+
+    private BufferedImage frame;
+    private JPanel view;
+
+    // 依壓力測試參數建立難度：所有道路都在生成範圍內，車輛不受畫面寬度限制
+    GameWorld.Difficulty scenario(int laneCount) {
+        GameWorld.Difficulty d = new GameWorld.Difficulty();
+        d.rowsAhead = laneCount;
+        d.rowsRetained = laneCount + 10;
+        d.spawnRangeRows = laneCount;
+        d.viewportHeight = viewportHeight;
+        d.minCarsPerRoad = carsPerLane;
+        d.maxCarsPerRoad = carsPerLane;
+        d.newRoadMinCars = carsPerLane;
+        d.newRoadMaxCars = carsPerLane;
+        d.minCarSpeed = minSpeed;
+        d.maxCarSpeed = maxSpeed;
+        d.carSpeedSkew = speedSkew;
+        d.carBudget = carBudget;
+        d.parallelCarThreshold = parallelCarThreshold;
+        d.parallelRoadThreshold = parallelRoadThreshold;
+        // 車道要夠長才放得下這麼多車（留兩成間距）
+        int laneLength = (int)(carsPerLane * GameWorld.Car.CAR_WIDTH * 1.2);
+        d.despawnMargin = Math.max(d.despawnMargin, (laneLength - GameWorld.WORLD_WIDTH) / 2);
+        return d;
+    }
+
+    // 執行一個規模，回傳平均 tick 時間（奈秒）
+    double runLevel(int laneCount, ForkJoinPool pool) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        List<GarbageCollectorMXBean> gcs = ManagementFactory.getGarbageCollectorMXBeans();
+
+        long buildStart = System.nanoTime();
+        GameWorld world = new GameWorld(laneCount, scenario(laneCount));
+        world.parallelPool = pool;
+        world.tick(); // 第一個 tick 會一次生成所有前方道路
+        long buildNanos = System.nanoTime() - buildStart;
+
+        long gcCountBefore = 0;
+        long gcTimeBefore = 0;
+        for (GarbageCollectorMXBean gc : gcs) {
+            gcCountBefore += gc.getCollectionCount();
+            gcTimeBefore += gc.getCollectionTime();
+        }
+
+        RenderQuality quality = paintBudgetMillis > 0 ? new RenderQuality((long)(paintBudgetMillis * 1e6)) : new RenderQuality();
+        if (paintBudgetMillis <= 0) {
+            quality.setFixedLevel(qualityLevel);
+        }
+
+        long[] tickNanos = new long[ticks];
+        long[] paintNanos = new long[ticks];
+        long carsTotal = 0;
+        long peakHeap = 0;
+        for (int t = 0; t < ticks; t++) {
+            long start = System.nanoTime();
+            world.tick();
+            long afterTick = System.nanoTime();
+            tickNanos[t] = afterTick - start;
+            if (render) {
+                paint(world, quality);
+                paintNanos[t] = System.nanoTime() - afterTick;
+                quality.record(paintNanos[t]);
+            }
+            carsTotal += world.cars.size();
+            if ((t & 15) == 0) {
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+
+        long gcCount = -gcCountBefore;
+        long gcTime = -gcTimeBefore;
+        for (GarbageCollectorMXBean gc : gcs) {
+            gcCount += gc.getCollectionCount();
+            gcTime += gc.getCollectionTime();
+        }
+
+        lastStateHash = stateHash(world);
+        System.out.printf("%6d 道路 x %d 車%s：建立 %.0fms，平均 %.0f 輛車、%d 條路%n",
+                laneCount, carsPerLane, pool == null ? "" : "（" + pool.getParallelism() + " 執行緒）",
+                buildNanos / 1e6, carsTotal / (double)ticks, world.roads.size());
+        System.out.printf("    tick  平均 %.2fms  p99 %.2fms  最慢 %.2fms%s%n",
+                mean(tickNanos) / 1e6, percentile(tickNanos, 99) / 1e6, percentile(tickNanos, 100) / 1e6,
+                mean(tickNanos) > 1e9 / 60 ? "  <-- 無法維持 60Hz" : "");
+        if (render) {
+            System.out.printf("    paint 平均 %.2fms  p99 %.2fms  最慢 %.2fms  品質 %s（換等級 %d 次，最後 %d 幀平均 %.2fms）%n",
+                    mean(paintNanos) / 1e6, percentile(paintNanos, 99) / 1e6, percentile(paintNanos, 100) / 1e6,
+                    quality.levelName(), quality.levelChanges, RenderQuality.WINDOW, quality.averageNanos() / 1e6);
+        }
+        System.out.printf("    heap 最高 %dMB  GC %d 次共 %dms%n", peakHeap >> 20, gcCount, gcTime);
+        System.out.println("    車輛 " + world.lifecycle);
+        return mean(tickNanos);
+    }
+
+    // 依序與平行各跑一次同一個世界
+    void compareLevel(int laneCount, ForkJoinPool pool) {
+        double sequential = runLevel(laneCount, null);
+        long sequentialHash = lastStateHash;
+        double parallel = runLevel(laneCount, pool);
+        System.out.printf("    加速比 %.2fx，結果%s%n", sequential / parallel,
+                sequentialHash == lastStateHash ? "逐位元相同" : "不同！");
+    }
+
+    // 車輛編號、位置的原始位元與道路計時器的雜湊
+    static long stateHash(GameWorld world) {
+        long h = world.tickCount;
+        for (GameWorld.Car car : world.cars) {
+            h = h * 31 + car.id;
+            h = h * 31 + Double.doubleToRawLongBits(car.x);
+        }
+        for (GameWorld.Road road : world.roads) {
+            h = h * 31 + road.roadIndex;
+            h = h * 31 + road.carSpawnTimer;
+        }
+        return h;
+    }
+
+    static double mean(long[] values) {
+        long sum = 0;
+        for (long v : values) {
+            sum += v;
+        }
+        return (double)sum / values.length;
+    }
+
+    static long percentile(long[] values, int p) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int)Math.min(sorted.length - 1, (long)sorted.length * p / 100)];
+    }
+
+    // 簡化版的遊戲畫面：道路與車輛的畫法與 CrossyRoadGame 相同（含畫面品質等級），畫在離屏影像上
+    void paint(GameWorld world, RenderQuality quality) {
+        if (frame == null || frame.getHeight() != viewportHeight) {
+            frame = new BufferedImage(GameWorld.WORLD_WIDTH, viewportHeight, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = frame.createGraphics();
+        quality.applyHints(g);
+        boolean decorations = quality.decorations();
+        boolean carDetail = quality.carDetail();
+        int width = GameWorld.WORLD_WIDTH;
+        int tile = GameWorld.TILE_SIZE;
+        int carWidth = GameWorld.Car.CAR_WIDTH;
+        int carHeight = GameWorld.Car.CAR_HEIGHT;
+        double cameraY = world.cameraY;
+
+        g.setColor(Color.GREEN);
+        g.fillRect(0, 0, width, viewportHeight);
+        for (GameWorld.Road road : world.roads) {
+            int drawY = (int)(road.y - cameraY);
+            if (drawY > -tile && drawY < viewportHeight + tile) {
+                g.setColor(road.isSafeZone ? new Color(34, 139, 34)
+                        : GameWorld.isStartZone(road.roadIndex) ? Color.LIGHT_GRAY : Color.GRAY);
+                g.fillRect(0, drawY, width, tile);
+                if (decorations) {
+                    g.setColor(Color.WHITE);
+                    g.drawLine(0, drawY, width, drawY);
+                }
+            }
+        }
+        for (GameWorld.Car car : world.cars) {
+            int drawX = (int)(car.x - carWidth / 2);
+            int drawY = (int)(car.y - cameraY - carHeight / 2);
+            if (drawX > -carWidth && drawX < width + carWidth && drawY > -carHeight && drawY < viewportHeight + carHeight) {
+                g.setColor(Color.RED);
+                g.fillRect(drawX, drawY, carWidth, carHeight);
+                if (carDetail) {
+                    g.setColor(Color.DARK_GRAY);
+                    g.drawRect(drawX, drawY, carWidth, carHeight);
+                    g.setColor(Color.CYAN);
+                    g.fillRect(drawX + carWidth / 6, drawY + carHeight / 4, carWidth * 2 / 3, carHeight / 2);
+                }
+            }
+        }
+        g.setColor(Color.BLUE);
+        g.fillRect((int)(world.player.x - tile / 2), (int)(world.player.y - cameraY - tile / 2), tile, tile);
+        g.dispose();
+
+        if (view != null) {
+            view.repaint();
+        }
+    }
+
+    void openWindow() {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("沒有螢幕，改為只畫在離屏影像上");
+            return;
+        }
+        view = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (frame != null) {
+                    g.drawImage(frame, 0, 0, null);
+                }
+            }
+        };
+        view.setPreferredSize(new Dimension(GameWorld.WORLD_WIDTH, viewportHeight));
+        JFrame f = new JFrame("壓力測試");
+        f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        f.add(view);
+        f.pack();
+        f.setVisible(true);
+    }
+
+    public static void main(String[] args) {
+        StressTest test = new StressTest();
+        for (String arg : args) {
+            if (arg.startsWith("--lanes=")) {
+                test.lanes = Integer.parseInt(arg.substring(8));
+            } else if (arg.startsWith("--cars=")) {
+                test.carsPerLane = Integer.parseInt(arg.substring(7));
+            } else if (arg.startsWith("--speed=")) {
+                String[] range = arg.substring(8).split("-");
+                test.minSpeed = Double.parseDouble(range[0]);
+                test.maxSpeed = Double.parseDouble(range[range.length - 1]);
+            } else if (arg.startsWith("--skew=")) {
+                test.speedSkew = Double.parseDouble(arg.substring(7));
+            } else if (arg.startsWith("--viewport=")) {
+                test.viewportHeight = Integer.parseInt(arg.substring(11));
+            } else if (arg.startsWith("--ticks=")) {
+                test.ticks = Integer.parseInt(arg.substring(8));
+            } else if (arg.equals("--render")) {
+                test.render = true;
+            } else if (arg.equals("--window")) {
+                test.render = true;
+                test.window = true;
+            } else if (arg.equals("--ramp")) {
+                test.ramp = true;
+            } else if (arg.startsWith("--threads=")) {
+                test.threads = Integer.parseInt(arg.substring(10));
+            } else if (arg.equals("--compare")) {
+                test.compare = true;
+            } else if (arg.startsWith("--quality=")) {
+                test.qualityLevel = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--paint-budget=")) {
+                test.paintBudgetMillis = Double.parseDouble(arg.substring(15));
+                test.render = true;
+            } else if (arg.startsWith("--budget=")) {
+                test.carBudget = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--parallel-cars=")) {
+                test.parallelCarThreshold = Integer.parseInt(arg.substring(16));
+            } else if (arg.startsWith("--parallel-roads=")) {
+                test.parallelRoadThreshold = Integer.parseInt(arg.substring(17));
+            } else {
+                throw new IllegalArgumentException("未知的選項: " + arg);
+            }
+        }
+
+        if (test.window) {
+            test.openWindow();
+        }
+        System.out.printf("每條路 %d 車，車速 %.1f-%.1f（分布 %.1f），視野高度 %d，每級 %d tick%s%n",
+                test.carsPerLane, test.minSpeed, test.maxSpeed, test.speedSkew, test.viewportHeight,
+                test.ticks, test.render ? "，含繪圖" : "");
+        ForkJoinPool pool = null;
+        if (test.threads > 0 || test.compare) {
+            pool = new ForkJoinPool(test.threads > 0 ? test.threads : Runtime.getRuntime().availableProcessors());
+        }
+        for (int n = test.ramp ? 100 : test.lanes; ; n = Math.min(n * 10, test.lanes)) {
+            if (test.compare) {
+                test.compareLevel(n, pool);
+            } else {
+                test.runLevel(n, pool);
+            }
+            if (n == test.lanes) {
+                break;
+            }
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+        if (test.view == null) {
+            System.exit(0);
+        }
+    }
+}
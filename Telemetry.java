@@ -0,0 +1,712 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// 逐 tick 遊戲遙測（平衡調整用）：玩家位置、附近各車道最近車輛的距離、與死亡線的距離、跳躍時間
+//
+// 遊戲執行緒只把數值寫進預先配置的欄位陣列（每欄一個 int[] 或 float[]），不配置物件也不做 I/O；
+// 一個區塊寫滿 BLOCK_ROWS 列或換下一場時整塊交給背景執行緒，由它依欄序排好、壓縮後附加到檔案。
+// 區塊數量固定（POOL_BLOCKS 個），記憶體用量有上限；背景執行緒跟不上、沒有空區塊可換時，
+// 直接丟棄剛寫滿的那一塊並累計丟棄的區塊與列數，遊戲執行緒永遠不會等待
+//
+// 檔案格式（小端序）：
+//   [標頭]  MAGIC(int) VERSION(int) 欄位數(int)，接著每欄 type(byte) 名稱長度(byte) 名稱(UTF-8)
+//   [區塊]  seed(long) run(int) rows(int) rawLength(int) compressedLength(int) crc32(int) 壓縮資料
+//           解壓後依欄位順序排列，每欄 rows 個 4 位元組的值
+// 每個區塊只屬於一場遊戲；程式中途結束時寫到一半的尾端區塊在讀取時以 CRC 偵測並忽略
+public class Telemetry {
+    static final int MAGIC = 0x4D545243; // "CRTM"
+    static final int VERSION = 1;
+    static final int BLOCK_HEADER_SIZE = 28;
+    static final int BLOCK_ROWS = 4096; // 約 68 秒
+    static final int POOL_BLOCKS = 4;
+
+    static final byte TYPE_INT = 0;
+    static final byte TYPE_FLOAT = 1;
+
+    // 附近車道：玩家所在那一排前後各 LANE_RANGE 排（負數在玩家前方）
+    static final int LANE_RANGE = 2;
+    static final int LANES = LANE_RANGE * 2 + 1;
+
+    // 欄位定義；新增欄位時加在最後並提高 VERSION
+    static final String[] COLUMN_NAMES = {
+            "tick", "playerX", "playerY", "score", "deathLineGap", "safeZone", "hop", "ticksSinceHop",
+            "nearCar-2", "nearCar-1", "nearCar0", "nearCar+1", "nearCar+2"};
+    static final byte[] COLUMN_TYPES = {
+            TYPE_INT, TYPE_FLOAT, TYPE_FLOAT, TYPE_INT, TYPE_FLOAT, TYPE_INT, TYPE_INT, TYPE_INT,
+            TYPE_FLOAT, TYPE_FLOAT, TYPE_FLOAT, TYPE_FLOAT, TYPE_FLOAT};
+    static final int COLUMNS = COLUMN_NAMES.length;
+
+    // 欄位位置
+    static final int COL_TICK = 0;
+    static final int COL_PLAYER_X = 1;
+    static final int COL_PLAYER_Y = 2;
+    static final int COL_SCORE = 3;
+    static final int COL_DEATH_LINE_GAP = 4; // 死亡線與玩家的距離（像素，越大越安全）
+    static final int COL_SAFE_ZONE = 5; // 玩家是否在安全區（0/1）
+    static final int COL_HOP = 6; // 這個 tick 之前的跳躍方向（GameWorld.MOVE_*），沒有跳為 -1
+    static final int COL_TICKS_SINCE_HOP = 7; // 距離上一次跳躍的 tick 數
+    static final int COL_NEAR_CAR = 8; // 起算的 LANES 欄：該排最近車輛與玩家的水平間距（碰撞框邊緣之間，沒有車為 NaN）
+
+    // 一個區塊：每欄一個預先配置的基本型別陣列，依型別只使用其中一個
+    static class Block {
+        final int[][] ints = new int[COLUMNS][];
+        final float[][] floats = new float[COLUMNS][];
+        int rows;
+        long seed;
+        int run;
+
+        Block() {
+            for (int c = 0; c < COLUMNS; c++) {
+                if (COLUMN_TYPES[c] == TYPE_INT) {
+                    ints[c] = new int[BLOCK_ROWS];
+                } else {
+                    floats[c] = new float[BLOCK_ROWS];
+                }
+            }
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ArrayBlockingQueue<Block> free = new ArrayBlockingQueue<>(POOL_BLOCKS);
+    private final ArrayBlockingQueue<Block> full = new ArrayBlockingQueue<>(POOL_BLOCKS);
+    private final Thread writer;
+    private volatile boolean closed;
+    volatile int writerDelayMillis; // 模擬磁碟變慢（只供 --simulate 測試丟棄）
+
+    // 以下由遊戲執行緒使用；關閉可能來自 shutdown hook，因此 sample、beginRun 與 close 以 this 同步（沒有競爭時幾乎沒有成本）
+    private Block current;
+    private int run;
+    private int pendingHop = -1;
+    private long lastHopTick;
+    private final float[] nearest = new float[LANES];
+    long recordedRows;
+    long droppedRows;
+    long droppedBlocks;
+
+    // 以下只由寫入執行緒更新
+    private volatile long writtenRows;
+    private volatile long writtenBlocks;
+    private volatile long rawBytes;
+    private volatile long compressedBytes;
+    private volatile long writeNanos;
+
+    // 以下只由遊戲事件消費者執行緒更新；report 在事件匯流排關閉（消費者執行緒結束）之後讀取
+    private final long[] eventCounts = new long[GameEventBus.TYPE_NAMES.length];
+    private long eventRuns; // 收到結束事件（撞車或死亡線）的場數
+
+    private Telemetry(File telemetryFile) throws IOException {
+        file = new RandomAccessFile(telemetryFile, "rw");
+        channel = file.getChannel();
+        try {
+            if (channel.size() == 0) {
+                writeHeader();
+            } else {
+                checkHeader();
+                scanBlocks();
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+
+        current = new Block();
+        for (int i = 1; i < POOL_BLOCKS; i++) {
+            free.add(new Block());
+        }
+        writer = new Thread(this::writeLoop, "telemetry-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // 開啟（或建立）遙測檔，新資料附加在最後；既有檔案的欄位定義必須相同
+    public static Telemetry open(File telemetryFile) throws IOException {
+        return new Telemetry(telemetryFile);
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerSize()).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(COLUMNS);
+        for (int c = 0; c < COLUMNS; c++) {
+            byte[] name = COLUMN_NAMES[c].getBytes(StandardCharsets.UTF_8);
+            header.put(COLUMN_TYPES[c]).put((byte)name.length).put(name);
+        }
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerSize()).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        Schema schema = Schema.read(header);
+        if (schema.columns() != COLUMNS) {
+            throw new IOException("遙測檔欄位定義不同，請改用新檔案");
+        }
+        for (int c = 0; c < COLUMNS; c++) {
+            if (!schema.names[c].equals(COLUMN_NAMES[c]) || schema.types[c] != COLUMN_TYPES[c]) {
+                throw new IOException("遙測檔欄位定義不同，請改用新檔案");
+            }
+        }
+    }
+
+    // 既有檔案：場次編號接在最後一個完整區塊之後，跨多次執行附加的資料不會用到重複的編號；
+    // 不完整或 CRC 不符的尾端區塊截掉（讀取時遇到這種區塊就停止，留著的話之後附加的資料都讀不到）
+    private void scanBlocks() throws IOException {
+        long size = channel.size();
+        long pos = headerSize();
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer data = ByteBuffer.allocate(0);
+        CRC32 crc = new CRC32();
+        while (pos + BLOCK_HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, pos);
+            int compressedLength = header.getInt(20);
+            long end = pos + BLOCK_HEADER_SIZE + compressedLength;
+            if (header.hasRemaining() || compressedLength < 0 || end > size) {
+                break;
+            }
+            if (data.capacity() < compressedLength) {
+                data = ByteBuffer.allocate(Math.max(compressedLength, data.capacity() * 2));
+            }
+            data.clear().limit(compressedLength);
+            channel.read(data, pos + BLOCK_HEADER_SIZE);
+            data.flip();
+            crc.reset();
+            crc.update(data);
+            if ((int)crc.getValue() != header.getInt(24)) {
+                break;
+            }
+            run = Math.max(run, header.getInt(8));
+            pos = end;
+        }
+        if (pos < size) {
+            System.err.println("遙測檔尾端不完整，截掉最後 " + (size - pos) + " 位元組");
+            channel.truncate(pos);
+        }
+    }
+
+    static int headerSize() {
+        int size = 12;
+        for (String name : COLUMN_NAMES) {
+            size += 2 + name.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return size;
+    }
+
+    // 開始記錄新的一場；上一場未滿的區塊先交給寫入執行緒
+    public synchronized void beginRun(long seed) {
+        if (closed) {
+            return;
+        }
+        if (current.rows > 0) {
+            handOff();
+        }
+        run++;
+        current.seed = seed;
+        current.run = run;
+        pendingHop = -1;
+        lastHopTick = 0;
+    }
+
+    // 玩家跳了一格（在下一次 sample 記錄）
+    public void hop(int direction, long tick) {
+        pendingHop = direction;
+        lastHopTick = tick;
+    }
+
+    // 記錄一個遊戲事件的類型（GameEventBus.*），只計數不寫入檔案
+    public void event(int type) {
+        eventCounts[type]++;
+        if (type == GameEventBus.COLLISION || type == GameEventBus.DEATH_LINE) {
+            eventRuns++;
+        }
+    }
+
+    // 記錄 world 目前的狀態為一列；在 tick() 之後呼叫，不配置物件
+    public synchronized void sample(GameWorld world) {
+        if (closed) {
+            return;
+        }
+        GameWorld.Player player = world.player;
+        java.util.Arrays.fill(nearest, Float.NaN);
+        double reach = (GameWorld.Car.CAR_WIDTH + GameWorld.TILE_SIZE) / 2.0;
+        for (int i = 0, n = world.cars.size(); i < n; i++) {
+            GameWorld.Car car = world.cars.get(i);
+            double rows = (car.y - player.y) / GameWorld.TILE_SIZE;
+            if (rows <= -LANE_RANGE - 0.5 || rows >= LANE_RANGE + 0.5) {
+                continue;
+            }
+            int lane = (int)Math.round(rows) + LANE_RANGE;
+            float gap = (float)(Math.abs(car.x - player.x) - reach);
+            if (!(nearest[lane] <= gap)) { // NaN 也會被取代
+                nearest[lane] = gap;
+            }
+        }
+
+        Block b = current;
+        int r = b.rows;
+        b.ints[COL_TICK][r] = (int)world.tickCount;
+        b.floats[COL_PLAYER_X][r] = (float)player.x;
+        b.floats[COL_PLAYER_Y][r] = (float)player.y;
+        b.ints[COL_SCORE][r] = world.score;
+        b.floats[COL_DEATH_LINE_GAP][r] = (float)(world.deathLineWorldY - player.y);
+        b.ints[COL_SAFE_ZONE][r] = world.isPlayerInSafeZone() ? 1 : 0;
+        b.ints[COL_HOP][r] = pendingHop;
+        b.ints[COL_TICKS_SINCE_HOP][r] = (int)(world.tickCount - lastHopTick);
+        for (int k = 0; k < LANES; k++) {
+            b.floats[COL_NEAR_CAR + k][r] = nearest[k];
+        }
+        pendingHop = -1;
+        recordedRows++;
+        if (++b.rows == BLOCK_ROWS) {
+            handOff();
+        }
+    }
+
+    // 把目前的區塊交給寫入執行緒並換上空區塊；沒有空區塊時丟棄目前的資料，繼續使用同一塊
+    private void handOff() {
+        Block next = free.poll();
+        if (next == null) {
+            droppedRows += current.rows;
+            droppedBlocks++;
+            current.rows = 0;
+            return;
+        }
+        full.add(current); // full 與 free 加上 current 一共 POOL_BLOCKS 塊，一定放得下
+        next.rows = 0;
+        next.seed = current.seed;
+        next.run = current.run;
+        current = next;
+    }
+
+    private void writeLoop() {
+        int rawCapacity = BLOCK_ROWS * COLUMNS * 4;
+        ByteBuffer raw = ByteBuffer.allocateDirect(rawCapacity).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer out = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + rawCapacity + rawCapacity / 16 + 64)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        CRC32 crc = new CRC32();
+        try {
+            while (true) {
+                Block block = full.poll(100, TimeUnit.MILLISECONDS);
+                if (block == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    if (writerDelayMillis > 0) {
+                        Thread.sleep(writerDelayMillis);
+                    }
+                    long start = System.nanoTime();
+                    writeBlock(block, raw, out, deflater, crc);
+                    writeNanos += System.nanoTime() - start;
+                    writtenRows += block.rows;
+                    writtenBlocks++;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.err.println("無法寫入遙測資料，" + block.rows + " 列未儲存");
+                } finally {
+                    free.add(block);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // 依欄序排好後壓縮，連同區塊標頭一次寫入
+    private void writeBlock(Block block, ByteBuffer raw, ByteBuffer out, Deflater deflater, CRC32 crc)
+            throws IOException {
+        int rows = block.rows;
+        raw.clear();
+        for (int c = 0; c < COLUMNS; c++) {
+            if (COLUMN_TYPES[c] == TYPE_INT) {
+                raw.asIntBuffer().put(block.ints[c], 0, rows);
+            } else {
+                raw.asFloatBuffer().put(block.floats[c], 0, rows);
+            }
+            raw.position(raw.position() + rows * 4);
+        }
+        raw.flip();
+        int rawLength = raw.remaining();
+
+        out.clear();
+        out.position(BLOCK_HEADER_SIZE);
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (!out.hasRemaining()) {
+                throw new IOException("遙測區塊壓縮後超過緩衝區大小");
+            }
+            deflater.deflate(out);
+        }
+        int compressedLength = out.position() - BLOCK_HEADER_SIZE;
+        crc.reset();
+        out.flip().position(BLOCK_HEADER_SIZE);
+        crc.update(out);
+        out.position(0);
+        out.putLong(0, block.seed).putInt(8, block.run).putInt(12, rows).putInt(16, rawLength)
+                .putInt(20, compressedLength).putInt(24, (int)crc.getValue());
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        rawBytes += rawLength;
+        compressedBytes += compressedLength;
+    }
+
+    // 交出剩下的資料，等寫入執行緒寫完後關閉檔案
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        if (current.rows > 0) {
+            handOff();
+        }
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("關閉遙測檔時發生錯誤");
+        }
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "遙測：記錄 %d 列、寫入 %d 列（%d 塊，%s -> %s，壓縮 %.1fms），丟棄 %d 塊 %d 列",
+                recordedRows, writtenRows, writtenBlocks, ImageDisplay.formatBytes(rawBytes),
+                ImageDisplay.formatBytes(compressedBytes), writeNanos / 1e6, droppedBlocks, droppedRows));
+        if (eventRuns > 0) {
+            sb.append(String.format("%n  遊戲事件（%d 場，每場平均）：", eventRuns));
+            for (int t = 0; t < eventCounts.length; t++) {
+                sb.append(t == 0 ? "" : "、").append(GameEventBus.TYPE_NAMES[t])
+                        .append(String.format(" %.1f", (double)eventCounts[t] / eventRuns));
+            }
+        }
+        return sb.toString();
+    }
+
+    // 檔案中的欄位定義
+    static class Schema {
+        final String[] names;
+        final byte[] types;
+
+        Schema(String[] names, byte[] types) {
+            this.names = names;
+            this.types = types;
+        }
+
+        int columns() {
+            return names.length;
+        }
+
+        int indexOf(String name) {
+            for (int c = 0; c < names.length; c++) {
+                if (names[c].equals(name)) {
+                    return c;
+                }
+            }
+            return -1;
+        }
+
+        static Schema read(ByteBuffer in) throws IOException {
+            if (in.remaining() < 12 || in.getInt() != MAGIC) {
+                throw new IOException("遙測檔標記錯誤");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支援的遙測檔版本: " + version);
+            }
+            int count = in.getInt();
+            String[] names = new String[count];
+            byte[] types = new byte[count];
+            for (int c = 0; c < count; c++) {
+                types[c] = in.get();
+                byte[] name = new byte[in.get() & 0xFF];
+                in.get(name);
+                names[c] = new String(name, StandardCharsets.UTF_8);
+            }
+            return new Schema(names, types);
+        }
+    }
+
+    // 讀取：以記憶體映射逐塊解壓，每塊交給 visitor；尾端不完整或 CRC 不符的區塊略過並停止
+    interface BlockVisitor {
+        void visit(long seed, int run, int rows, ByteBuffer columns);
+    }
+
+    static Schema read(File telemetryFile, BlockVisitor visitor) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(telemetryFile, "r")) {
+            FileChannel ch = raf.getChannel();
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            Schema schema = Schema.read(mapped);
+            ByteBuffer columns = ByteBuffer.allocate(BLOCK_ROWS * schema.columns() * 4).order(ByteOrder.LITTLE_ENDIAN);
+            Inflater inflater = new Inflater();
+            CRC32 crc = new CRC32();
+            try {
+                while (mapped.remaining() >= BLOCK_HEADER_SIZE) {
+                    int pos = mapped.position();
+                    long seed = mapped.getLong(pos);
+                    int blockRun = mapped.getInt(pos + 8);
+                    int rows = mapped.getInt(pos + 12);
+                    int rawLength = mapped.getInt(pos + 16);
+                    int compressedLength = mapped.getInt(pos + 20);
+                    int expectedCrc = mapped.getInt(pos + 24);
+                    int end = pos + BLOCK_HEADER_SIZE + compressedLength;
+                    if (compressedLength < 0 || end > mapped.limit() || rawLength > columns.capacity()) {
+                        System.err.println("遙測檔尾端不完整，忽略最後 " + (mapped.limit() - pos) + " 位元組");
+                        break;
+                    }
+                    ByteBuffer compressed = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                    compressed.limit(end).position(pos + BLOCK_HEADER_SIZE);
+                    crc.reset();
+                    crc.update(compressed.duplicate());
+                    if ((int)crc.getValue() != expectedCrc) {
+                        System.err.println("遙測區塊 CRC 不符，忽略最後 " + (mapped.limit() - pos) + " 位元組");
+                        break;
+                    }
+                    columns.clear().limit(rawLength);
+                    inflater.reset();
+                    inflater.setInput(compressed);
+                    try {
+                        while (columns.hasRemaining() && !inflater.finished()) {
+                            inflater.inflate(columns);
+                        }
+                    } catch (DataFormatException e) {
+                        throw new IOException("遙測區塊解壓失敗", e);
+                    }
+                    columns.flip();
+                    visitor.visit(seed, blockRun, rows, columns);
+                    mapped.position(end);
+                }
+            } finally {
+                inflater.end();
+            }
+            return schema;
+        }
+    }
+
+    // 命令列：
+    //   java Telemetry [遙測檔]                   列出欄位定義與每場的摘要
+    //   java Telemetry --csv=輸出.csv [遙測檔]    轉成 CSV 給試算表或分析工具
+    //   java Telemetry --simulate=N [--writer-delay=毫秒] [遙測檔]
+    //       以隨機策略玩 N 場並記錄遙測，量測 sample 的耗時與配置量；--writer-delay 讓寫入變慢以觀察丟棄
+    public static void main(String[] args) throws IOException {
+        String path = "telemetry.crtm";
+        String csv = null;
+        int simulate = 0;
+        int writerDelay = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--csv=")) {
+                csv = arg.substring(6);
+            } else if (arg.startsWith("--simulate=")) {
+                simulate = Integer.parseInt(arg.substring(11));
+            } else if (arg.startsWith("--writer-delay=")) {
+                writerDelay = Integer.parseInt(arg.substring(15));
+            } else {
+                path = arg;
+            }
+        }
+        File telemetryFile = new File(path);
+
+        if (simulate > 0) {
+            simulate(telemetryFile, simulate, writerDelay);
+        }
+        if (csv != null) {
+            exportCsv(telemetryFile, new File(csv));
+            return;
+        }
+        summarize(telemetryFile);
+    }
+
+    static final int HOP_INTERVAL = 8;
+
+    static void simulate(File telemetryFile, int games, int writerDelay) throws IOException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Telemetry telemetry = open(telemetryFile);
+        telemetry.writerDelayMillis = writerDelay;
+        // 與遊戲相同，事件經由匯流排計入遙測
+        GameEventBus events = new GameEventBus(1024);
+        events.subscribe("telemetry", GameEventBus.ALL, e -> telemetry.event(e.type));
+        events.start();
+        long sampleNanos = 0;
+        long sampleBytes = 0;
+        long ticks = 0;
+        for (int g = 0; g < games; g++) {
+            GameWorld world = new GameWorld(g);
+            world.events = events;
+            SplittableRandom rng = new SplittableRandom(g);
+            telemetry.beginRun(world.seed);
+            while (world.gameRunning) {
+                if (world.tickCount % HOP_INTERVAL == 0) {
+                    int move = AutoPlayer.randomMove(rng);
+                    if (move != AutoPlayer.NO_MOVE) {
+                        world.movePlayer(move);
+                        telemetry.hop(move, world.tickCount);
+                    }
+                }
+                world.tick();
+                long bytes = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                telemetry.sample(world);
+                sampleNanos += System.nanoTime() - start;
+                sampleBytes += threads.getThreadAllocatedBytes(threadId) - bytes;
+                ticks++;
+            }
+        }
+        events.close();
+        long start = System.nanoTime();
+        telemetry.close();
+        System.out.printf("模擬 %d 場、%d tick：sample 平均 %.0fns、%.1f 位元組/tick，關閉等待 %.1fms%n",
+                games, ticks, (double)sampleNanos / ticks, (double)sampleBytes / ticks, (System.nanoTime() - start) / 1e6);
+        System.out.println(telemetry.report());
+    }
+
+    // 每場的摘要：列數、最後分數、跳躍次數與平均間隔、離死亡線最近的距離、同一排車輛最近的間距
+    static void summarize(File telemetryFile) throws IOException {
+        Schema schema = readSchema(telemetryFile);
+        StringBuilder sb = new StringBuilder(telemetryFile.getPath() + " 欄位：");
+        for (int c = 0; c < schema.columns(); c++) {
+            sb.append(c == 0 ? "" : ", ").append(schema.names[c]).append(schema.types[c] == TYPE_INT ? ":int" : ":float");
+        }
+        System.out.println(sb);
+
+        RunSummary summary = new RunSummary();
+        read(telemetryFile, summary);
+        summary.print();
+    }
+
+    static class RunSummary implements BlockVisitor {
+        int run = -1;
+        long rows;
+        int score;
+        long hops;
+        long hopIntervals; // 相鄰兩次跳躍的 tick 差總和
+        long lastHopTick = -1;
+        float minDeathLineGap;
+        float minSameLaneGap;
+
+        @Override
+        public void visit(long seed, int blockRun, int blockRows, ByteBuffer columns) {
+            if (blockRun != run) {
+                print();
+                run = blockRun;
+                rows = 0;
+                hops = 0;
+                hopIntervals = 0;
+                lastHopTick = -1;
+                minDeathLineGap = Float.POSITIVE_INFINITY;
+                minSameLaneGap = Float.POSITIVE_INFINITY;
+            }
+            int base = blockRows * 4;
+            for (int r = 0; r < blockRows; r++) {
+                int tick = columns.getInt(COL_TICK * base + r * 4);
+                score = columns.getInt(COL_SCORE * base + r * 4);
+                minDeathLineGap = Math.min(minDeathLineGap, columns.getFloat(COL_DEATH_LINE_GAP * base + r * 4));
+                float gap = columns.getFloat((COL_NEAR_CAR + LANE_RANGE) * base + r * 4);
+                if (gap == gap) {
+                    minSameLaneGap = Math.min(minSameLaneGap, gap);
+                }
+                if (columns.getInt(COL_HOP * base + r * 4) >= 0) {
+                    if (lastHopTick >= 0) {
+                        hopIntervals += tick - lastHopTick;
+                    }
+                    lastHopTick = tick;
+                    hops++;
+                }
+            }
+            rows += blockRows;
+        }
+
+        void print() {
+            if (run < 0) {
+                return;
+            }
+            System.out.printf("  第 %d 場：%6d 列  得分 %4d  跳 %5d 次（平均間隔 %5.1f tick）  死亡線最近 %7.1f  同排車最近 %6.1f%n",
+                    run, rows, score, hops, hops < 2 ? 0.0 : (double)hopIntervals / (hops - 1),
+                    minDeathLineGap, minSameLaneGap);
+        }
+    }
+
+    static Schema readSchema(File telemetryFile) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(telemetryFile, "r")) {
+            ByteBuffer header = ByteBuffer.allocate((int)Math.min(raf.length(), 4096)).order(ByteOrder.LITTLE_ENDIAN);
+            raf.getChannel().read(header, 0);
+            header.flip();
+            return Schema.read(header);
+        }
+    }
+
+    static void exportCsv(File telemetryFile, File csvFile) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(csvFile, StandardCharsets.UTF_8))) {
+            Schema schema = readSchema(telemetryFile);
+            long[] rowsWritten = {0};
+            out.write("seed,run");
+            for (String name : schema.names) {
+                out.write(',');
+                out.write(name);
+            }
+            out.newLine();
+            read(telemetryFile, (seed, run, rows, columns) -> {
+                int base = rows * 4;
+                StringBuilder line = new StringBuilder();
+                try {
+                    for (int r = 0; r < rows; r++) {
+                        line.setLength(0);
+                        line.append(seed).append(',').append(run);
+                        for (int c = 0; c < schema.columns(); c++) {
+                            line.append(',');
+                            if (schema.types[c] == TYPE_INT) {
+                                line.append(columns.getInt(c * base + r * 4));
+                            } else {
+                                float v = columns.getFloat(c * base + r * 4);
+                                if (v == v) {
+                                    line.append(v);
+                                }
+                            }
+                        }
+                        out.write(line.toString());
+                        out.newLine();
+                    }
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+                rowsWritten[0] += rows;
+            });
+            System.out.println("已輸出 " + rowsWritten[0] + " 列到 " + csvFile.getPath());
+        } catch (java.io.UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,378 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+// 貼圖集：把所有精靈圖打包到一張或幾張邊長為 2 的次方的圖上，繪圖時從同一張圖切出子區域
+// 每張圖只解碼一次，繪製時也不必在多張來源圖之間切換
+//
+// 檔案格式（資料夾內）：
+//   atlas.txt       索引，每行一筆：
+//                     page <編號> <檔名> <寬> <高>
+//                     sprite <名稱> <頁> <x> <y> <寬> <高>
+//   atlas_<n>.png   各頁的圖
+//
+// 用法：java -Djava.awt.headless=true TextureAtlas build [輸出資料夾]
+//       java -Djava.awt.headless=true TextureAtlas compare [資料夾] [幀數]
+//   build    產生遊戲用的精靈圖（玩家、左右兩個方向的車輛）並打包
+//   compare  比較各自獨立的圖片與貼圖集的載入時間、記憶體與每幀的繪製次數、來源切換次數與繪圖時間
+public class TextureAtlas {
+    static final String INDEX_FILE = "atlas.txt";
+    static final String DEFAULT_DIRECTORY = "atlas";
+    static final int MIN_PAGE_SIZE = 64;
+    static final int MAX_PAGE_SIZE = 2048;
+    static final int PADDING = 1; // 精靈之間留白，縮放時才不會取樣到隔壁的像素
+
+    // 遊戲使用的精靈名稱
+    static final String PLAYER = "player";
+    static final String CAR_RIGHT = "car_right";
+    static final String CAR_LEFT = "car_left";
+    // 玩家圖片的來源：與 FrameRenderer.loadPlayerImage 相同，沒有這個檔案時遊戲畫方塊，貼圖集也不放玩家
+    static final String PLAYER_SOURCE = "player.png";
+
+    // 一個精靈在貼圖集中的位置
+    static class Region {
+        final String name;
+        int page;
+        int x, y, w, h;
+
+        Region(String name, int w, int h) {
+            this.name = name;
+            this.w = w;
+            this.h = h;
+        }
+    }
+
+    final List<BufferedImage> pages = new ArrayList<>();
+    final Map<String, Region> regions = new HashMap<>();
+
+    // 繪製統計，由 beginFrame 清除；只由繪圖執行緒使用
+    int frameDraws;
+    int frameSwitches; // 與上一次繪製的來源圖不同的次數
+    private int lastPage = -1;
+
+    Region region(String name) {
+        return regions.get(name);
+    }
+
+    void beginFrame() {
+        frameDraws = 0;
+        frameSwitches = 0;
+        lastPage = -1;
+    }
+
+    // 把精靈原尺寸畫在 (dx, dy)
+    void draw(Graphics g, Region r, int dx, int dy) {
+        draw(g, r, dx, dy, r.w, r.h);
+    }
+
+    // 把精靈縮放畫到 (dx, dy, dw, dh)；只複製子區域，不產生新的影像
+    void draw(Graphics g, Region r, int dx, int dy, int dw, int dh) {
+        if (r.page != lastPage) {
+            frameSwitches++;
+            lastPage = r.page;
+        }
+        frameDraws++;
+        g.drawImage(pages.get(r.page), dx, dy, dx + dw, dy + dh, r.x, r.y, r.x + r.w, r.y + r.h, null);
+    }
+
+    long memoryBytes() {
+        long bytes = 0;
+        for (BufferedImage page : pages) {
+            bytes += ImageDisplay.memoryBytes(page);
+        }
+        return bytes;
+    }
+
+    // 打包：依高度由大到小排成一列一列（shelf），每頁取放得下的最小 2 的次方邊長，
+    // 放不下時開新的一頁。separatePages 為 true 時每個精靈自己一頁，用來與獨立圖片比較
+    static TextureAtlas pack(List<String> names, List<BufferedImage> images, boolean separatePages) {
+        TextureAtlas atlas = new TextureAtlas();
+        List<Region> pending = new ArrayList<>();
+        Map<Region, BufferedImage> sources = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            BufferedImage image = images.get(i);
+            Region r = new Region(names.get(i), image.getWidth(), image.getHeight());
+            pending.add(r);
+            sources.put(r, image);
+            atlas.regions.put(r.name, r);
+        }
+        pending.sort(Comparator.comparingInt((Region r) -> r.h).reversed().thenComparing(r -> r.name));
+
+        while (!pending.isEmpty()) {
+            List<Region> page;
+            int size;
+            if (separatePages) {
+                page = new ArrayList<>(pending.subList(0, 1));
+                size = -1;
+            } else {
+                // 找出能放下全部剩餘精靈的最小邊長；最大邊長也放不下時，先放滿一頁
+                size = MIN_PAGE_SIZE;
+                while (size < MAX_PAGE_SIZE && shelve(pending, size, false) < pending.size()) {
+                    size *= 2;
+                }
+                page = new ArrayList<>(pending.subList(0, Math.max(1, shelve(pending, size, false))));
+                shelve(page, size, true);
+            }
+            int pageIndex = atlas.pages.size();
+            int width = separatePages ? page.get(0).w : size;
+            int height = separatePages ? page.get(0).h : size;
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = image.createGraphics();
+            for (Region r : page) {
+                r.page = pageIndex;
+                g.drawImage(sources.get(r), r.x, r.y, null);
+            }
+            g.dispose();
+            atlas.pages.add(image);
+            pending.removeAll(page);
+        }
+        return atlas;
+    }
+
+    // 以 shelf 方式把 regions 依序放進 size x size 的頁面，回傳放得下的數量；place 為 true 時寫入位置
+    private static int shelve(List<Region> regions, int size, boolean place) {
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        for (int i = 0; i < regions.size(); i++) {
+            Region r = regions.get(i);
+            if (r.w > size || r.h > size) {
+                return i;
+            }
+            if (x + r.w > size) {
+                y += shelfHeight + PADDING;
+                x = 0;
+                shelfHeight = 0;
+            }
+            if (y + r.h > size) {
+                return i;
+            }
+            if (place) {
+                r.x = x;
+                r.y = y;
+            }
+            x += r.w + PADDING;
+            shelfHeight = Math.max(shelfHeight, r.h);
+        }
+        return regions.size();
+    }
+
+    void save(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("無法建立資料夾：" + directory);
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(new File(directory, INDEX_FILE)))) {
+            for (int i = 0; i < pages.size(); i++) {
+                String file = "atlas_" + i + ".png";
+                ImageIO.write(pages.get(i), "png", new File(directory, file));
+                out.println("page " + i + " " + file + " " + pages.get(i).getWidth() + " " + pages.get(i).getHeight());
+            }
+            Region[] sorted = regions.values().toArray(new Region[0]);
+            Arrays.sort(sorted, Comparator.comparing((Region r) -> r.name));
+            for (Region r : sorted) {
+                out.println("sprite " + r.name + " " + r.page + " " + r.x + " " + r.y + " " + r.w + " " + r.h);
+            }
+        }
+    }
+
+    static TextureAtlas load(File directory) throws IOException {
+        TextureAtlas atlas = new TextureAtlas();
+        try (BufferedReader in = new BufferedReader(new FileReader(new File(directory, INDEX_FILE)))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.trim().split(" ");
+                if (f[0].equals("page")) {
+                    BufferedImage image = ImageIO.read(new File(directory, f[2]));
+                    if (image == null) {
+                        throw new IOException("無法讀取貼圖集：" + f[2]);
+                    }
+                    atlas.pages.add(toDrawable(image));
+                } else if (f[0].equals("sprite")) {
+                    Region r = new Region(f[1], Integer.parseInt(f[5]), Integer.parseInt(f[6]));
+                    r.page = Integer.parseInt(f[2]);
+                    r.x = Integer.parseInt(f[3]);
+                    r.y = Integer.parseInt(f[4]);
+                    atlas.regions.put(r.name, r);
+                }
+            }
+        }
+        return atlas;
+    }
+
+    // 資料夾中有貼圖集時載入，沒有或讀取失敗時回傳 null（繼續使用原本的畫法）
+    static TextureAtlas loadIfPresent(File directory) {
+        if (!new File(directory, INDEX_FILE).exists()) {
+            return null;
+        }
+        try {
+            TextureAtlas atlas = load(directory);
+            System.out.println("貼圖集載入成功：" + atlas.pages.size() + " 頁、" + atlas.regions.size() + " 個精靈");
+            return atlas;
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            System.err.println("無法載入貼圖集，改用原本的畫法：" + directory);
+            return null;
+        }
+    }
+
+    // PNG 解碼出來是 4BYTE_ABGR，轉成繪製最快的格式：有螢幕時用螢幕相容格式，否則用 INT_ARGB_PRE
+    static BufferedImage toDrawable(BufferedImage image) {
+        BufferedImage converted;
+        if (GraphicsEnvironment.isHeadless()) {
+            converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        } else {
+            converted = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(image.getWidth(), image.getHeight(),
+                            Transparency.TRANSLUCENT);
+        }
+        Graphics2D g = converted.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return converted;
+    }
+
+    // 遊戲用的精靈：玩家圖片縮放到一格，車輛以 FrameRenderer 的完整畫法各畫一次
+    static void createSprites(List<String> names, List<BufferedImage> images) throws IOException {
+        File file = new File(PLAYER_SOURCE);
+        if (file.exists()) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("無法讀取：" + PLAYER_SOURCE);
+            }
+            names.add(PLAYER);
+            images.add(scaled(image, GameWorld.TILE_SIZE, GameWorld.TILE_SIZE));
+        }
+        names.add(CAR_RIGHT);
+        images.add(carSprite(true));
+        names.add(CAR_LEFT);
+        images.add(carSprite(false));
+    }
+
+    static BufferedImage scaled(BufferedImage image, int w, int h) {
+        BufferedImage scaled = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, w, h, null);
+        g.dispose();
+        return scaled;
+    }
+
+    // 車輛的外框向右下多畫一個像素，精靈比車輛大一格
+    static BufferedImage carSprite(boolean right) {
+        BufferedImage sprite = new BufferedImage(GameWorld.Car.CAR_WIDTH + 1, GameWorld.Car.CAR_HEIGHT + 1,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sprite.createGraphics();
+        new RenderQuality().applyHints(g);
+        FrameRenderer.drawCar(g, 0, 0, right, true);
+        g.dispose();
+        return sprite;
+    }
+
+    // 比較：個別解碼來源圖片並縮放（目前 loadPlayerImage 的做法）與載入打包好的貼圖集
+    static void compare(File directory, int frames) throws IOException {
+        long start = System.nanoTime();
+        List<String> names = new ArrayList<>();
+        List<BufferedImage> sprites = new ArrayList<>();
+        createSprites(names, sprites);
+        long individualNanos = System.nanoTime() - start;
+        TextureAtlas individual = pack(names, sprites, true);
+
+        start = System.nanoTime();
+        TextureAtlas atlas = load(directory);
+        long atlasNanos = System.nanoTime() - start;
+
+        System.out.printf("%d 個精靈；貼圖集 %d 頁（%s）%n", atlas.regions.size(), atlas.pages.size(), pageSizes(atlas));
+        System.out.printf("載入：個別圖片 %.1f ms（含解碼原始檔與縮放），貼圖集 %.1f ms%n",
+                individualNanos / 1e6, atlasNanos / 1e6);
+        System.out.printf("記憶體：個別圖片 %s，貼圖集 %s%n",
+                ImageDisplay.formatBytes(individual.memoryBytes()), ImageDisplay.formatBytes(atlas.memoryBytes()));
+
+        // 同一場隨機遊戲，分別以原本的畫法、個別圖片、貼圖集繪製
+        String[] modes = {"原本畫法", "個別圖片", "貼圖集"};
+        TextureAtlas[] sources = {null, individual, atlas};
+        for (int m = 0; m < modes.length; m++) {
+            FrameRenderer renderer = new FrameRenderer(null);
+            renderer.atlas = sources[m];
+            long[] result = paintFrames(renderer, frames);
+            System.out.printf("%-6s 每幀 %.3f ms，貼圖繪製 %.1f 次、來源切換 %.1f 次%n", modes[m],
+                    result[0] / 1e6 / frames, (double)result[1] / frames, (double)result[2] / frames);
+        }
+    }
+
+    static String pageSizes(TextureAtlas atlas) {
+        StringBuilder sb = new StringBuilder();
+        for (BufferedImage page : atlas.pages) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(page.getWidth()).append('x').append(page.getHeight());
+        }
+        return sb.toString();
+    }
+
+    // 回傳 {總繪圖時間, 貼圖繪製次數, 來源切換次數}；前一半幀數當作預熱不計
+    static long[] paintFrames(FrameRenderer renderer, int frames) {
+        BufferedImage canvas = new BufferedImage(FrameRenderer.RENDER_WIDTH, FrameRenderer.RENDER_HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = canvas.createGraphics();
+        RenderSnapshot snapshot = new RenderSnapshot();
+        long[] result = new long[3];
+        for (int pass = 0; pass < 2; pass++) {
+            GameWorld world = new GameWorld(1);
+            java.util.SplittableRandom rng = new java.util.SplittableRandom(1);
+            for (int i = 0; i < frames; i++) {
+                if (!world.gameRunning) {
+                    world.reset(world.seed + 1);
+                }
+                if (world.tick() && world.tickCount % 8 == 0) {
+                    world.movePlayer(AutoPlayer.randomMove(rng));
+                }
+                snapshot.capture(world, FrameRenderer.RENDER_HEIGHT);
+                snapshot.qualityLevel = RenderQuality.FULL;
+                long start = System.nanoTime();
+                renderer.render(g, snapshot);
+                if (pass == 1) {
+                    result[0] += System.nanoTime() - start;
+                    if (renderer.atlas != null) {
+                        result[1] += renderer.atlas.frameDraws;
+                        result[2] += renderer.atlas.frameSwitches;
+                    }
+                }
+            }
+        }
+        g.dispose();
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "build";
+        File directory = new File(args.length > 1 ? args[1] : DEFAULT_DIRECTORY);
+        if (command.equals("build")) {
+            List<String> names = new ArrayList<>();
+            List<BufferedImage> images = new ArrayList<>();
+            createSprites(names, images);
+            TextureAtlas atlas = pack(names, images, false);
+            atlas.save(directory);
+            System.out.println("已輸出 " + atlas.regions.size() + " 個精靈、" + atlas.pages.size() + " 頁（"
+                    + pageSizes(atlas) + "）到 " + directory);
+        } else if (command.equals("compare")) {
+            compare(directory, args.length > 2 ? Integer.parseInt(args[2]) : 2000);
+        } else {
+            System.err.println("用法：java TextureAtlas build|compare [資料夾] [幀數]");
+            System.exit(2);
+        }
+    }
+}
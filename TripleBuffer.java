@@ -0,0 +1,55 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 無鎖三重緩衝：一個寫入端、一個讀取端
+// 寫入端與讀取端各自持有一份，第三份放在中間交換。寫入端寫完後把自己那份與中間那份交換；
+// 讀取端發現中間有新資料時再把自己那份換進去。兩邊都不會等待對方，
+// 讀取端拿到的永遠是最新完成的一份，讀取端來不及拿的舊資料直接被覆蓋
+public class TripleBuffer<T> {
+    private static final int FRESH = 4; // 中間那份是讀取端還沒拿過的新資料
+    private static final int INDEX = 3;
+
+    private final Object[] slots;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; // 只由寫入端使用
+    private int front = 2; // 只由讀取端使用
+
+    // 統計（只由寫入端更新）
+    volatile long published;
+    volatile long overwritten; // 讀取端沒拿到就被新資料蓋掉的份數
+
+    public TripleBuffer(T first, T second, T third) {
+        slots = new Object[] {first, second, third};
+    }
+
+    // 寫入端：目前可以寫的那一份
+    @SuppressWarnings("unchecked")
+    public T back() {
+        return (T)slots[back];
+    }
+
+    // 寫入端：發佈剛寫好的那一份，之後不可再修改它
+    public void publish() {
+        int previous = middle.getAndSet(back | FRESH);
+        back = previous & INDEX;
+        published++;
+        if ((previous & FRESH) != 0) {
+            overwritten++;
+        }
+    }
+
+    // 讀取端：有新資料時換進來並回傳，否則回傳 null
+    @SuppressWarnings("unchecked")
+    public T latest() {
+        if ((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        front = middle.getAndSet(front) & INDEX;
+        return (T)slots[front];
+    }
+
+    // 讀取端：最後一次拿到的那一份
+    @SuppressWarnings("unchecked")
+    public T current() {
+        return (T)slots[front];
+    }
+}
@@ -0,0 +1,150 @@
+// CrossRoadGame(sound).java 的生成方式：
+//   道路      車速 1.5-4.0，生成間隔 30-119 tick，每條路 1-4 輛車；玩家前方超過 20 排的道路清除
+//   初始車輛  每條路 2-5 輛，在道路範圍內均勻分布，不檢查重疊
+//   新道路    只預先建立玩家前方 10 排；新道路不放車，由每一步的補車填上
+//             （原版 2-4 輛的分支在往 highestRoadIndex 方向生成道路的迴圈裡，遊戲中不會執行；
+//             玩家前方的道路來自 lowestRoadIndex 的迴圈，只建立道路）
+//   每一步    道路上沒有車時直接在畫面邊緣補一輛；生成計時器到期且不超過 4 輛時，
+//             玩家在 10 排以內且 player.y < road.y 時有 80% 機率生成，其他情況 60%，生成位置固定在畫面邊緣
+// 玩家後方保留的排數、車輛移除範圍與道路清除時一併移除車輛仍依 GameWorld
+public class UniformSpawner implements CarSpawner {
+    static final int MIN_INITIAL_CARS = 2;
+    static final int MAX_INITIAL_CARS = 5;
+    static final int ROWS_AHEAD = 10;
+    static final int ROWS_RETAINED_AHEAD = 20;
+    static final double MIN_CAR_SPEED = 1.5;
+    static final double CAR_SPEED_RANGE = 2.5;
+    static final int MIN_SPAWN_INTERVAL = 30;
+    static final int SPAWN_INTERVAL_RANGE = 90;
+    static final int MIN_CARS_PER_ROAD = 1; // 少於這個數量就強制補車
+    static final int MAX_CARS_PER_ROAD = 4; // 超過這個數量就不生成
+    static final int APPROACH_ROWS = 10; // 玩家在這個距離內接近道路時提高生成機率
+    static final double APPROACH_SPAWN_CHANCE = 0.8;
+    static final double SPAWN_CHANCE = 0.6;
+
+    // 原版的道路，另外記下這一步在 roads 中的位置，統計車輛數時查表用
+    static class UniformRoad extends GameWorld.Road {
+        int index;
+
+        UniformRoad(int y, boolean rightDirection, int roadIndex, boolean isSafeZone, double carSpeed,
+                    int carSpawnInterval, int carSpawnTimer) {
+            super(y, rightDirection, roadIndex, isSafeZone, carSpeed, carSpawnInterval, carSpawnTimer,
+                    UniformSpawner.MIN_CARS_PER_ROAD, UniformSpawner.MAX_CARS_PER_ROAD); // Road 有同名的預設值
+        }
+    }
+
+    private int[] carCounts = new int[64]; // 依 roads 的順序，每條道路上的車輛數
+
+    @Override
+    public String name() {
+        return "uniform";
+    }
+
+    @Override
+    public GameWorld.Road createRoad(GameWorld world, int y, boolean rightDirection, int roadIndex, boolean isSafeZone) {
+        // 安全區域不需要車速相關設定
+        if (isSafeZone) {
+            return new UniformRoad(y, rightDirection, roadIndex, true, 0, 0, 0);
+        }
+        double carSpeed = MIN_CAR_SPEED + world.random.nextDouble() * CAR_SPEED_RANGE;
+        int interval = MIN_SPAWN_INTERVAL + world.random.nextInt(SPAWN_INTERVAL_RANGE);
+        int timer = world.random.nextInt(interval); // 隨機初始計時器
+        return new UniformRoad(y, rightDirection, roadIndex, false, carSpeed, interval, timer);
+    }
+
+    @Override
+    public void initializeCars(GameWorld world) {
+        for (GameWorld.Road road : world.roads) {
+            // 跳過所有安全區域（包括起始區和隨機安全區）
+            if (road.isSafeZone || GameWorld.isStartZone(road.roadIndex)) {
+                continue;
+            }
+            spawnUniform(world, road, MIN_INITIAL_CARS, MAX_INITIAL_CARS);
+        }
+    }
+
+    @Override
+    public int rowsAhead(GameWorld world) {
+        return ROWS_AHEAD;
+    }
+
+    @Override
+    public int rowsRetainedAhead(GameWorld world) {
+        return ROWS_RETAINED_AHEAD;
+    }
+
+    @Override
+    public void populateNewRoad(GameWorld world, GameWorld.Road road) {
+        // 與原版相同，玩家前方新建的道路沒有初始車輛
+    }
+
+    // 在道路範圍內均勻放置 min-max 輛車
+    private static void spawnUniform(GameWorld world, GameWorld.Road road, int min, int max) {
+        int numCars = world.random.nextInt(max - min + 1) + min;
+        for (int i = 0; i < numCars; i++) {
+            if (road.rightDirection) {
+                world.spawnCar(road, world.random.nextInt(GameWorld.WORLD_WIDTH * 2) - GameWorld.WORLD_WIDTH);
+            } else {
+                world.spawnCar(road, world.random.nextInt(GameWorld.WORLD_WIDTH * 2) - GameWorld.WORLD_WIDTH / 2);
+            }
+        }
+    }
+
+    @Override
+    public boolean updatesRoad(GameWorld world, GameWorld.Road road) {
+        // 安全區域和起始安全區域都不生成車輛
+        if (road.isSafeZone || GameWorld.isStartZone(road.roadIndex)) {
+            return false;
+        }
+        // 太遠且不在玩家前方的道路不處理
+        double roadScreenY = road.y - world.cameraY;
+        double screenBottom = world.difficulty.viewportHeight + GameWorld.TILE_SIZE * 5;
+        return roadScreenY <= screenBottom || Math.abs(road.y - world.player.y) / GameWorld.TILE_SIZE <= 30;
+    }
+
+    @Override
+    public void generateNewCars(GameWorld world, boolean timersAdvanced) {
+        // 統計每條道路上的車輛數量；cars 依生成順序排列，道路改用 roads 中的位置查表
+        int roadCount = world.roads.size();
+        if (carCounts.length < roadCount) {
+            carCounts = new int[roadCount * 2];
+        }
+        java.util.Arrays.fill(carCounts, 0, roadCount, 0);
+        for (int i = 0; i < roadCount; i++) {
+            ((UniformRoad)world.roads.get(i)).index = i;
+        }
+        for (GameWorld.Car car : world.cars) {
+            carCounts[((UniformRoad)car.road).index]++;
+        }
+
+        for (int i = 0; i < roadCount; i++) {
+            GameWorld.Road road = world.roads.get(i);
+            if (!updatesRoad(world, road)) {
+                continue;
+            }
+
+            if (!timersAdvanced) {
+                road.update();
+            }
+
+            int currentCarCount = carCounts[i] + road.reservedCount;
+            if (road.needsMoreCars(currentCarCount)) {
+                // 道路上車輛太少，強制生成
+                spawnAtEdge(world, road);
+            } else if (road.shouldSpawnCar() && !road.hasTooManyCars(currentCarCount)) {
+                // 玩家離道路很近時提高生成機率（條件與原版相同：player.y < road.y）
+                double playerRoadDistance = Math.abs(road.y - world.player.y) / GameWorld.TILE_SIZE;
+                boolean approaching = playerRoadDistance < APPROACH_ROWS && world.player.y < road.y;
+                if (world.random.nextDouble() < (approaching ? APPROACH_SPAWN_CHANCE : SPAWN_CHANCE)) {
+                    spawnAtEdge(world, road);
+                }
+            }
+        }
+    }
+
+    // 在車輛駛入的那一側畫面邊緣外生成（與 Car 建構子的預設位置相同）
+    private static void spawnAtEdge(GameWorld world, GameWorld.Road road) {
+        world.spawnCar(road, road.rightDirection
+                ? -GameWorld.Car.CAR_WIDTH : GameWorld.WORLD_WIDTH + GameWorld.Car.CAR_WIDTH);
+    }
+}
@@ -0,0 +1,659 @@
+import java.nio.ByteBuffer;
+
+// 世界快照編碼器：把整個 GameWorld（玩家、攝影機、死亡線、分數、道路與生成計時器、車輛）
+// 編成緊湊的二進位格式，支援完整快照與相對於上一份快照的差異快照
+//
+// 位置以 1/POS_SCALE 像素量化，整數一律使用 varint（有號數先做 zigzag）
+// 車輛與生成計時器都可由上一份快照推算（車輛等速移動、計時器每 tick 加一），
+// 差異快照只送出新增 / 移除的道路與車輛，以及推算結果與實際不符的修正值
+//
+// 格式：
+//   type(byte) baseTick(varint) dt(varint) score(varint) flags(byte)
+//   playerX playerY cameraY deathLineY（zigzag，相對於基準的量化差值）
+//   道路：移除數 {index差} 新增數 {index差 flags(byte) speed(float) timer interval} 修正數 {位置差 timer flags(byte)}
+//   車輛：移除數 {id差}   新增數 {id差 (road差<<1|孤兒) x [speed(float)]}         修正數 {位置差 x差}
+// 完整快照就是相對於空世界的差異快照；清單數量以固定 3 位元組的 varint 預留位置後回填
+//
+// 差異快照假設傳輸是可靠且依序的（例如 TCP）：編碼端保留一份和接收端完全相同的狀態作為基準
+public class WorldSnapshotCodec {
+    static final byte TYPE_FULL = 1;
+    static final byte TYPE_DELTA = 2;
+    static final int POS_SCALE = 8; // 1/8 像素
+
+    static final int ROAD_SAFE = 1; // 安全區或起始區，不會有車
+    static final int ROAD_RIGHT = 2; // 車輛向右行駛
+    static final int ROAD_ACTIVE = 4; // 生成計時器正在前進（道路在攝影機附近）
+
+    static final int FLAG_RUNNING = 1;
+    static final int FLAG_STARTED = 2;
+    // 其餘位元存放 deathCause（左移 2 位）
+
+    private static final int COUNT_BYTES = 3;
+    private static final State EMPTY = new State();
+
+    // 快照內容：全部以基本型別陣列存放，重複使用，不配置新物件
+    static class State {
+        long tick;
+        int score;
+        int flags;
+        double playerX, playerY, cameraY, deathLineY;
+
+        int roadCount;
+        int[] roadIndex = new int[128];
+        byte[] roadFlags = new byte[128];
+        float[] roadSpeed = new float[128];
+        int[] roadTimer = new int[128];
+        int[] roadInterval = new int[128];
+
+        int carCount;
+        int[] carId = new int[512];
+        int[] carRoad = new int[512];
+        double[] carX = new double[512];
+        double[] carV = new double[512]; // 帶正負號的速度
+
+        void ensureRoads(int n) {
+            if (roadIndex.length < n) {
+                int size = Math.max(n, roadIndex.length * 2);
+                roadIndex = java.util.Arrays.copyOf(roadIndex, size);
+                roadFlags = java.util.Arrays.copyOf(roadFlags, size);
+                roadSpeed = java.util.Arrays.copyOf(roadSpeed, size);
+                roadTimer = java.util.Arrays.copyOf(roadTimer, size);
+                roadInterval = java.util.Arrays.copyOf(roadInterval, size);
+            }
+        }
+
+        void ensureCars(int n) {
+            if (carId.length < n) {
+                int size = Math.max(n, carId.length * 2);
+                carId = java.util.Arrays.copyOf(carId, size);
+                carRoad = java.util.Arrays.copyOf(carRoad, size);
+                carX = java.util.Arrays.copyOf(carX, size);
+                carV = java.util.Arrays.copyOf(carV, size);
+            }
+        }
+
+        // 以二分搜尋找道路位置，找不到時回傳 -1
+        int findRoad(int index) {
+            int lo = 0;
+            int hi = roadCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (roadIndex[mid] < index) {
+                    lo = mid + 1;
+                } else if (roadIndex[mid] > index) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+    }
+
+    static int quantize(double v) {
+        return (int)Math.round(v * POS_SCALE);
+    }
+
+    static void putVar(ByteBuffer out, long v) {
+        ReplayArchive.writeVarLong(out, v);
+    }
+
+    static long getVar(ByteBuffer in) {
+        return ReplayArchive.readVarLong(in);
+    }
+
+    static void putZig(ByteBuffer out, long v) {
+        ReplayArchive.writeVarLong(out, (v << 1) ^ (v >> 63));
+    }
+
+    static long getZig(ByteBuffer in) {
+        long v = ReplayArchive.readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // 預留固定長度的 varint 欄位，稍後以 patchCount 回填
+    static int reserveCount(ByteBuffer out) {
+        int pos = out.position();
+        out.position(pos + COUNT_BYTES);
+        return pos;
+    }
+
+    static void patchCount(ByteBuffer out, int pos, int count) {
+        out.put(pos, (byte)((count & 0x7F) | 0x80));
+        out.put(pos + 1, (byte)(((count >>> 7) & 0x7F) | 0x80));
+        out.put(pos + 2, (byte)((count >>> 14) & 0x7F));
+    }
+
+    // 編碼端
+    public static class Encoder {
+        private final State current = new State();
+        private final Decoder mirror = new Decoder(); // 接收端狀態的副本，作為差異基準
+        private int[] slots = new int[128];
+
+        public int encodeFull(GameWorld world, ByteBuffer out) {
+            capture(world, current);
+            return writeAndMirror(out, EMPTY, TYPE_FULL);
+        }
+
+        // 相對於上一份已編碼的快照；沒有基準或世界已重置時改送完整快照
+        public int encodeDelta(GameWorld world, ByteBuffer out) {
+            if (!mirror.hasState || world.tickCount < mirror.state.tick) {
+                return encodeFull(world, out);
+            }
+            capture(world, current);
+            return writeAndMirror(out, mirror.state, TYPE_DELTA);
+        }
+
+        private int writeAndMirror(ByteBuffer out, State base, byte type) {
+            int start = out.position();
+            write(out, base, current, type);
+            int end = out.position();
+            int limit = out.limit();
+
+            // 用接收端相同的解碼流程更新基準，確保兩邊的推算完全一致
+            out.position(start);
+            out.limit(end);
+            mirror.decode(out);
+            out.limit(limit);
+            out.position(end);
+            return end - start;
+        }
+
+        // 從世界讀出目前狀態：道路依 roadIndex 排序，車輛依 id 排序
+        private void capture(GameWorld world, State s) {
+            s.tick = world.tickCount;
+            s.score = world.score;
+            s.flags = (world.gameRunning ? FLAG_RUNNING : 0) | (world.gameStarted ? FLAG_STARTED : 0)
+                    | (world.deathCause << 2);
+            s.playerX = world.player.x;
+            s.playerY = world.player.y;
+            s.cameraY = world.cameraY;
+            s.deathLineY = world.deathLineWorldY;
+
+            // 道路編號是連續的區間，用槽位陣列排序即可
+            int n = world.roads.size();
+            int minIndex = Integer.MAX_VALUE;
+            int maxIndex = Integer.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                int index = world.roads.get(i).roadIndex;
+                minIndex = Math.min(minIndex, index);
+                maxIndex = Math.max(maxIndex, index);
+            }
+            int span = n == 0 ? 0 : maxIndex - minIndex + 1;
+            if (slots.length < span) {
+                slots = new int[Math.max(span, slots.length * 2)];
+            }
+            java.util.Arrays.fill(slots, 0, span, -1);
+            for (int i = 0; i < n; i++) {
+                slots[world.roads.get(i).roadIndex - minIndex] = i;
+            }
+            s.ensureRoads(n);
+            int count = 0;
+            for (int k = 0; k < span; k++) {
+                if (slots[k] < 0) {
+                    continue;
+                }
+                GameWorld.Road road = world.roads.get(slots[k]);
+                boolean safe = road.isSafeZone || GameWorld.isStartZone(road.roadIndex);
+                double roadScreenY = road.y - world.cameraY;
+                boolean active = !safe && roadScreenY >= -GameWorld.TILE_SIZE * world.difficulty.spawnRangeRows
+                        && roadScreenY <= world.difficulty.viewportHeight + GameWorld.TILE_SIZE * world.difficulty.spawnRangeRows;
+                s.roadIndex[count] = road.roadIndex;
+                s.roadFlags[count] = (byte)((safe ? ROAD_SAFE : 0) | (road.rightDirection ? ROAD_RIGHT : 0)
+                        | (active ? ROAD_ACTIVE : 0));
+                s.roadSpeed[count] = (float)road.carSpeed;
+                s.roadTimer[count] = road.carSpawnTimer;
+                s.roadInterval[count] = road.carSpawnInterval;
+                count++;
+            }
+            s.roadCount = count;
+
+            int carCount = world.cars.size();
+            s.ensureCars(carCount);
+            int lastId = Integer.MIN_VALUE;
+            for (int i = 0; i < carCount; i++) {
+                GameWorld.Car car = world.cars.get(i);
+                if (car.id <= lastId) {
+                    throw new IllegalStateException("車輛清單未依編號排序");
+                }
+                lastId = car.id;
+                s.carId[i] = car.id;
+                s.carRoad[i] = car.road.roadIndex;
+                s.carX[i] = car.x;
+                s.carV[i] = car.movingRight ? car.speed : -car.speed;
+            }
+            s.carCount = carCount;
+        }
+
+        private static void write(ByteBuffer out, State base, State cur, byte type) {
+            long dt = cur.tick - base.tick;
+            out.put(type);
+            putVar(out, base.tick);
+            putVar(out, dt);
+            putVar(out, cur.score);
+            out.put((byte)cur.flags);
+            putZig(out, quantize(cur.playerX) - quantize(base.playerX));
+            putZig(out, quantize(cur.playerY) - quantize(base.playerY));
+            putZig(out, quantize(cur.cameraY) - quantize(base.cameraY));
+            putZig(out, quantize(cur.deathLineY) - quantize(base.deathLineY));
+
+            writeRoads(out, base, cur, dt);
+            writeCars(out, base, cur, dt);
+        }
+
+        private static void writeRoads(ByteBuffer out, State base, State cur, long dt) {
+            // 移除的道路
+            int countPos = reserveCount(out);
+            int count = 0;
+            int prev = 0;
+            for (int i = 0, j = 0; i < base.roadCount; ) {
+                if (j < cur.roadCount && cur.roadIndex[j] < base.roadIndex[i]) {
+                    j++;
+                } else if (j < cur.roadCount && cur.roadIndex[j] == base.roadIndex[i]) {
+                    i++;
+                    j++;
+                } else {
+                    putZig(out, base.roadIndex[i] - prev);
+                    prev = base.roadIndex[i];
+                    count++;
+                    i++;
+                }
+            }
+            patchCount(out, countPos, count);
+
+            // 新增的道路
+            countPos = reserveCount(out);
+            count = 0;
+            prev = 0;
+            for (int i = 0, j = 0; j < cur.roadCount; ) {
+                if (i < base.roadCount && base.roadIndex[i] < cur.roadIndex[j]) {
+                    i++;
+                } else if (i < base.roadCount && base.roadIndex[i] == cur.roadIndex[j]) {
+                    i++;
+                    j++;
+                } else {
+                    putZig(out, cur.roadIndex[j] - prev);
+                    prev = cur.roadIndex[j];
+                    out.put(cur.roadFlags[j]);
+                    out.putFloat(cur.roadSpeed[j]);
+                    putVar(out, cur.roadTimer[j]);
+                    putVar(out, cur.roadInterval[j]);
+                    count++;
+                    j++;
+                }
+            }
+            patchCount(out, countPos, count);
+
+            // 生成計時器或狀態與推算不符的道路
+            countPos = reserveCount(out);
+            count = 0;
+            prev = 0;
+            for (int i = 0, j = 0; i < base.roadCount && j < cur.roadCount; ) {
+                if (base.roadIndex[i] < cur.roadIndex[j]) {
+                    i++;
+                } else if (base.roadIndex[i] > cur.roadIndex[j]) {
+                    j++;
+                } else {
+                    long predicted = base.roadTimer[i] + ((base.roadFlags[i] & ROAD_ACTIVE) != 0 ? dt : 0);
+                    if (cur.roadTimer[j] != predicted || cur.roadFlags[j] != base.roadFlags[i]) {
+                        putVar(out, j - prev);
+                        prev = j;
+                        putVar(out, cur.roadTimer[j]);
+                        out.put(cur.roadFlags[j]);
+                        count++;
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            patchCount(out, countPos, count);
+        }
+
+        private static void writeCars(ByteBuffer out, State base, State cur, long dt) {
+            // 移除的車輛
+            int countPos = reserveCount(out);
+            int count = 0;
+            int prev = 0;
+            for (int i = 0, j = 0; i < base.carCount; ) {
+                if (j < cur.carCount && cur.carId[j] < base.carId[i]) {
+                    j++;
+                } else if (j < cur.carCount && cur.carId[j] == base.carId[i]) {
+                    i++;
+                    j++;
+                } else {
+                    putVar(out, base.carId[i] - prev);
+                    prev = base.carId[i];
+                    count++;
+                    i++;
+                }
+            }
+            patchCount(out, countPos, count);
+
+            // 新增的車輛；所在道路不在快照中（已被清理）時附上速度
+            countPos = reserveCount(out);
+            count = 0;
+            prev = 0;
+            int prevRoad = 0;
+            for (int i = 0, j = 0; j < cur.carCount; ) {
+                if (i < base.carCount && base.carId[i] < cur.carId[j]) {
+                    i++;
+                } else if (i < base.carCount && base.carId[i] == cur.carId[j]) {
+                    i++;
+                    j++;
+                } else {
+                    boolean orphan = cur.findRoad(cur.carRoad[j]) < 0;
+                    long roadDelta = cur.carRoad[j] - prevRoad;
+                    putVar(out, cur.carId[j] - prev);
+                    putVar(out, (((roadDelta << 1) ^ (roadDelta >> 63)) << 1) | (orphan ? 1 : 0));
+                    putZig(out, quantize(cur.carX[j]));
+                    if (orphan) {
+                        out.putFloat((float)cur.carV[j]);
+                    }
+                    prev = cur.carId[j];
+                    prevRoad = cur.carRoad[j];
+                    count++;
+                    j++;
+                }
+            }
+            patchCount(out, countPos, count);
+
+            // 推算位置偏差超過一個量化單位的車輛
+            countPos = reserveCount(out);
+            count = 0;
+            prev = 0;
+            for (int i = 0, j = 0; i < base.carCount && j < cur.carCount; ) {
+                if (base.carId[i] < cur.carId[j]) {
+                    i++;
+                } else if (base.carId[i] > cur.carId[j]) {
+                    j++;
+                } else {
+                    double predicted = base.carX[i] + base.carV[i] * dt;
+                    if (Math.abs(cur.carX[j] - predicted) >= 1.0 / POS_SCALE) {
+                        putVar(out, j - prev);
+                        prev = j;
+                        putZig(out, quantize(cur.carX[j]) - quantize(predicted));
+                        count++;
+                    }
+                    i++;
+                    j++;
+                }
+            }
+            patchCount(out, countPos, count);
+        }
+    }
+
+    // 解碼端：保留最近一份快照，差異快照套用在它上面
+    public static class Decoder {
+        private State state = new State();
+        private State spare = new State();
+        private boolean hasState;
+
+        // 暫存移除 / 新增清單
+        private int[] removed = new int[64];
+        private final State added = new State();
+
+        public State state() {
+            return state;
+        }
+
+        public boolean hasState() {
+            return hasState;
+        }
+
+        public void decode(ByteBuffer in) {
+            byte type = in.get();
+            State base;
+            if (type == TYPE_FULL) {
+                base = EMPTY;
+            } else if (type == TYPE_DELTA) {
+                base = state;
+            } else {
+                throw new IllegalArgumentException("未知的快照類型: " + type);
+            }
+            long baseTick = getVar(in);
+            if (type == TYPE_DELTA && (!hasState || baseTick != state.tick)) {
+                throw new IllegalStateException("差異快照的基準不符: " + baseTick);
+            }
+            long dt = getVar(in);
+
+            State next = spare;
+            next.tick = baseTick + dt;
+            next.score = (int)getVar(in);
+            next.flags = in.get() & 0xFF;
+            next.playerX = (quantize(base.playerX) + getZig(in)) / (double)POS_SCALE;
+            next.playerY = (quantize(base.playerY) + getZig(in)) / (double)POS_SCALE;
+            next.cameraY = (quantize(base.cameraY) + getZig(in)) / (double)POS_SCALE;
+            next.deathLineY = (quantize(base.deathLineY) + getZig(in)) / (double)POS_SCALE;
+
+            readRoads(in, base, next, dt);
+            readCars(in, base, next, dt);
+
+            spare = state;
+            state = next;
+            hasState = true;
+        }
+
+        private int readRemoved(ByteBuffer in, boolean zigzag) {
+            int n = (int)getVar(in);
+            if (removed.length < n) {
+                removed = new int[Math.max(n, removed.length * 2)];
+            }
+            int prev = 0;
+            for (int k = 0; k < n; k++) {
+                prev += (int)(zigzag ? getZig(in) : getVar(in));
+                removed[k] = prev;
+            }
+            return n;
+        }
+
+        private void readRoads(ByteBuffer in, State base, State next, long dt) {
+            int removedCount = readRemoved(in, true);
+
+            int addedCount = (int)getVar(in);
+            added.ensureRoads(addedCount);
+            int prev = 0;
+            for (int k = 0; k < addedCount; k++) {
+                prev += (int)getZig(in);
+                added.roadIndex[k] = prev;
+                added.roadFlags[k] = in.get();
+                added.roadSpeed[k] = in.getFloat();
+                added.roadTimer[k] = (int)getVar(in);
+                added.roadInterval[k] = (int)getVar(in);
+            }
+
+            // 合併：基準中保留的道路（推算計時器）與新增的道路，依 roadIndex 排序
+            next.ensureRoads(base.roadCount - removedCount + addedCount);
+            int n = 0;
+            int i = 0;
+            int r = 0;
+            int a = 0;
+            while (i < base.roadCount || a < addedCount) {
+                if (a < addedCount && (i >= base.roadCount || added.roadIndex[a] < base.roadIndex[i])) {
+                    next.roadIndex[n] = added.roadIndex[a];
+                    next.roadFlags[n] = added.roadFlags[a];
+                    next.roadSpeed[n] = added.roadSpeed[a];
+                    next.roadTimer[n] = added.roadTimer[a];
+                    next.roadInterval[n] = added.roadInterval[a];
+                    n++;
+                    a++;
+                } else if (r < removedCount && removed[r] == base.roadIndex[i]) {
+                    r++;
+                    i++;
+                } else {
+                    next.roadIndex[n] = base.roadIndex[i];
+                    next.roadFlags[n] = base.roadFlags[i];
+                    next.roadSpeed[n] = base.roadSpeed[i];
+                    next.roadTimer[n] = (int)(base.roadTimer[i] + ((base.roadFlags[i] & ROAD_ACTIVE) != 0 ? dt : 0));
+                    next.roadInterval[n] = base.roadInterval[i];
+                    n++;
+                    i++;
+                }
+            }
+            next.roadCount = n;
+
+            int corrections = (int)getVar(in);
+            int pos = 0;
+            for (int k = 0; k < corrections; k++) {
+                pos += (int)getVar(in);
+                next.roadTimer[pos] = (int)getVar(in);
+                next.roadFlags[pos] = in.get();
+            }
+        }
+
+        private void readCars(ByteBuffer in, State base, State next, long dt) {
+            int removedCount = readRemoved(in, false);
+
+            int addedCount = (int)getVar(in);
+            added.ensureCars(addedCount);
+            int prev = 0;
+            int prevRoad = 0;
+            for (int k = 0; k < addedCount; k++) {
+                prev += (int)getVar(in);
+                long packed = getVar(in);
+                long zig = packed >>> 1;
+                prevRoad += (int)((zig >>> 1) ^ -(zig & 1));
+                added.carId[k] = prev;
+                added.carRoad[k] = prevRoad;
+                added.carX[k] = getZig(in) / (double)POS_SCALE;
+                if ((packed & 1) != 0) {
+                    added.carV[k] = in.getFloat();
+                } else {
+                    int road = next.findRoad(prevRoad);
+                    double speed = next.roadSpeed[road];
+                    added.carV[k] = (next.roadFlags[road] & ROAD_RIGHT) != 0 ? speed : -speed;
+                }
+            }
+
+            // 合併：基準中保留的車輛（等速推算位置）與新增的車輛，依 id 排序
+            next.ensureCars(base.carCount - removedCount + addedCount);
+            int n = 0;
+            int i = 0;
+            int r = 0;
+            int a = 0;
+            while (i < base.carCount || a < addedCount) {
+                if (a < addedCount && (i >= base.carCount || added.carId[a] < base.carId[i])) {
+                    next.carId[n] = added.carId[a];
+                    next.carRoad[n] = added.carRoad[a];
+                    next.carX[n] = added.carX[a];
+                    next.carV[n] = added.carV[a];
+                    n++;
+                    a++;
+                } else if (r < removedCount && removed[r] == base.carId[i]) {
+                    r++;
+                    i++;
+                } else {
+                    next.carId[n] = base.carId[i];
+                    next.carRoad[n] = base.carRoad[i];
+                    next.carX[n] = base.carX[i] + base.carV[i] * dt;
+                    next.carV[n] = base.carV[i];
+                    n++;
+                    i++;
+                }
+            }
+            next.carCount = n;
+
+            int corrections = (int)getVar(in);
+            int pos = 0;
+            for (int k = 0; k < corrections; k++) {
+                pos += (int)getVar(in);
+                next.carX[pos] = (quantize(next.carX[pos]) + getZig(in)) / (double)POS_SCALE;
+            }
+        }
+    }
+
+    // 基準測試：不同車輛密度下，完整 / 差異快照的大小與編解碼時間
+    //   java WorldSnapshotCodec [量測 tick 數]
+    public static void main(String[] args) {
+        int measureTicks = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int[][] densities = {{2, 4}, {4, 8}, {8, 16}, {16, 32}, {32, 64}};
+        ByteBuffer fullBuf = ByteBuffer.allocate(1 << 20);
+        ByteBuffer deltaBuf = ByteBuffer.allocate(1 << 20);
+        ByteBuffer delta20Buf = ByteBuffer.allocate(1 << 20);
+
+        System.out.println("每條路車輛  平均車數  完整(B)  差異60Hz(B)  差異20Hz(B)  "
+                + "完整編碼/解碼(ns)  差異編碼/解碼(ns)  最大位置誤差(px)");
+        for (int[] density : densities) {
+            GameWorld.Difficulty difficulty = new GameWorld.Difficulty();
+            difficulty.minCarsPerRoad = density[0];
+            difficulty.maxCarsPerRoad = density[1];
+            GameWorld world = new GameWorld(42, difficulty);
+            AutoPlayer bot = new AutoPlayer(AutoPlayer.DEFAULT_HOP_INTERVAL, 6, 200);
+            Encoder fullEncoder = new Encoder();
+            Decoder fullDecoder = new Decoder();
+            Encoder deltaEncoder = new Encoder();
+            Decoder deltaDecoder = new Decoder();
+            Encoder delta20Encoder = new Encoder();
+            Decoder delta20Decoder = new Decoder();
+
+            long carsTotal = 0;
+            long fullBytes = 0, deltaBytes = 0, delta20Bytes = 0, delta20Count = 0;
+            long fullEncNs = 0, fullDecNs = 0, deltaEncNs = 0, deltaDecNs = 0;
+            double maxError = 0;
+            long seed = 43;
+            int warmup = 600;
+
+            for (int t = 0; t < warmup + measureTicks; t++) {
+                int move = bot.nextMove(world);
+                if (move != AutoPlayer.NO_MOVE) {
+                    world.movePlayer(move);
+                }
+                if (!world.tick()) {
+                    world.reset(seed++);
+                }
+                boolean measure = t >= warmup;
+
+                fullBuf.clear();
+                long t0 = System.nanoTime();
+                int fb = fullEncoder.encodeFull(world, fullBuf);
+                long t1 = System.nanoTime();
+                fullBuf.flip();
+                fullDecoder.decode(fullBuf);
+                long t2 = System.nanoTime();
+
+                deltaBuf.clear();
+                long t3 = System.nanoTime();
+                int db = deltaEncoder.encodeDelta(world, deltaBuf);
+                long t4 = System.nanoTime();
+                deltaBuf.flip();
+                deltaDecoder.decode(deltaBuf);
+                long t5 = System.nanoTime();
+
+                if (t % 3 == 0) {
+                    delta20Buf.clear();
+                    int b = delta20Encoder.encodeDelta(world, delta20Buf);
+                    delta20Buf.flip();
+                    delta20Decoder.decode(delta20Buf);
+                    if (measure) {
+                        delta20Bytes += b;
+                        delta20Count++;
+                    }
+                }
+
+                if (measure) {
+                    carsTotal += world.cars.size();
+                    fullBytes += fb;
+                    deltaBytes += db;
+                    fullEncNs += t1 - t0;
+                    fullDecNs += t2 - t1;
+                    deltaEncNs += t4 - t3;
+                    deltaDecNs += t5 - t4;
+
+                    // 驗證：差異解碼的結果與實際世界相符
+                    State s = deltaDecoder.state();
+                    if (s.carCount != world.cars.size() || s.roadCount != world.roads.size()) {
+                        throw new IllegalStateException("解碼後的車輛或道路數量不符");
+                    }
+                    for (int i = 0; i < s.carCount; i++) {
+                        maxError = Math.max(maxError, Math.abs(s.carX[i] - world.cars.get(i).x));
+                    }
+                }
+            }
+
+            System.out.printf("%4d-%-4d  %8.1f  %7d  %11d  %11d  %8d / %-8d  %8d / %-8d  %.4f%n",
+                    density[0], density[1], carsTotal / (double)measureTicks,
+                    fullBytes / measureTicks, deltaBytes / measureTicks, delta20Bytes / Math.max(1, delta20Count),
+                    fullEncNs / measureTicks, fullDecNs / measureTicks,
+                    deltaEncNs / measureTicks, deltaDecNs / measureTicks, maxError);
+        }
+    }
+}
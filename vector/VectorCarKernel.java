@@ -0,0 +1,41 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// CarKernel 的 SIMD 版本：一次處理一整個向量寬度的車輛，位置相加與範圍檢查在同一趟完成
+// 只透過 CarKernel.best() 以反射載入，沒有向量模組的環境不會碰到這個類別
+// 不在預設建置內，編譯方式見 CarKernel
+public class VectorCarKernel implements CarKernel.Advance {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int advance(double[] x, double[] v, int n, double minX, double maxX, boolean[] out) {
+        int removed = 0;
+        int i = 0;
+        int bound = SPECIES.loopBound(n);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector nx = DoubleVector.fromArray(SPECIES, x, i).add(DoubleVector.fromArray(SPECIES, v, i));
+            nx.intoArray(x, i);
+            VectorMask<Double> outside = nx.compare(VectorOperators.LT, minX).or(nx.compare(VectorOperators.GT, maxX));
+            outside.intoArray(out, i);
+            removed += outside.trueCount();
+        }
+        // 剩下不足一個向量的部分逐一計算
+        for (; i < n; i++) {
+            double nx = x[i] + v[i];
+            x[i] = nx;
+            boolean outside = nx < minX || nx > maxX;
+            out[i] = outside;
+            if (outside) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public String name() {
+        return "vector" + SPECIES.length();
+    }
+}